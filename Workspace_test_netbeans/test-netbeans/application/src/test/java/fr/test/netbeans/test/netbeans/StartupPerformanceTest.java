@@ -0,0 +1,246 @@
+package fr.test.netbeans.test.netbeans;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import junit.extensions.TestSetup;
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import org.netbeans.junit.NbModuleSuite;
+import org.netbeans.junit.NbTestCase;
+import org.openide.util.Utilities;
+
+/**
+ * Startup time regression test : boots the application headless several times, with a fresh userdir (cold) then with the userdir of the
+ * previous boot (warm), and fails when the median times go over the thresholds.
+ *
+ * Each boot reads the startup profile exported by the test-example module in the userdir, and appends the time to Installer.restored(), to
+ * the UI being ready and to the shape palette display to the results file, with the number of classes loaded by the boot and the used heap
+ * after a GC. Headless, nothing asks for the global action context, which the window system does when its frame opens : the test asks for it
+ * right after the boot, so the UI ready and palette times include the boot of the test. The boots share the JVM, so the warm boots also
+ * benefit from the classes already loaded and compiled. A warm boot finds the profile of the previous boot in the userdir : a profile exported
+ * before the boot started is ignored.
+ *
+ * Configured by the system properties set in the POM : startup.cold.boots, startup.warm.boots, startup.results, and the thresholds in
+ * milliseconds startup.restored.max, startup.uiReady.max and startup.palette.max.
+ */
+public class StartupPerformanceTest extends NbTestCase {
+
+    private static final String PROFILE = "var/test-example/startup-profile.json";
+    private static final String RESTORED_SPAN = "Installer.restored";
+    private static final String UI_READY_SPAN = "GlobalActionContextProxy.uiReady";
+    private static final String PALETTE_SPAN = "GlobalActionContextProxy.displayShapePalette";
+    /**
+     * Maximum time in milliseconds a boot waits for its profile.
+     */
+    private static final long PROFILE_TIMEOUT = Long.getLong("startup.profile.timeout", 60000);
+    private static final Pattern SPAN = Pattern.compile(
+            "\"name\": \"([^\"]*)\".*\"startMillis\": ([0-9.]+), \"durationMillis\": ([0-9.]+)");
+    private static final Pattern TIMESTAMP = Pattern.compile("\"timestamp\": ([0-9]+)");
+
+    public static Test suite() {
+        TestSuite suite = new TestSuite();
+        suite.addTest(new TestSuite(ResetResults.class));
+        for (int i = 0; i < Integer.getInteger("startup.cold.boots", 3); i++) {
+            suite.addTest(new Boot(false));
+        }
+        for (int i = 0; i < Integer.getInteger("startup.warm.boots", 3); i++) {
+            suite.addTest(new Boot(true));
+        }
+        suite.addTest(new TestSuite(Medians.class));
+        return suite;
+    }
+
+    public StartupPerformanceTest(String n) {
+        super(n);
+    }
+
+    public void testStartup() throws Exception {
+        // Creates the GlobalActionContextProxy, which records the UI ready and palette spans once the UI is ready.
+        Utilities.actionsGlobalContext();
+        Path profile = Paths.get(System.getProperty("netbeans.user")).resolve(PROFILE);
+        long origin = Long.getLong(Boot.ORIGIN);
+        long deadline = System.currentTimeMillis() + PROFILE_TIMEOUT;
+        double restored = -1;
+        double uiReady = -1;
+        double palette = -1;
+        while (System.currentTimeMillis() < deadline && (restored < 0 || uiReady < 0 || palette < 0)) {
+            Thread.sleep(200);
+            if (Files.isRegularFile(profile) && exportTime(profile) >= origin) {
+                restored = spanEnd(profile, RESTORED_SPAN);
+                uiReady = spanEnd(profile, UI_READY_SPAN);
+                palette = spanEnd(profile, PALETTE_SPAN);
+            }
+        }
+        long classes = ManagementFactory.getClassLoadingMXBean().getTotalLoadedClassCount() - Long.getLong(Boot.LOADED_CLASSES);
+        System.gc();
+        long heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+        String kind = System.getProperty(Boot.KIND);
+        String result = String.format(Locale.ROOT, "%s %.3f %.3f %.3f %d %d%n", kind, restored, uiReady, palette, classes, heap);
+        log(result);
+        Files.write(resultsFile(), result.getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        assertTrue("No " + RESTORED_SPAN + " in " + profile, restored >= 0);
+        assertTrue("No " + UI_READY_SPAN + " in " + profile, uiReady >= 0);
+        assertTrue("No " + PALETTE_SPAN + " in " + profile, palette >= 0);
+    }
+
+    /**
+     * Reads the time at which the last span with a name ended.
+     *
+     * @return the time in milliseconds since the boot, or -1 if the profile has no such span.
+     */
+    private static double spanEnd(Path profile, String name) throws IOException {
+        double end = -1;
+        for (String line : Files.readAllLines(profile, StandardCharsets.UTF_8)) {
+            Matcher matcher = SPAN.matcher(line);
+            if (matcher.find() && matcher.group(1).equals(name)) {
+                end = Math.max(end, Double.parseDouble(matcher.group(2)) + Double.parseDouble(matcher.group(3)));
+            }
+        }
+        return end;
+    }
+
+    /**
+     * Reads the time at which a profile was exported.
+     *
+     * @return the time in milliseconds since the epoch, or -1 if the profile is not complete yet.
+     */
+    private static long exportTime(Path profile) throws IOException {
+        for (String line : Files.readAllLines(profile, StandardCharsets.UTF_8)) {
+            Matcher matcher = TIMESTAMP.matcher(line);
+            if (matcher.find()) {
+                return Long.parseLong(matcher.group(1));
+            }
+        }
+        return -1;
+    }
+
+    private static Path resultsFile() {
+        return new File(System.getProperty("startup.results", "target/startup-performance.txt")).toPath();
+    }
+
+    /**
+     * Boot of the application, the span offsets and the loaded classes being measured from its start.
+     */
+    private static final class Boot extends TestSetup {
+
+        static final String KIND = "startup.kind";
+        static final String ORIGIN = "test-example.profiler.origin";
+        static final String LOADED_CLASSES = "startup.loaded.classes";
+        private final boolean warm;
+
+        Boot(boolean warm) {
+            super(NbModuleSuite.createConfiguration(StartupPerformanceTest.class).
+                    gui(false).
+                    enableClasspathModules(false).
+                    clusters(".*").
+                    reuseUserDir(warm).
+                    suite());
+            this.warm = warm;
+        }
+
+        @Override
+        protected void setUp() {
+            System.setProperty(KIND, warm ? "warm" : "cold");
+            System.setProperty(LOADED_CLASSES, Long.toString(ManagementFactory.getClassLoadingMXBean().getTotalLoadedClassCount()));
+            System.setProperty(ORIGIN, Long.toString(System.currentTimeMillis()));
+        }
+
+        @Override
+        protected void tearDown() {
+            System.clearProperty(ORIGIN);
+            System.clearProperty(LOADED_CLASSES);
+        }
+    }
+
+    /**
+     * Empties the results file before the boots.
+     */
+    public static final class ResetResults extends TestCase {
+
+        public ResetResults(String n) {
+            super(n);
+        }
+
+        public void testReset() throws IOException {
+            Path results = resultsFile();
+            if (results.getParent() != null) {
+                Files.createDirectories(results.getParent());
+            }
+            Files.deleteIfExists(results);
+        }
+    }
+
+    /**
+     * Checks the medians of the boots against the thresholds, and reports the medians of the loaded classes and of the used heap. The phases a
+     * boot did not reach, already reported by its test, are not counted.
+     */
+    public static final class Medians extends NbTestCase {
+
+        public Medians(String n) {
+            super(n);
+        }
+
+        public void testMedians() throws IOException {
+            List<String> lines = Files.readAllLines(resultsFile(), StandardCharsets.UTF_8);
+            for (String kind : new String[]{"cold", "warm"}) {
+                List<String[]> boots = new ArrayList<>();
+                for (String line : lines) {
+                    String[] fields = line.trim().split(" ");
+                    if (fields[0].equals(kind)) {
+                        boots.add(fields);
+                    }
+                }
+                if (boots.isEmpty()) {
+                    continue;
+                }
+                assertMedian(kind, "Installer.restored()", boots, 1, Long.getLong("startup.restored.max", Long.MAX_VALUE));
+                assertMedian(kind, "UI ready", boots, 2, Long.getLong("startup.uiReady.max", Long.MAX_VALUE));
+                assertMedian(kind, "displayShapePalette", boots, 3, Long.getLong("startup.palette.max", Long.MAX_VALUE));
+                log(kind + " boots: median loaded classes " + (long) median(values(boots, 4)) + ", median used heap "
+                        + (long) (median(values(boots, 5)) / (1024 * 1024)) + " MB over " + boots.size() + " boots");
+            }
+        }
+
+        private static List<Double> values(List<String[]> boots, int field) {
+            List<Double> values = new ArrayList<>();
+            for (String[] boot : boots) {
+                values.add(Double.parseDouble(boot[field]));
+            }
+            return values;
+        }
+
+        private void assertMedian(String kind, String phase, List<String[]> boots, int field, long max) {
+            List<Double> values = new ArrayList<>();
+            for (String[] boot : boots) {
+                double value = Double.parseDouble(boot[field]);
+                // -1 : the boot did not reach the phase
+                if (value >= 0) {
+                    values.add(value);
+                }
+            }
+            assertFalse("No " + kind + " boot reached " + phase, values.isEmpty());
+            double median = median(values);
+            log(kind + " boots: median time to " + phase + " " + median + " ms over " + values.size() + " boots (max " + max + " ms)");
+            assertTrue("Median time to " + phase + " of the " + kind + " boots is " + median + " ms, over " + max + " ms", median <= max);
+        }
+
+        private static double median(List<Double> values) {
+            Collections.sort(values);
+            int middle = values.size() / 2;
+            return values.size() % 2 == 1 ? values.get(middle) : (values.get(middle - 1) + values.get(middle)) / 2;
+        }
+    }
+}
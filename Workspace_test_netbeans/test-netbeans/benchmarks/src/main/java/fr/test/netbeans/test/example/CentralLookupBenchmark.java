@@ -0,0 +1,100 @@
+package fr.test.netbeans.test.example;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Lookups of the {@link CentralLookup}, alone and while other threads add and remove instances.
+ *
+ * @author BGRY
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Group)
+public class CentralLookupBenchmark {
+
+	/**
+	 * Number of instances in the lookup besides the looked up one.
+	 */
+	@Param({"10", "1000", "10000"})
+	public int instanceCount;
+
+	private CentralLookup lookup;
+
+	@Setup
+	public void setUp() {
+		lookup = new CentralLookup();
+		for (int i = 0; i < instanceCount; i++) {
+			lookup.add(Integer.valueOf(i));
+		}
+		lookup.add(new Marker());
+	}
+
+	@Benchmark
+	@Group("lookup")
+	@GroupThreads(4)
+	public Marker lookup() {
+		return lookup.lookup(Marker.class);
+	}
+
+	@Benchmark
+	@Group("lookupWhileChanged")
+	@GroupThreads(3)
+	public Marker lookupWhileChanged() {
+		return lookup.lookup(Marker.class);
+	}
+
+	@Benchmark
+	@Group("lookupWhileChanged")
+	@GroupThreads(1)
+	public void addRemove(Churn churn) {
+		lookup.add(churn.instance);
+		lookup.remove(churn.instance);
+	}
+
+	@Benchmark
+	@Group("lookupAllWhileChanged")
+	@GroupThreads(3)
+	public Collection<? extends Integer> lookupAllWhileChanged() {
+		return lookup.lookupAll(Integer.class);
+	}
+
+	@Benchmark
+	@Group("lookupAllWhileChanged")
+	@GroupThreads(1)
+	public void addRemoveAll(Churn churn) {
+		lookup.add(churn.instance);
+		lookup.remove(churn.instance);
+	}
+
+	/**
+	 * Instance added and removed by a thread.
+	 */
+	@State(Scope.Thread)
+	public static class Churn {
+
+		final Object instance = new Object();
+	}
+
+	/**
+	 * Class of the looked up instance.
+	 */
+	static final class Marker {
+	}
+}
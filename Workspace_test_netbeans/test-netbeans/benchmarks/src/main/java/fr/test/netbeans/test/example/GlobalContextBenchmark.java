@@ -0,0 +1,142 @@
+package fr.test.netbeans.test.example;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.netbeans.api.project.Project;
+import org.openide.filesystems.FileObject;
+import org.openide.filesystems.FileUtil;
+import org.openide.util.Lookup;
+import org.openide.util.LookupEvent;
+import org.openide.util.LookupListener;
+import org.openide.util.lookup.InstanceContent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Lookups through the ProxyLookup returned by {@link GlobalActionContextProxy#createGlobalContext()}, with a number of listening results
+ * like the actions of a real application have. The projects are placed in the content of the project lookup of the proxy, where a selection
+ * in the Projects window places them.
+ *
+ * @author BGRY
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Benchmark)
+public class GlobalContextBenchmark {
+
+	/**
+	 * Number of results listening to the projects of the global context.
+	 */
+	@Param({"0", "10", "100"})
+	public int listenerCount;
+	/**
+	 * Number of projects in the global context : none before a project is selected, one once selected, more for a multiple selection.
+	 */
+	@Param({"0", "1", "8"})
+	public int projectCount;
+
+	private Lookup globalContext;
+	private InstanceContent content;
+	private final List<Lookup.Result<Project>> results = new ArrayList<>();
+	private List<Project> projects;
+	/**
+	 * Other projects, selected in turn with the projects.
+	 */
+	private List<Project> otherProjects;
+	private boolean otherSelected = false;
+
+	@Setup
+	public void setUp() throws IOException, ReflectiveOperationException {
+		FileObject root = FileUtil.createMemoryFileSystem().getRoot();
+		projects = createProjects(root, "project");
+		otherProjects = createProjects(root, "other");
+		GlobalActionContextProxy proxy = new GlobalActionContextProxy();
+		globalContext = proxy.createGlobalContext();
+		content = getContent(proxy);
+		content.set(projects, null);
+		if (globalContext.lookupAll(Project.class).size() != projectCount) {
+			throw new IllegalStateException("The projects are not in the global context");
+		}
+		for (int i = 0; i < listenerCount; i++) {
+			Lookup.Result<Project> result = globalContext.lookupResult(Project.class);
+			result.addLookupListener(new LookupListener() {
+				@Override
+				public void resultChanged(LookupEvent event) {
+				}
+			});
+			result.allItems();
+			results.add(result);
+		}
+	}
+
+	@TearDown
+	public void tearDown() {
+		results.clear();
+	}
+
+	/**
+	 * Gets the content of the project lookup of a proxy, which the proxy does not expose.
+	 *
+	 * @param proxy : proxy.
+	 * @return the content.
+	 * @throws ReflectiveOperationException if the proxy has no content field.
+	 */
+	private static InstanceContent getContent(GlobalActionContextProxy proxy) throws ReflectiveOperationException {
+		Field field = GlobalActionContextProxy.class.getDeclaredField("content");
+		field.setAccessible(true);
+		return (InstanceContent) field.get(proxy);
+	}
+
+	private List<Project> createProjects(FileObject root, String prefix) throws IOException {
+		List<Project> created = new ArrayList<>(projectCount);
+		for (int i = 0; i < projectCount; i++) {
+			created.add(new ProjectOwnerBenchmark.BenchmarkProject(root.createFolder(prefix + i)));
+		}
+		return created;
+	}
+
+	@Benchmark
+	public Project lookupProject() {
+		return globalContext.lookup(Project.class);
+	}
+
+	@Benchmark
+	public Collection<? extends Project> lookupAllProjects() {
+		return globalContext.lookupAll(Project.class);
+	}
+
+	@Benchmark
+	public Collection<? extends Project> lookupResult() {
+		return globalContext.lookupResult(Project.class).allInstances();
+	}
+
+	/**
+	 * Selects the projects and the other projects in turn : the listening results are notified of each change.
+	 *
+	 * @return the projects selected.
+	 */
+	@Benchmark
+	public List<Project> selectProjects() {
+		otherSelected = !otherSelected;
+		List<Project> selected = otherSelected ? otherProjects : projects;
+		content.set(selected, null);
+		return selected;
+	}
+}
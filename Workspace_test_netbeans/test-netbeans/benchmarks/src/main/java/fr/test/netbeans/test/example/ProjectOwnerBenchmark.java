@@ -0,0 +1,124 @@
+package fr.test.netbeans.test.example;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.netbeans.api.project.Project;
+import org.openide.filesystems.FileObject;
+import org.openide.filesystems.FileUtil;
+import org.openide.nodes.AbstractNode;
+import org.openide.nodes.Children;
+import org.openide.nodes.Node;
+import org.openide.util.Lookup;
+import org.openide.util.lookup.Lookups;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Resolution of the project owning a node with the {@link ProjectOwnerCache}, from the leaves of a deep node tree whose root holds the project.
+ *
+ * @author BGRY
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ProjectOwnerBenchmark {
+
+	/**
+	 * Number of levels between the project node and the leaves.
+	 */
+	@Param({"4", "16", "64"})
+	public int depth;
+	/**
+	 * Number of children of each level, one of them having children.
+	 */
+	@Param({"1", "8"})
+	public int breadth;
+
+	private ProjectOwnerCache cache;
+	private Node[] leaves;
+	private int next = 0;
+
+	@Setup
+	public void setUp() throws IOException {
+		cache = new ProjectOwnerCache();
+		Project project = new BenchmarkProject(FileUtil.createMemoryFileSystem().getRoot());
+		Children.Array children = new Children.Array();
+		Node parent = new AbstractNode(children, Lookups.singleton(project));
+		for (int level = 0; level < depth; level++) {
+			Children.Array nextChildren = new Children.Array();
+			Node[] nodes = new Node[breadth];
+			nodes[0] = new AbstractNode(nextChildren);
+			for (int i = 1; i < breadth; i++) {
+				nodes[i] = new AbstractNode(Children.LEAF);
+			}
+			children.add(nodes);
+			parent = nodes[0];
+			children = nextChildren;
+		}
+		leaves = new Node[breadth];
+		for (int i = 0; i < breadth; i++) {
+			leaves[i] = new AbstractNode(Children.LEAF);
+		}
+		children.add(leaves);
+		if (leaves[0].getParentNode() != parent) {
+			throw new IllegalStateException("The tree is not built");
+		}
+	}
+
+	/**
+	 * Resolves the owner of the leaves in turn, their ancestors being cached.
+	 *
+	 * @return the owner.
+	 */
+	@Benchmark
+	public Project findOwnerCached() {
+		Node leaf = leaves[next];
+		next = (next + 1) % leaves.length;
+		return cache.findOwner(leaf);
+	}
+
+	/**
+	 * Resolves the owner of a leaf with an empty cache : the whole branch is walked.
+	 *
+	 * @return the owner.
+	 */
+	@Benchmark
+	public Project findOwnerUncached() {
+		cache.invalidate();
+		return cache.findOwner(leaves[0]);
+	}
+
+	/**
+	 * Project of the benchmarked tree, also used by the other benchmarks.
+	 */
+	static final class BenchmarkProject implements Project {
+
+		private final FileObject directory;
+
+		BenchmarkProject(FileObject directory) {
+			this.directory = directory;
+		}
+
+		@Override
+		public FileObject getProjectDirectory() {
+			return directory;
+		}
+
+		@Override
+		public Lookup getLookup() {
+			return Lookup.EMPTY;
+		}
+	}
+}
@@ -0,0 +1,134 @@
+package fr.test.netbeans.test.example;
+
+import java.awt.Color;
+import java.awt.Shape;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Queries of the shapes of a synoptic page : the shape under the mouse, the shapes of a rubber band and the shapes of the viewport, found
+ * through the spatial index of the layers or by reading all the shapes. Moving a shape measures the update of the index.
+ *
+ * @author BGRY
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+@State(Scope.Benchmark)
+public class SynopticIndexBenchmark {
+
+	private static final int CELL = 40;
+	private static final int VIEWPORT_WIDTH = 1200;
+	private static final int VIEWPORT_HEIGHT = 900;
+	private static final int RUBBER_BAND_SIZE = 200;
+	private static final int POSITIONS = 1024;
+
+	/**
+	 * Number of shapes of the page.
+	 */
+	@Param({"1000", "10000", "100000", "1000000"})
+	public int shapeCount;
+
+	private SynopticScene scene;
+	private SynopticLayer layer;
+	private SynopticShape[] shapes;
+	private double[] xs;
+	private double[] ys;
+	private int next = 0;
+	private int moved = 0;
+
+	@Setup
+	public void setUp() {
+		int columns = (int) Math.ceil(Math.sqrt(shapeCount));
+		int size = columns * CELL;
+		scene = new SynopticScene(size, size);
+		layer = scene.addLayer("values", false);
+		shapes = new SynopticShape[shapeCount];
+		Shape outline = new Rectangle2D.Double(0, 0, 1, 1);
+		for (int i = 0; i < shapeCount; i++) {
+			shapes[i] = scene.add(layer, outline, new Rectangle2D.Double((i % columns) * CELL + 8, (i / columns) * CELL + 8, CELL - 16,
+					CELL - 16), "value" + i, Color.GREEN, Color.DARK_GRAY);
+		}
+		Random random = new Random(0);
+		xs = new double[POSITIONS];
+		ys = new double[POSITIONS];
+		for (int i = 0; i < POSITIONS; i++) {
+			xs[i] = random.nextDouble() * Math.max(1, size - VIEWPORT_WIDTH);
+			ys[i] = random.nextDouble() * Math.max(1, size - VIEWPORT_HEIGHT);
+		}
+	}
+
+	private int nextPosition() {
+		next = (next + 1) & (POSITIONS - 1);
+		return next;
+	}
+
+	@Benchmark
+	public SynopticShape pointIndexed() {
+		int i = nextPosition();
+		return scene.getShapeAt(xs[i], ys[i]);
+	}
+
+	@Benchmark
+	public SynopticShape pointScan() {
+		int i = nextPosition();
+		SynopticShape top = null;
+		for (SynopticShape shape : layer.getShapes()) {
+			if (shape.contains(xs[i], ys[i])) {
+				top = shape;
+			}
+		}
+		return top;
+	}
+
+	@Benchmark
+	public List<SynopticShape> rubberBandIndexed() {
+		int i = nextPosition();
+		return scene.getShapes(new Rectangle2D.Double(xs[i], ys[i], RUBBER_BAND_SIZE, RUBBER_BAND_SIZE), true);
+	}
+
+	@Benchmark
+	public List<SynopticShape> viewportIndexed() {
+		int i = nextPosition();
+		return layer.getShapes(new Rectangle2D.Double(xs[i], ys[i], VIEWPORT_WIDTH, VIEWPORT_HEIGHT));
+	}
+
+	@Benchmark
+	public List<SynopticShape> viewportScan() {
+		int i = nextPosition();
+		Rectangle2D viewport = new Rectangle2D.Double(xs[i], ys[i], VIEWPORT_WIDTH, VIEWPORT_HEIGHT);
+		List<SynopticShape> result = new ArrayList<>();
+		for (SynopticShape shape : layer.getShapes()) {
+			if (viewport.intersects(shape.getPaintBounds())) {
+				result.add(shape);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Moves a shape to another place of the page, which updates its cells in the index. Each call moves another shape.
+	 */
+	@Benchmark
+	public void move() {
+		int i = nextPosition();
+		moved = (moved + 1) % shapeCount;
+		scene.move(shapes[moved], xs[i], ys[i]);
+	}
+}
@@ -0,0 +1,104 @@
+package fr.test.netbeans.test.example;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Queries of the components settings files of the userdir : the scan of the directory each query costs without index, and a query of the
+ * {@link UserDirComponentsIndex} once it is built.
+ *
+ * @author BGRY
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UserDirSettingsBenchmark {
+
+	private static final String COMPONENT = "EditorShapeTopComponent";
+
+	/**
+	 * Number of settings files in the directory.
+	 */
+	@Param({"10", "100", "1000"})
+	public int fileCount;
+
+	private Path directory;
+	private UserDirComponentsIndex index;
+
+	@Setup
+	public void setUp() throws IOException {
+		directory = Files.createTempDirectory("components");
+		for (int i = 0; i < fileCount; i++) {
+			Files.write(directory.resolve("Component" + i + ".settings"), new byte[256]);
+			Files.write(directory.resolve("Component" + i + ".wstcref"), new byte[128]);
+		}
+		Files.write(directory.resolve(COMPONENT + ".settings"), new byte[256]);
+		index = new UserDirComponentsIndex(directory);
+		if (!index.contains(COMPONENT)) {
+			throw new IllegalStateException("The settings are not indexed");
+		}
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+			@Override
+			public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+				Files.delete(file);
+				return FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+				Files.delete(dir);
+				return FileVisitResult.CONTINUE;
+			}
+		});
+	}
+
+	/**
+	 * Scans the directory for the settings files of the component, as each query did before the index.
+	 *
+	 * @return true if the component has settings.
+	 * @throws IOException if the directory cannot be read.
+	 */
+	@Benchmark
+	public boolean scan() throws IOException {
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*.settings")) {
+			for (Path file : files) {
+				String name = file.getFileName().toString();
+				if (name.startsWith(COMPONENT) && (name.length() == COMPONENT.length() + ".settings".length()
+						|| name.charAt(COMPONENT.length()) == '_')) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	@Benchmark
+	public boolean indexed() {
+		return index.contains(COMPONENT);
+	}
+}
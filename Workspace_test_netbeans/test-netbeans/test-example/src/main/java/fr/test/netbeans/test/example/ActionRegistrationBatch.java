@@ -0,0 +1,152 @@
+package fr.test.netbeans.test.example;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import javax.swing.AbstractAction;
+import javax.swing.Icon;
+import org.openide.filesystems.FileObject;
+import org.openide.filesystems.FileSystem;
+import org.openide.windows.TopComponent;
+
+/**
+ * Batch of changes of the {@link MenuAction} registered in a menu folder.
+ *
+ * The changes are recorded, then written by {@link #commit()} in a single atomic action of the file system : the menu is rebuilt once per
+ * batch instead of once per created file or attribute. An action is registered as a .instance file named after its component class.
+ *
+ * @author BGRY
+ */
+public final class ActionRegistrationBatch {
+
+	private final FileObject menuFolder;
+	private final List<Change> changes = new ArrayList<>();
+
+	/**
+	 * Creates an empty batch.
+	 *
+	 * @param menuFolder : menu folder of the actions.
+	 */
+	public ActionRegistrationBatch(FileObject menuFolder) {
+		if (menuFolder == null) {
+			throw new IllegalArgumentException("menuFolder cannot be null.");
+		}
+		this.menuFolder = menuFolder;
+	}
+
+	/**
+	 * Registers the action opening a component, unless it is already registered. The position of a registered action is updated.
+	 *
+	 * @param classType : class of the component.
+	 * @param menuDisplayName : menu name.
+	 * @param icon : icon, or null.
+	 * @param position : position in the menu.
+	 * @return this batch.
+	 */
+	public ActionRegistrationBatch add(Class<? extends TopComponent> classType, String menuDisplayName, Icon icon, int position) {
+		changes.add(new Change(classType, menuDisplayName, icon, position));
+		return this;
+	}
+
+	/**
+	 * Unregisters the action opening a component, if it is registered.
+	 *
+	 * @param classType : class of the component.
+	 * @return this batch.
+	 */
+	public ActionRegistrationBatch remove(Class<? extends TopComponent> classType) {
+		changes.add(new Change(classType, null, null, -1));
+		return this;
+	}
+
+	/**
+	 * Moves registered actions : each one is placed after the previous one, from a first position.
+	 *
+	 * @param firstPosition : position of the first action.
+	 * @param step : gap between two positions.
+	 * @param classTypes : classes of the components, in menu order.
+	 * @return this batch.
+	 */
+	public ActionRegistrationBatch reorder(int firstPosition, int step, List<Class<? extends TopComponent>> classTypes) {
+		int position = firstPosition;
+		for (Class<? extends TopComponent> classType : classTypes) {
+			changes.add(new Change(classType, null, null, position));
+			position += step;
+		}
+		return this;
+	}
+
+	/**
+	 * Writes the changes in a single atomic action, and empties the batch.
+	 *
+	 * @throws IOException : exception when changing the menu items.
+	 */
+	public void commit() throws IOException {
+		if (changes.isEmpty()) {
+			return;
+		}
+		final List<Change> toWrite = new ArrayList<>(changes);
+		changes.clear();
+		menuFolder.getFileSystem().runAtomicAction(new FileSystem.AtomicAction() {
+			@Override
+			public void run() throws IOException {
+				for (Change change : toWrite) {
+					change.write(menuFolder);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Registration, removal or move of an action.
+	 */
+	private static final class Change {
+
+		private final Class<? extends TopComponent> classType;
+		/**
+		 * Menu name of a registration, or null.
+		 */
+		private final String menuDisplayName;
+		private final Icon icon;
+		/**
+		 * Position in the menu, or -1 for a removal.
+		 */
+		private final int position;
+
+		Change(Class<? extends TopComponent> classType, String menuDisplayName, Icon icon, int position) {
+			if (classType == null) {
+				throw new IllegalArgumentException("classType cannot be null.");
+			}
+			this.classType = classType;
+			this.menuDisplayName = menuDisplayName;
+			this.icon = icon;
+			this.position = position;
+		}
+
+		void write(FileObject menuFolder) throws IOException {
+			FileObject menu = menuFolder.getFileObject(classType.getSimpleName(), "instance");
+			if (position < 0) {
+				if (menu != null) {
+					menu.delete();
+				}
+				return;
+			}
+			if (menu == null) {
+				if (menuDisplayName == null) {
+					// Only registered actions are moved.
+					return;
+				}
+				// The instance is only created the first time, it is kept in the userdir afterwards.
+				menu = menuFolder.createData(classType.getSimpleName(), "instance");
+				AbstractAction action = new MenuAction(classType, menuDisplayName, icon);
+				menu.setAttribute("instanceCreate", action);
+				menu.setAttribute("instanceClass", action.getClass().getName());
+			}
+			// Unchanged attributes are not written, so they fire no event.
+			if (!Objects.equals(menu.getAttribute("position"), position)) {
+				menu.setAttribute("position", position);
+			}
+		}
+	}
+}
@@ -1,5 +1,16 @@
 package fr.test.netbeans.test.example;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeMap;
+import org.openide.util.Lookup;
 import org.openide.util.lookup.AbstractLookup;
 import org.openide.util.lookup.InstanceContent;
 
@@ -7,25 +18,83 @@ import org.openide.util.lookup.InstanceContent;
  * Class used to house anything one might want to store in a central lookup which can affect anything within the application. It can be thought of as
  * a central context where any application data may
  * be stored and watched.
- * 
- * A singleton instance is created using @see getDefault(). This class is as thread safe as Lookup. Lookup appears to be safe.
- * 
+ *
+ * A singleton instance is created using @see getDefault(). This class is thread safe : lookups by class never block, they read a copy-on-write index
+ * of the first instance of each class. Modifications are serialized, and the modifications made in a {@link #batch(Runnable)} fire a single
+ * LookupEvent. The content is updated out of the write lock : the template based lookups and the listeners may see a modification made by
+ * another thread, or by a listener, shortly after add or remove returns.
+ *
+ * It extends Lookup rather than AbstractLookup, whose lookup methods are final : the template based queries are delegated to an AbstractLookup
+ * over the content.
+ *
  * @author Wade Chandler
  * @version 1.0
  */
-public class CentralLookup extends AbstractLookup {
-	private static final long serialVersionUID = 1L;
-	private InstanceContent content = null;
-	private static CentralLookup def = null;
+public class CentralLookup extends Lookup {
+	/**
+	 * Classes and interfaces an instance is registered under, by class of instance.
+	 */
+	private static final ClassValue<Class<?>[]> HIERARCHY = new ClassValue<Class<?>[]>() {
+		@Override
+		protected Class<?>[] computeValue(Class<?> type) {
+			Set<Class<?>> types = new LinkedHashSet<>();
+			collectTypes(type, types);
+			return types.toArray(new Class<?>[types.size()]);
+		}
+	};
+	private static volatile CentralLookup def = null;
+
+	private final InstanceContent content;
+	/**
+	 * Lookup over the content, answering the template based queries and notifying the listeners.
+	 */
+	private final AbstractLookup delegate;
+	/**
+	 * Write lock, guarding the instances, the batch and the content changes.
+	 */
+	private final Object writeLock = new Object();
+	/**
+	 * Insertion sequence by instance. The instances are compared with equals, as the content does.
+	 */
+	private final Map<Object, Long> sequences = new HashMap<>();
+	/**
+	 * Instances by insertion sequence.
+	 */
+	private final TreeMap<Long, Object> instances = new TreeMap<>();
+	/**
+	 * Instances by insertion sequence, by class or interface.
+	 */
+	private final Map<Class<?>, TreeMap<Long, Object>> instancesByType = new HashMap<>();
+	private long nextSequence = 0;
+	private int batchDepth = 0;
+	/**
+	 * Copy of the index modified by the current change or batch, null when there is none.
+	 */
+	private Map<Class<?>, Object> changedIndex = null;
+	/**
+	 * Changes of the content not applied yet, in the order of the modifications.
+	 */
+	private final Queue<Runnable> contentChanges = new ArrayDeque<>();
+	private boolean applyingContentChanges = false;
+	/**
+	 * First instance of each class or interface of the instances. Never modified once published, replaced on each change.
+	 */
+	private volatile Map<Class<?>, Object> index = Collections.emptyMap();
 
 	/**
-	 * Creates a CentralLookup instances with a specific content set.
-	 * 
+	 * Creates a CentralLookup instances with a specific content set. Once given to the CentralLookup, the content must only be modified through it.
+	 *
 	 * @param content the InstanceContent to use
 	 */
 	public CentralLookup(InstanceContent content) {
-		super(content);
 		this.content = content;
+		this.delegate = new AbstractLookup(content);
+		synchronized (writeLock) {
+			for (Object instance : delegate.lookupAll(Object.class)) {
+				insert(instance);
+			}
+			publishIndex();
+		}
 	}
 
 	/**
@@ -38,20 +107,100 @@ public class CentralLookup extends AbstractLookup {
 	/**
 	 * Adds an instance to the Lookup. The instance will be added with the classes in its hierarchy as keys which may be used to lookup the
 	 * instance(s).
-	 * 
+	 *
 	 * @param instance The instance to add
 	 */
-	public void add(Object instance) {
-		content.add(instance);
+	public void add(final Object instance) {
+		synchronized (writeLock) {
+			if (!insert(instance)) {
+				return;
+			}
+			if (batchDepth > 0) {
+				return;
+			}
+			publishIndex();
+			contentChanges.add(new Runnable() {
+				@Override
+				public void run() {
+					content.add(instance);
+				}
+			});
+		}
+		applyContentChanges();
 	}
 
 	/**
 	 * Removes the specific instance from the Lookup content.
-	 * 
+	 *
 	 * @param instance The specific instance to remove.
 	 */
-	public void remove(Object instance) {
-		content.remove(instance);
+	public void remove(final Object instance) {
+		synchronized (writeLock) {
+			if (!delete(instance)) {
+				return;
+			}
+			if (batchDepth > 0) {
+				return;
+			}
+			publishIndex();
+			contentChanges.add(new Runnable() {
+				@Override
+				public void run() {
+					content.remove(instance);
+				}
+			});
+		}
+		applyContentChanges();
+	}
+
+	/**
+	 * Runs a set of modifications as a single one : the listeners receive a single LookupEvent once all the modifications are done. Batches may be
+	 * nested, the event is fired at the end of the outermost one. Other threads wait for the end of the batch to modify the lookup, but they can
+	 * still read it.
+	 *
+	 * @param changes calls to add and remove.
+	 */
+	public void batch(Runnable changes) {
+		synchronized (writeLock) {
+			batchDepth++;
+			try {
+				changes.run();
+			} finally {
+				batchDepth--;
+				if (batchDepth == 0 && changedIndex != null) {
+					publishIndex();
+					final List<Object> batched = new ArrayList<>(instances.values());
+					contentChanges.add(new Runnable() {
+						@Override
+						public void run() {
+							content.set(batched, null);
+						}
+					});
+				}
+			}
+		}
+		applyContentChanges();
+	}
+
+	/**
+	 * Looks up the first instance of a class. This method does not lock nor allocate.
+	 *
+	 * @param clazz class of the instance
+	 * @return the first instance added of this class, or null
+	 */
+	@Override
+	public <T> T lookup(Class<T> clazz) {
+		return clazz.cast(index.get(clazz));
+	}
+
+	@Override
+	public <T> Result<T> lookup(Template<T> template) {
+		return delegate.lookup(template);
+	}
+
+	@Override
+	public <T> Item<T> lookupItem(Template<T> template) {
+		return delegate.lookupItem(template);
 	}
 
 	/**
@@ -59,23 +208,162 @@ public class CentralLookup extends AbstractLookup {
 	 * directly through the constructors to allow for more
 	 * than one if needed. CentralLookup is nothing more than an InstanceContent instance wrapped in a Lookup with the add and remove methods added to
 	 * make updating the data easier.
-	 * 
+	 *
 	 * @return The default CentralLookup which is global in nature.
 	 */
 	public static CentralLookup getDefault() {
-		if (def == null) {
-			def = new CentralLookup();
+		CentralLookup lookup = def;
+		if (lookup == null) {
+			synchronized (CentralLookup.class) {
+				lookup = def;
+				if (lookup == null) {
+					lookup = new CentralLookup();
+					def = lookup;
+				}
+			}
 		}
-		return def;
+		return lookup;
 	}
 
 	/**
 	 * Resets the default central lookup.
-	 * 
+	 *
 	 * @return The default CentralLookup which is global in nature.
 	 */
 	public static void resetDefault() {
-		def = new CentralLookup();
+		synchronized (CentralLookup.class) {
+			def = new CentralLookup();
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "CentralLookup" + instances();
+	}
+
+	private List<Object> instances() {
+		synchronized (writeLock) {
+			return new ArrayList<>(instances.values());
+		}
+	}
+
+	/**
+	 * Registers an instance under its classes and interfaces, in the changed index. Called with the write lock.
+	 *
+	 * @param instance added instance
+	 * @return false if the instance was already there
+	 */
+	private boolean insert(Object instance) {
+		if (sequences.containsKey(instance)) {
+			return false;
+		}
+		Long sequence = nextSequence++;
+		sequences.put(instance, sequence);
+		instances.put(sequence, instance);
+		Map<Class<?>, Object> newIndex = getChangedIndex();
+		for (Class<?> type : HIERARCHY.get(instance.getClass())) {
+			TreeMap<Long, Object> ofType = instancesByType.get(type);
+			if (ofType == null) {
+				ofType = new TreeMap<>();
+				instancesByType.put(type, ofType);
+				// The sequences only grow, the first instance of a type is the one added when there was none.
+				newIndex.put(type, instance);
+			}
+			ofType.put(sequence, instance);
+		}
+		return true;
+	}
+
+	/**
+	 * Unregisters an instance : only the index entries of its classes and interfaces are computed again. Called with the write lock.
+	 *
+	 * @param instance removed instance
+	 * @return false if the instance was not there
+	 */
+	private boolean delete(Object instance) {
+		Long sequence = sequences.remove(instance);
+		if (sequence == null) {
+			return false;
+		}
+		instances.remove(sequence);
+		Map<Class<?>, Object> newIndex = getChangedIndex();
+		for (Class<?> type : HIERARCHY.get(instance.getClass())) {
+			TreeMap<Long, Object> ofType = instancesByType.get(type);
+			ofType.remove(sequence);
+			if (ofType.isEmpty()) {
+				instancesByType.remove(type);
+				newIndex.remove(type);
+			} else if (newIndex.get(type) == instance) {
+				newIndex.put(type, ofType.firstEntry().getValue());
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Gets the copy of the index modified by the current change or batch. Called with the write lock.
+	 *
+	 * @return the changed index
+	 */
+	private Map<Class<?>, Object> getChangedIndex() {
+		if (changedIndex == null) {
+			changedIndex = new HashMap<>(index);
+		}
+		return changedIndex;
+	}
+
+	/**
+	 * Publishes the changed index to the readers. Called with the write lock.
+	 */
+	private void publishIndex() {
+		if (changedIndex != null) {
+			index = changedIndex;
+			changedIndex = null;
+		}
+	}
+
+	/**
+	 * Applies the pending changes of the content, out of the write lock since the listeners are notified by the content. A single thread applies
+	 * them at a time, in the order of the modifications : a modification made meanwhile, or by a listener, is applied by this thread before it
+	 * returns.
+	 */
+	private void applyContentChanges() {
+		synchronized (writeLock) {
+			// Within a batch, the changes are applied at the end of the outermost one.
+			if (applyingContentChanges || batchDepth > 0) {
+				return;
+			}
+			applyingContentChanges = true;
+		}
+		boolean applied = false;
+		try {
+			while (!applied) {
+				Runnable change;
+				synchronized (writeLock) {
+					change = contentChanges.poll();
+					applied = change == null;
+					applyingContentChanges = !applied;
+				}
+				if (change != null) {
+					change.run();
+				}
+			}
+		} finally {
+			if (!applied) {
+				synchronized (writeLock) {
+					applyingContentChanges = false;
+				}
+			}
+		}
+	}
+
+	private static void collectTypes(Class<?> type, Set<Class<?>> types) {
+		if (type != null && types.add(type)) {
+			collectTypes(type.getSuperclass(), types);
+			for (Class<?> interfaceType : type.getInterfaces()) {
+				collectTypes(interfaceType, types);
+			}
+		}
 	}
 
-}
\ No newline at end of file
+}
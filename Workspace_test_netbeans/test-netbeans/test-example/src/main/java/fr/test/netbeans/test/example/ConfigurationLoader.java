@@ -0,0 +1,212 @@
+package fr.test.netbeans.test.example;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.apache.commons.configuration.AbstractConfiguration;
+import org.apache.commons.configuration.BaseConfiguration;
+import org.apache.commons.configuration.CombinedConfiguration;
+import org.apache.commons.configuration.Configuration;
+import org.apache.commons.configuration.ConfigurationException;
+import org.apache.commons.configuration.DefaultConfigurationBuilder;
+import org.apache.commons.configuration.DefaultConfigurationBuilder.ConfigurationDeclaration;
+import org.apache.commons.configuration.DefaultConfigurationBuilder.ConfigurationProvider;
+import org.openide.util.RequestProcessor;
+
+/**
+ * Loads the application configuration in background.
+ *
+ * A placeholder configuration is published in the central lookup as soon as the loading starts, it is replaced by the first
+ * {@link ConfigurationSnapshot} of the {@link ConfigurationService} once every source has been parsed. The parse time of each source is recorded.
+ *
+ * @author BGRY
+ */
+public final class ConfigurationLoader {
+
+	private static final Logger logger = Logger.getLogger(ConfigurationLoader.class.getName());
+	private static final RequestProcessor RP = new RequestProcessor(ConfigurationLoader.class.getName(), 1);
+	/**
+	 * Tags of the configuration sources whose parse time is recorded.
+	 */
+	private static final String[] TIMED_TAGS = {"properties", "xml", "plist", "ini", "configuration", "system", "env", "jndi"};
+
+	private final File configurationFile;
+	private final PendingConfiguration placeholder = new PendingConfiguration();
+	/**
+	 * Parse times in nanoseconds by source, in parse order.
+	 */
+	private final Map<String, Long> parseTimes = Collections.synchronizedMap(new LinkedHashMap<String, Long>());
+
+	/**
+	 * Creates a loader.
+	 *
+	 * @param configurationFile : definition file of the configuration (config.xml).
+	 */
+	public ConfigurationLoader(File configurationFile) {
+		this.configurationFile = configurationFile;
+	}
+
+	/**
+	 * Starts the loading : publishes the placeholder in the central lookup and parses the configuration in background.
+	 *
+	 * @return the placeholder configuration.
+	 */
+	public PendingConfiguration start() {
+		CentralLookup.getDefault().add(placeholder);
+		RP.post(new Runnable() {
+			@Override
+			public void run() {
+				load();
+			}
+		});
+		return placeholder;
+	}
+
+	/**
+	 * Gets the parse times of the sources of the configuration.
+	 *
+	 * @return parse times in milliseconds by source, in parse order.
+	 */
+	public Map<String, Long> getParseTimes() {
+		Map<String, Long> times = new LinkedHashMap<>();
+		synchronized (parseTimes) {
+			for (Map.Entry<String, Long> parseTime : parseTimes.entrySet()) {
+				times.put(parseTime.getKey(), TimeUnit.NANOSECONDS.toMillis(parseTime.getValue()));
+			}
+		}
+		return times;
+	}
+
+	/**
+	 * Parses the configuration and replaces the placeholder with it.
+	 */
+	private void load() {
+		long start = System.nanoTime();
+		Configuration configuration = null;
+		try {
+			DefaultConfigurationBuilder builder = new DefaultConfigurationBuilder();
+			for (String tag : TIMED_TAGS) {
+				ConfigurationProvider provider = builder.providerForTag(tag);
+				if (provider != null) {
+					builder.addConfigurationProvider(tag, new TimedConfigurationProvider(tag, provider));
+				}
+			}
+			builder.setFile(configurationFile);
+			final CombinedConfiguration loaded = builder.getConfiguration(true);
+			final Configuration[] published = new Configuration[1];
+			// The service publishes the configuration and keeps it up to date with its sources, the placeholder is swapped in a single event.
+			CentralLookup.getDefault().batch(new Runnable() {
+				@Override
+				public void run() {
+					published[0] = ConfigurationService.getDefault().start(loaded);
+					CentralLookup.getDefault().remove(placeholder);
+				}
+			});
+			configuration = published[0];
+		} catch (ConfigurationException | RuntimeException ex) {
+			logger.log(Level.SEVERE, "Cannot load the configuration " + configurationFile, ex);
+		} finally {
+			CentralLookup.getDefault().remove(placeholder);
+			long end = System.nanoTime();
+			StartupProfiler.getDefault().record("ConfigurationLoader.load", start, end);
+			StartupProfiler.getDefault().count("configuration.sources", parseTimes.size());
+			logger.log(Level.INFO, "Configuration loaded in {0} ms, parse times by source (ms): {1}",
+					new Object[]{TimeUnit.NANOSECONDS.toMillis(end - start), getParseTimes()});
+			placeholder.loaded(configuration);
+		}
+	}
+
+	/**
+	 * Provider delegating the creation of a configuration source and recording its parse time.
+	 */
+	private final class TimedConfigurationProvider extends ConfigurationProvider {
+
+		private final String tag;
+		private final ConfigurationProvider delegate;
+
+		TimedConfigurationProvider(String tag, ConfigurationProvider delegate) {
+			this.tag = tag;
+			this.delegate = delegate;
+		}
+
+		@Override
+		public AbstractConfiguration getConfiguration(ConfigurationDeclaration decl) throws Exception {
+			long start = System.nanoTime();
+			try {
+				return delegate.getConfiguration(decl);
+			} finally {
+				String fileName = decl.getConfiguration().getString("[@fileName]");
+				parseTimes.put(fileName != null ? fileName : tag, System.nanoTime() - start);
+			}
+		}
+
+		@Override
+		public AbstractConfiguration getEmptyConfiguration(ConfigurationDeclaration decl) throws Exception {
+			return delegate.getEmptyConfiguration(decl);
+		}
+	}
+
+	/**
+	 * Empty configuration published while the real one is loaded. Consumers which need the real values defer their work with
+	 * {@link #whenLoaded(Runnable)}.
+	 */
+	public static final class PendingConfiguration extends BaseConfiguration {
+
+		private final List<Runnable> actions = new ArrayList<>();
+		private boolean loaded = false;
+		private Configuration configuration;
+
+		private PendingConfiguration() {
+		}
+
+		/**
+		 * Runs an action once the real configuration is published. The action is run immediately if it is already published.
+		 *
+		 * @param action : action to run, on the loading thread or on the caller thread.
+		 */
+		public void whenLoaded(Runnable action) {
+			synchronized (actions) {
+				if (!loaded) {
+					actions.add(action);
+					return;
+				}
+			}
+			action.run();
+		}
+
+		/**
+		 * Gets the real configuration.
+		 *
+		 * @return the real configuration, or null if it is not loaded yet or if it could not be loaded.
+		 */
+		public Configuration getConfiguration() {
+			synchronized (actions) {
+				return configuration;
+			}
+		}
+
+		private void loaded(Configuration configuration) {
+			List<Runnable> toRun;
+			synchronized (actions) {
+				this.loaded = true;
+				this.configuration = configuration;
+				toRun = new ArrayList<>(actions);
+				actions.clear();
+			}
+			for (Runnable action : toRun) {
+				action.run();
+			}
+		}
+
+		@Override
+		protected void addPropertyDirect(String key, Object value) {
+			throw new UnsupportedOperationException("The configuration is not loaded yet.");
+		}
+	}
+}
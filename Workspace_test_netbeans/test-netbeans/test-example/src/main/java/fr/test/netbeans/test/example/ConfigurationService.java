@@ -0,0 +1,236 @@
+package fr.test.netbeans.test.example;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.apache.commons.configuration.AbstractFileConfiguration;
+import org.apache.commons.configuration.CombinedConfiguration;
+import org.apache.commons.configuration.Configuration;
+import org.apache.commons.configuration.ConfigurationException;
+import org.openide.util.RequestProcessor;
+
+/**
+ * Keeps the application configuration up to date with its sources.
+ *
+ * The source files of the configuration are watched : when one of them changes, only this source is parsed again and a new
+ * {@link ConfigurationSnapshot} replaces the previous one in the central lookup. Consumers listen to the central lookup for
+ * {@link ConfigurationSnapshot} and check {@link ConfigurationSnapshot#getChangedKeys()}.
+ *
+ * @author BGRY
+ */
+public final class ConfigurationService {
+
+	private static final Logger logger = Logger.getLogger(ConfigurationService.class.getName());
+	private static final RequestProcessor RP = new RequestProcessor(ConfigurationService.class.getName(), 1);
+	private static final ConfigurationService DEFAULT = new ConfigurationService();
+	/**
+	 * Delay in milliseconds between a file change and its reload, editors often write a file in several steps.
+	 */
+	private static final int RELOAD_DELAY = 200;
+
+	/**
+	 * Combined configuration whose sources are watched, only used on the RP thread once started.
+	 */
+	private CombinedConfiguration configuration;
+	/**
+	 * Reload tasks by source file.
+	 */
+	private final Map<Path, RequestProcessor.Task> reloadTasks = new HashMap<>();
+	private volatile ConfigurationSnapshot snapshot;
+
+	private ConfigurationService() {
+	}
+
+	/**
+	 * Gets the configuration service of the application.
+	 *
+	 * @return the default configuration service.
+	 */
+	public static ConfigurationService getDefault() {
+		return DEFAULT;
+	}
+
+	/**
+	 * Gets the last published snapshot.
+	 *
+	 * @return the current snapshot, null before the configuration is loaded.
+	 */
+	public ConfigurationSnapshot getSnapshot() {
+		return snapshot;
+	}
+
+	/**
+	 * Publishes the first snapshot of a configuration and starts watching its source files.
+	 *
+	 * @param loaded : configuration built from config.xml.
+	 * @return the first snapshot.
+	 */
+	ConfigurationSnapshot start(CombinedConfiguration loaded) {
+		ConfigurationSnapshot first;
+		synchronized (this) {
+			this.configuration = loaded;
+			first = createSnapshot();
+			snapshot = first;
+		}
+		// Published out of the monitor, the callers may already hold the central lookup. The sources are watched once it is published, so that
+		// no reload publishes before it.
+		publish(null, first);
+		watch(loaded);
+		return first;
+	}
+
+	/**
+	 * Watches the file sources of a configuration.
+	 *
+	 * @param loaded : configuration built from config.xml.
+	 */
+	private synchronized void watch(CombinedConfiguration loaded) {
+		for (final AbstractFileConfiguration source : getFileSources(loaded)) {
+			File file = source.getFile();
+			if (file == null) {
+				continue;
+			}
+			final Path path = file.toPath().toAbsolutePath().normalize();
+			reloadTasks.put(path, RP.create(new Runnable() {
+				@Override
+				public void run() {
+					reload(source, path);
+				}
+			}));
+			try {
+				DirectoryWatcher.getDefault().register(path.getParent(), new DirectoryWatcher.Listener() {
+					@Override
+					public void fileChanged(Path changed) {
+						if (changed.equals(path) || changed.equals(path.getParent())) {
+							scheduleReload(path);
+						}
+					}
+				});
+			} catch (IOException ex) {
+				logger.log(Level.INFO, "Cannot watch configuration source " + path, ex);
+			}
+		}
+	}
+
+	private synchronized void scheduleReload(Path path) {
+		RequestProcessor.Task task = reloadTasks.get(path);
+		if (task != null) {
+			task.schedule(RELOAD_DELAY);
+		}
+	}
+
+	/**
+	 * Parses a source again and publishes the new snapshot if a value changed.
+	 *
+	 * @param source : source to parse.
+	 * @param path : file of the source.
+	 */
+	private void reload(AbstractFileConfiguration source, Path path) {
+		if (!path.toFile().isFile()) {
+			// Deleted, or replaced by the editor : the creation of the new file triggers another reload.
+			return;
+		}
+		ConfigurationSnapshot previous;
+		ConfigurationSnapshot next;
+		try {
+			synchronized (this) {
+				source.refresh();
+				// The combined configuration caches its merged nodes.
+				configuration.invalidate();
+				previous = snapshot;
+				next = createSnapshot();
+				if (next.getChangedKeys().isEmpty()) {
+					return;
+				}
+				snapshot = next;
+			}
+		} catch (ConfigurationException ex) {
+			logger.log(Level.INFO, "Cannot reload configuration source " + path + ", keeping the previous values", ex);
+			return;
+		}
+		logger.log(Level.INFO, "Configuration source {0} reloaded, changed keys: {1}", new Object[]{path, next.getChangedKeys()});
+		// Published out of the monitor, which is taken by the loader inside a batch of the central lookup. The reloads run one at a time on RP,
+		// so the snapshots are published in order.
+		publish(previous, next);
+	}
+
+	/**
+	 * Creates a snapshot of the configuration, compared with the current snapshot.
+	 *
+	 * @return a new snapshot.
+	 */
+	private ConfigurationSnapshot createSnapshot() {
+		Map<String, Object> values = new HashMap<>();
+		for (Iterator<String> keys = configuration.getKeys(); keys.hasNext();) {
+			String key = keys.next();
+			Object value = configuration.getProperty(key);
+			values.put(key, value instanceof List ? Collections.unmodifiableList(new ArrayList<>((List<?>) value)) : value);
+		}
+
+		ConfigurationSnapshot previous = snapshot;
+		Set<String> changedKeys = new HashSet<>();
+		if (previous == null) {
+			changedKeys.addAll(values.keySet());
+		} else {
+			for (Map.Entry<String, Object> value : values.entrySet()) {
+				if (!Objects.equals(value.getValue(), previous.getMap().get(value.getKey()))) {
+					changedKeys.add(value.getKey());
+				}
+			}
+			for (String key : previous.getMap().keySet()) {
+				if (!values.containsKey(key)) {
+					changedKeys.add(key);
+				}
+			}
+		}
+		return new ConfigurationSnapshot(values, previous == null ? 1 : previous.getRevision() + 1, changedKeys);
+	}
+
+	/**
+	 * Replaces a snapshot in the central lookup.
+	 *
+	 * @param previous : replaced snapshot, null for the first one.
+	 * @param next : new snapshot.
+	 */
+	private static void publish(final ConfigurationSnapshot previous, final ConfigurationSnapshot next) {
+		CentralLookup.getDefault().batch(new Runnable() {
+			@Override
+			public void run() {
+				if (previous != null) {
+					CentralLookup.getDefault().remove(previous);
+				}
+				CentralLookup.getDefault().add(next);
+			}
+		});
+	}
+
+	/**
+	 * Gets the file sources of a combined configuration, including the ones of nested combined configurations.
+	 *
+	 * @param combined : combined configuration.
+	 * @return file sources.
+	 */
+	private static List<AbstractFileConfiguration> getFileSources(CombinedConfiguration combined) {
+		List<AbstractFileConfiguration> sources = new ArrayList<>();
+		for (int i = 0; i < combined.getNumberOfConfigurations(); i++) {
+			Configuration source = combined.getConfiguration(i);
+			if (source instanceof AbstractFileConfiguration) {
+				sources.add((AbstractFileConfiguration) source);
+			} else if (source instanceof CombinedConfiguration) {
+				sources.addAll(getFileSources((CombinedConfiguration) source));
+			}
+		}
+		return sources;
+	}
+}
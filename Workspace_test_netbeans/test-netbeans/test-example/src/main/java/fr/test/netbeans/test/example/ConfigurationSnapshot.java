@@ -0,0 +1,72 @@
+package fr.test.netbeans.test.example;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import org.apache.commons.configuration.MapConfiguration;
+
+/**
+ * Immutable view of the application configuration at a given revision, as published in the central lookup by the {@link ConfigurationService}.
+ *
+ * Each snapshot knows the keys which changed since the previous one, so consumers listening to the central lookup only react to the values they
+ * use.
+ *
+ * @author BGRY
+ */
+public final class ConfigurationSnapshot extends MapConfiguration {
+
+	private final long revision;
+	private final Set<String> changedKeys;
+
+	/**
+	 * Creates a snapshot.
+	 *
+	 * @param values : values by key, not copied.
+	 * @param revision : revision of the snapshot, 1 for the first one.
+	 * @param changedKeys : keys added, removed or modified since the previous snapshot.
+	 */
+	ConfigurationSnapshot(Map<String, Object> values, long revision, Set<String> changedKeys) {
+		super(Collections.unmodifiableMap(values));
+		setDelimiterParsingDisabled(true);
+		this.revision = revision;
+		this.changedKeys = Collections.unmodifiableSet(changedKeys);
+	}
+
+	/**
+	 * Gets the revision of the snapshot.
+	 *
+	 * @return revision, 1 for the first snapshot.
+	 */
+	public long getRevision() {
+		return revision;
+	}
+
+	/**
+	 * Gets the keys which changed since the previous snapshot. All the keys are changed in the first snapshot.
+	 *
+	 * @return keys added, removed or modified.
+	 */
+	public Set<String> getChangedKeys() {
+		return changedKeys;
+	}
+
+	/**
+	 * Checks if a key changed since the previous snapshot.
+	 *
+	 * @param key : configuration key.
+	 * @return true if the key was added, removed or modified.
+	 */
+	public boolean isChanged(String key) {
+		return changedKeys.contains(key);
+	}
+
+	@Override
+	protected void addPropertyDirect(String key, Object value) {
+		throw new UnsupportedOperationException("A configuration snapshot cannot be modified.");
+	}
+
+	@Override
+	protected void clearPropertyDirect(String key) {
+		throw new UnsupportedOperationException("A configuration snapshot cannot be modified.");
+	}
+}
@@ -0,0 +1,124 @@
+package fr.test.netbeans.test.example;
+
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.swing.SwingUtilities;
+import org.openide.util.Exceptions;
+import org.openide.windows.Mode;
+import org.openide.windows.TopComponent;
+import org.openide.windows.WindowManager;
+
+/**
+ * Lightweight placeholder of a top component, docked instead of the real component until it is shown.
+ *
+ * The placeholder only has the name and tool tip of the real component : the real component is constructed, and loads its data when opened,
+ * the first time the placeholder is shown. It then replaces the placeholder in its mode. The placeholder is never persisted, the real component
+ * is persisted according to its own persistence type.
+ *
+ * @author BGRY
+ */
+final class DeferredTopComponent extends TopComponent {
+
+	private static final long serialVersionUID = 1L;
+	private static final Logger logger = Logger.getLogger(DeferredTopComponent.class.getName());
+
+	private final Class<? extends TopComponent> type;
+	/**
+	 * Real component, once constructed. Only accessed on the EDT.
+	 */
+	private transient TopComponent component = null;
+
+	/**
+	 * Creates a placeholder.
+	 *
+	 * @param type : class of the real component, with a public constructor without parameters.
+	 * @param name : name of the tab.
+	 * @param toolTip : tool tip of the tab.
+	 */
+	DeferredTopComponent(Class<? extends TopComponent> type, String name, String toolTip) {
+		this.type = type;
+		setName(name);
+		setToolTipText(toolTip);
+	}
+
+	/**
+	 * Gets the class of the real component.
+	 *
+	 * @return the class of the real component.
+	 */
+	Class<? extends TopComponent> getType() {
+		return type;
+	}
+
+	/**
+	 * Finds the open placeholder of a component. Must be called on the EDT.
+	 *
+	 * @param type : class of the real component.
+	 * @return the open placeholder, or null.
+	 */
+	static DeferredTopComponent findOpened(Class<? extends TopComponent> type) {
+		for (TopComponent openComponent : TopComponentIndex.getDefault().findAll(DeferredTopComponent.class)) {
+			if (((DeferredTopComponent) openComponent).type == type) {
+				return (DeferredTopComponent) openComponent;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Constructs the real component and replaces the placeholder with it, in the same mode. Must be called on the EDT.
+	 *
+	 * @return the real component, opened, or null if it cannot be constructed.
+	 */
+	TopComponent materialize() {
+		if (component != null) {
+			return component;
+		}
+		long start = System.nanoTime();
+		try {
+			component = TopComponentIndex.newInstance(type);
+		} catch (IllegalArgumentException | IllegalStateException ex) {
+			Exceptions.printStackTrace(ex);
+			return null;
+		}
+		Mode mode = WindowManager.getDefault().findMode(this);
+		if (mode != null) {
+			mode.dockInto(component);
+		}
+		component.open();
+		close();
+		long end = System.nanoTime();
+		StartupProfiler.getDefault().record("DeferredTopComponent.materialize " + type.getSimpleName(), start, end);
+		StartupProfiler.getDefault().exportLater();
+		logger.log(Level.FINE, "{0} constructed on first show in {1} ms",
+				new Object[]{type.getSimpleName(), TimeUnit.NANOSECONDS.toMillis(end - start)});
+		return component;
+	}
+
+	@Override
+	protected void componentShowing() {
+		// Replaced once the window system finished showing the placeholder.
+		SwingUtilities.invokeLater(new Runnable() {
+			@Override
+			public void run() {
+				if (component == null && isOpened()) {
+					TopComponent shown = materialize();
+					if (shown != null) {
+						shown.requestActive();
+					}
+				}
+			}
+		});
+	}
+
+	@Override
+	public int getPersistenceType() {
+		return PERSISTENCE_NEVER;
+	}
+
+	@Override
+	protected String preferredID() {
+		return type.getSimpleName() + "Placeholder";
+	}
+}
@@ -0,0 +1,166 @@
+package fr.test.netbeans.test.example;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Watches directories with a {@link WatchService} and notifies listeners of the files created, modified or deleted in them.
+ *
+ * A single daemon thread serves every watched directory. Listeners are called on this thread : they must hand any long work over to another
+ * thread.
+ *
+ * @author BGRY
+ */
+public final class DirectoryWatcher {
+
+	private static final Logger logger = Logger.getLogger(DirectoryWatcher.class.getName());
+	private static final DirectoryWatcher DEFAULT = new DirectoryWatcher();
+
+	/**
+	 * Listener of the changes in a watched directory.
+	 */
+	public interface Listener {
+
+		/**
+		 * Called when a file of the directory has been created, modified or deleted. When events have been lost, it is called with the directory
+		 * itself : anything in it may have changed.
+		 *
+		 * @param file : changed file, or the watched directory.
+		 */
+		void fileChanged(Path file);
+	}
+
+	private final Map<Path, List<Listener>> listeners = new ConcurrentHashMap<>();
+	private final Map<WatchKey, Path> directories = new ConcurrentHashMap<>();
+	private WatchService watchService;
+
+	private DirectoryWatcher() {
+	}
+
+	/**
+	 * Gets the watcher shared by the module.
+	 *
+	 * @return the default watcher.
+	 */
+	public static DirectoryWatcher getDefault() {
+		return DEFAULT;
+	}
+
+	/**
+	 * Starts watching a directory.
+	 *
+	 * @param directory : directory to watch.
+	 * @param listener : listener notified of the changes in the directory.
+	 * @throws IOException : exception when the directory cannot be watched.
+	 */
+	public synchronized void register(Path directory, Listener listener) throws IOException {
+		Path dir = directory.toAbsolutePath().normalize();
+		List<Listener> dirListeners = listeners.get(dir);
+		if (dirListeners == null) {
+			WatchKey key = dir.register(getWatchService(),
+					StandardWatchEventKinds.ENTRY_CREATE,
+					StandardWatchEventKinds.ENTRY_MODIFY,
+					StandardWatchEventKinds.ENTRY_DELETE);
+			directories.put(key, dir);
+			dirListeners = new CopyOnWriteArrayList<>();
+			listeners.put(dir, dirListeners);
+		}
+		dirListeners.add(listener);
+	}
+
+	/**
+	 * Stops notifying a listener of the changes in a directory. The directory is not watched anymore when it has no listener left.
+	 *
+	 * @param directory : watched directory.
+	 * @param listener : listener to remove.
+	 */
+	public synchronized void unregister(Path directory, Listener listener) {
+		Path dir = directory.toAbsolutePath().normalize();
+		List<Listener> dirListeners = listeners.get(dir);
+		if (dirListeners != null && dirListeners.remove(listener) && dirListeners.isEmpty()) {
+			listeners.remove(dir);
+			for (Map.Entry<WatchKey, Path> entry : directories.entrySet()) {
+				if (entry.getValue().equals(dir)) {
+					entry.getKey().cancel();
+					directories.remove(entry.getKey());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Gets the watch service, creating it and its thread on first use.
+	 *
+	 * @return the watch service.
+	 * @throws IOException : exception when the watch service cannot be created.
+	 */
+	private WatchService getWatchService() throws IOException {
+		if (watchService == null) {
+			watchService = FileSystems.getDefault().newWatchService();
+			Thread thread = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					processEvents();
+				}
+			}, DirectoryWatcher.class.getName());
+			thread.setDaemon(true);
+			thread.start();
+		}
+		return watchService;
+	}
+
+	/**
+	 * Dispatches the events of the watch service to the listeners, until the watch service is closed.
+	 */
+	private void processEvents() {
+		WatchService service;
+		synchronized (this) {
+			service = watchService;
+		}
+		while (true) {
+			WatchKey key;
+			try {
+				key = service.take();
+			} catch (InterruptedException | ClosedWatchServiceException ex) {
+				return;
+			}
+			Path dir = directories.get(key);
+			if (dir != null) {
+				for (WatchEvent<?> event : key.pollEvents()) {
+					Path file = event.kind() == StandardWatchEventKinds.OVERFLOW ? dir : dir.resolve((Path) event.context());
+					fireFileChanged(dir, file);
+				}
+			} else {
+				key.pollEvents();
+			}
+			if (!key.reset()) {
+				directories.remove(key);
+			}
+		}
+	}
+
+	private void fireFileChanged(Path dir, Path file) {
+		List<Listener> dirListeners = listeners.get(dir);
+		if (dirListeners != null) {
+			for (Listener listener : dirListeners) {
+				try {
+					listener.fileChanged(file);
+				} catch (RuntimeException ex) {
+					logger.log(Level.WARNING, "Listener failed on change of " + file, ex);
+				}
+			}
+		}
+	}
+}
@@ -1,9 +1,18 @@
 package fr.test.netbeans.test.example;
 
 import java.awt.BorderLayout;
+import java.awt.Component;
+import java.awt.image.BufferedImage;
+import java.util.List;
+import java.util.Map;
+import javax.swing.DefaultListCellRenderer;
+import javax.swing.Icon;
+import javax.swing.ImageIcon;
 import javax.swing.JLabel;
-import javax.swing.JPanel;
+import javax.swing.JList;
 import javax.swing.JScrollPane;
+import javax.swing.ListSelectionModel;
+import javax.swing.SwingConstants;
 import org.netbeans.api.settings.ConvertAsProperties;
 import org.openide.awt.ActionID;
 import org.openide.explorer.ExplorerManager;
@@ -32,9 +41,44 @@ import org.openide.windows.TopComponent;
 })
 public final class EditorShapeTopComponent extends TopComponent {
 
+	/**
+	 * Size of the shape thumbnails.
+	 */
+	private static final int THUMBNAIL_SIZE = 48;
+	/**
+	 * Maximum number of thumbnails kept in memory, a few screens of cells.
+	 */
+	private static final int THUMBNAIL_CACHE_CAPACITY = 1024;
+	private static final int CELL_WIDTH = 80;
+	private static final int CELL_HEIGHT = 76;
+
 	protected JLabel selectedEntry = null;
 	private ExplorerManager em;
-	private JPanel content = new JPanel();
+	/**
+	 * The list only creates renderers for the visible cells, whatever the number of shapes.
+	 */
+	private final ShapePaletteModel model = new ShapePaletteModel();
+	private final JList<ShapeEntry> content = new JList<>(model);
+	private final ShapeThumbnailCache thumbnails;
+	/**
+	 * Fills the palette as the shapes of the catalog are loaded.
+	 */
+	private final ShapeCatalog.Listener catalogListener = new ShapeCatalog.Listener() {
+		@Override
+		public void catalogReset(List<ShapeEntry> entries) {
+			model.clear();
+			model.addAll(entries);
+		}
+
+		@Override
+		public void shapesLoaded(Map<Integer, ShapeEntry> loaded) {
+			for (Map.Entry<Integer, ShapeEntry> entry : loaded.entrySet()) {
+				if (entry.getKey() < model.getSize()) {
+					model.set(entry.getKey(), entry.getValue());
+				}
+			}
+		}
+	};
 	private final JScrollPane scrollPane;
 
 	public EditorShapeTopComponent() {
@@ -44,6 +88,21 @@ public final class EditorShapeTopComponent extends TopComponent {
 
 		setLayout(new BorderLayout());
 
+		thumbnails = new ShapeThumbnailCache(THUMBNAIL_SIZE, THUMBNAIL_CACHE_CAPACITY, new Runnable() {
+			@Override
+			public void run() {
+				content.repaint();
+			}
+		});
+		thumbnails.setFactory(ShapeCatalog.getDefault().getThumbnailFactory());
+		content.setLayoutOrientation(JList.HORIZONTAL_WRAP);
+		content.setVisibleRowCount(-1);
+		// Fixed cell sizes : the list never measures the cells.
+		content.setFixedCellWidth(CELL_WIDTH);
+		content.setFixedCellHeight(CELL_HEIGHT);
+		content.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+		content.setCellRenderer(new ShapeCellRenderer());
+
 		scrollPane = new JScrollPane(content);
 		scrollPane.setVerticalScrollBarPolicy(JScrollPane.VERTICAL_SCROLLBAR_ALWAYS);
 		scrollPane.setHorizontalScrollBarPolicy(JScrollPane.HORIZONTAL_SCROLLBAR_NEVER);
@@ -56,7 +115,59 @@ public final class EditorShapeTopComponent extends TopComponent {
 		
 	}
 
-	
+	/**
+	 * Gets the model of the palette, to be modified on the EDT.
+	 *
+	 * @return the list model of the shapes.
+	 */
+	public ShapePaletteModel getModel() {
+		return model;
+	}
+
+	/**
+	 * Gets the thumbnails of the palette.
+	 *
+	 * @return the thumbnail cache.
+	 */
+	public ShapeThumbnailCache getThumbnails() {
+		return thumbnails;
+	}
+
+	/**
+	 * Gets the selected shape.
+	 *
+	 * @return the selected shape, or null.
+	 */
+	public ShapeEntry getSelectedShape() {
+		return content.getSelectedValue();
+	}
+
+	/**
+	 * Renders a shape cell : its thumbnail above its name. The thumbnail is requested from the cache, and replaced by an empty icon while it is
+	 * rendered or if it failed.
+	 */
+	private final class ShapeCellRenderer extends DefaultListCellRenderer {
+
+		private static final long serialVersionUID = 1L;
+		private final Icon placeholder = new ImageIcon(new BufferedImage(THUMBNAIL_SIZE, THUMBNAIL_SIZE, BufferedImage.TYPE_INT_ARGB));
+
+		ShapeCellRenderer() {
+			setHorizontalAlignment(SwingConstants.CENTER);
+			setVerticalTextPosition(SwingConstants.BOTTOM);
+			setHorizontalTextPosition(SwingConstants.CENTER);
+		}
+
+		@Override
+		public Component getListCellRendererComponent(JList<?> list, Object value, int index, boolean isSelected, boolean cellHasFocus) {
+			super.getListCellRendererComponent(list, value, index, isSelected, cellHasFocus);
+			ShapeEntry entry = (ShapeEntry) value;
+			Icon thumbnail = entry.isLoading() ? null : thumbnails.getThumbnail(entry);
+			setIcon(thumbnail != null ? thumbnail : placeholder);
+			setToolTipText(entry.getDescription());
+			return this;
+		}
+	}
+
 	
 	/**
 	 * This method is called from within the constructor to initialize the form. WARNING: Do NOT modify this code. The content of this method is always
@@ -81,12 +192,13 @@ public final class EditorShapeTopComponent extends TopComponent {
     // End of variables declaration//GEN-END:variables
     @Override
 	public void componentOpened() {
-		// TODO add custom code on component opening
+		ShapeCatalog.getDefault().addListener(catalogListener);
 	}
 
 	@Override
 	public void componentClosed() {
-		// TODO add custom code on component closing
+		ShapeCatalog.getDefault().removeListener(catalogListener);
+		thumbnails.clear();
 	}
 
 	void writeProperties(java.util.Properties p) {
@@ -0,0 +1,280 @@
+package fr.test.netbeans.test.example;
+
+import java.awt.AWTEvent;
+import java.awt.EventQueue;
+import java.awt.Toolkit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Detects the events whose dispatch blocks the EDT longer than a threshold, and reports the stack of the EDT and the listener running.
+ *
+ * The EDT only writes volatile markers around each dispatch and around the instrumented listeners, see {@link #enter(Object)}. A sampler
+ * thread reads them and captures the stalls, the worst ones are kept in a fixed size buffer. The watchdog is enabled with the
+ * test-example.edt.watchdog system property, the threshold in milliseconds is read from test-example.edt.threshold. When disabled, the event
+ * queue is not replaced and the listener markers are not written.
+ *
+ * @author BGRY
+ */
+public final class EdtWatchdog {
+
+	private static final Logger logger = Logger.getLogger(EdtWatchdog.class.getName());
+	private static final boolean ENABLED = Boolean.getBoolean("test-example.edt.watchdog");
+	/**
+	 * Duration in milliseconds from which a dispatch is a stall.
+	 */
+	private static final int THRESHOLD = Integer.getInteger("test-example.edt.threshold", 200);
+	/**
+	 * Number of worst stalls kept.
+	 */
+	private static final int WORST_CAPACITY = Integer.getInteger("test-example.edt.worst", 16);
+	private static EdtWatchdog def = null;
+
+	/**
+	 * Markers written by the EDT : number of dispatches, nanoTime of the start of the current dispatch or 0, and running listener.
+	 */
+	private static volatile long dispatchCount = 0;
+	private static volatile long dispatchStart = 0;
+	private static volatile Object currentListener = null;
+	private static volatile Thread edt = null;
+
+	private final long thresholdNanos;
+	private final int worstCapacity;
+	/**
+	 * Worst stalls by decreasing duration. Only replaced by the sampler thread, read without lock.
+	 */
+	private volatile Stall[] worst = new Stall[0];
+	private Thread sampler = null;
+
+	/**
+	 * Creates a watchdog.
+	 *
+	 * @param thresholdMillis : duration in milliseconds from which a dispatch is a stall.
+	 * @param worstCapacity : number of worst stalls kept.
+	 */
+	EdtWatchdog(int thresholdMillis, int worstCapacity) {
+		this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+		this.worstCapacity = worstCapacity;
+	}
+
+	/**
+	 * Gets the watchdog of the application.
+	 *
+	 * @return the default watchdog.
+	 */
+	public static synchronized EdtWatchdog getDefault() {
+		if (def == null) {
+			def = new EdtWatchdog(THRESHOLD, WORST_CAPACITY);
+		}
+		return def;
+	}
+
+	/**
+	 * Checks if the watchdog is enabled by the system property.
+	 *
+	 * @return true if enabled.
+	 */
+	public static boolean isEnabled() {
+		return ENABLED;
+	}
+
+	/**
+	 * Starts watching the EDT, if the watchdog is enabled : the event queue is replaced with one writing the dispatch markers, and the sampler
+	 * thread is started. Only the first call has an effect.
+	 */
+	public synchronized void start() {
+		if (!ENABLED || sampler != null) {
+			return;
+		}
+		Toolkit.getDefaultToolkit().getSystemEventQueue().push(new WatchedEventQueue());
+		sampler = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				sample();
+			}
+		}, "EDT watchdog");
+		sampler.setDaemon(true);
+		sampler.setPriority(Thread.MAX_PRIORITY);
+		sampler.start();
+		logger.log(Level.INFO, "Watching the EDT, stall threshold {0} ms", TimeUnit.NANOSECONDS.toMillis(thresholdNanos));
+	}
+
+	/**
+	 * Marks the start of a listener, to be called by the instrumented listeners before their work.
+	 *
+	 * @param listener : running listener.
+	 * @return the marker to give to {@link #exit(Object)}.
+	 */
+	public static Object enter(Object listener) {
+		if (!ENABLED || !EventQueue.isDispatchThread()) {
+			return null;
+		}
+		Object previous = currentListener;
+		currentListener = listener;
+		return previous;
+	}
+
+	/**
+	 * Marks the end of a listener.
+	 *
+	 * @param previous : marker returned by {@link #enter(Object)}.
+	 */
+	public static void exit(Object previous) {
+		if (ENABLED && EventQueue.isDispatchThread()) {
+			currentListener = previous;
+		}
+	}
+
+	/**
+	 * Gets the worst stalls detected.
+	 *
+	 * @return the stalls, by decreasing duration.
+	 */
+	public List<Stall> getWorstStalls() {
+		return Collections.unmodifiableList(Arrays.asList(worst));
+	}
+
+	/**
+	 * Samples the markers until the thread is interrupted. A blocked dispatch is captured once, its duration is updated while it lasts.
+	 */
+	private void sample() {
+		long sleepMillis = Math.max(10, TimeUnit.NANOSECONDS.toMillis(thresholdNanos) / 4);
+		long capturedCount = -1;
+		Stall captured = null;
+		while (!Thread.currentThread().isInterrupted()) {
+			try {
+				Thread.sleep(sleepMillis);
+			} catch (InterruptedException ex) {
+				return;
+			}
+			long start = dispatchStart;
+			long count = dispatchCount;
+			Object listener = currentListener;
+			if (start == 0 || start != dispatchStart) {
+				// Idle, or another dispatch started while reading
+				continue;
+			}
+			long duration = System.nanoTime() - start;
+			if (duration < thresholdNanos) {
+				continue;
+			}
+			if (count != capturedCount) {
+				Thread thread = edt;
+				capturedCount = count;
+				captured = new Stall(listener != null ? listener.getClass().getName() : null,
+						thread != null ? thread.getStackTrace() : new StackTraceElement[0], System.currentTimeMillis());
+				captured.durationNanos = duration;
+				StartupProfiler.getDefault().count("edt.stalls", 1);
+				if (logger.isLoggable(Level.WARNING)) {
+					Exception stack = new Exception("EDT blocked for " + TimeUnit.NANOSECONDS.toMillis(duration) + " ms"
+							+ (captured.listener != null ? " in " + captured.listener : ""));
+					stack.setStackTrace(captured.stack);
+					logger.log(Level.WARNING, stack.getMessage(), stack);
+				}
+			} else {
+				captured.durationNanos = duration;
+			}
+			offer(captured);
+		}
+	}
+
+	/**
+	 * Places a stall among the worst ones, if it is worse than the best of them.
+	 */
+	private void offer(Stall stall) {
+		List<Stall> stalls = new ArrayList<>(Arrays.asList(worst));
+		if (!stalls.contains(stall)) {
+			if (stalls.size() >= worstCapacity) {
+				Stall best = stalls.get(stalls.size() - 1);
+				if (best.durationNanos >= stall.durationNanos) {
+					return;
+				}
+				stalls.remove(stalls.size() - 1);
+			}
+			stalls.add(stall);
+		}
+		Collections.sort(stalls, new Comparator<Stall>() {
+			@Override
+			public int compare(Stall s1, Stall s2) {
+				return Long.compare(s2.durationNanos, s1.durationNanos);
+			}
+		});
+		worst = stalls.toArray(new Stall[stalls.size()]);
+	}
+
+	/**
+	 * Event queue writing the dispatch markers.
+	 */
+	private static final class WatchedEventQueue extends EventQueue {
+
+		@Override
+		protected void dispatchEvent(AWTEvent event) {
+			Thread current = Thread.currentThread();
+			if (edt != current) {
+				edt = current;
+			}
+			dispatchCount++;
+			dispatchStart = System.nanoTime();
+			try {
+				super.dispatchEvent(event);
+			} finally {
+				// A nested dispatch, for instance by a modal dialog, also ends the watch of the outer one.
+				dispatchStart = 0;
+			}
+		}
+	}
+
+	/**
+	 * Dispatch which blocked the EDT longer than the threshold.
+	 */
+	public static final class Stall {
+
+		private final String listener;
+		private final StackTraceElement[] stack;
+		private final long timestamp;
+		private volatile long durationNanos;
+
+		Stall(String listener, StackTraceElement[] stack, long timestamp) {
+			this.listener = listener;
+			this.stack = stack;
+			this.timestamp = timestamp;
+		}
+
+		/**
+		 * Gets the class of the instrumented listener which was running.
+		 *
+		 * @return the class name, or null if no instrumented listener was running.
+		 */
+		public String getListener() {
+			return listener;
+		}
+
+		/**
+		 * Gets the stack of the EDT when the stall was captured.
+		 *
+		 * @return the stack.
+		 */
+		public StackTraceElement[] getStack() {
+			return stack.clone();
+		}
+
+		public long getTimestamp() {
+			return timestamp;
+		}
+
+		/**
+		 * Gets the duration of the stall, as last sampled.
+		 *
+		 * @return the duration in milliseconds.
+		 */
+		public long getDurationMillis() {
+			return TimeUnit.NANOSECONDS.toMillis(durationNanos);
+		}
+	}
+}
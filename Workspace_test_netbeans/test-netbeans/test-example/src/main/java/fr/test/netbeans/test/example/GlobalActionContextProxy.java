@@ -1,20 +1,18 @@
 package fr.test.netbeans.test.example;
 
+import java.awt.Toolkit;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
-import java.io.File;
-import java.io.FilenameFilter;
 import java.io.IOException;
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.util.Collection;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Level;
 import java.util.logging.Logger;
-import javax.swing.AbstractAction;
-import javax.swing.Icon;
 import javax.swing.ImageIcon;
 import javax.swing.SwingUtilities;
 import org.apache.commons.configuration.Configuration;
-import org.netbeans.api.project.FileOwnerQuery;
 import org.netbeans.api.project.Project;
 import org.netbeans.api.project.ProjectUtils;
 import org.netbeans.api.project.ui.OpenProjects;
@@ -22,16 +20,15 @@ import org.netbeans.modules.openide.windows.GlobalActionContextImpl;
 import org.openide.explorer.ExplorerManager;
 import org.openide.filesystems.FileObject;
 import org.openide.filesystems.FileUtil;
-import org.openide.loaders.DataObject;
 import org.openide.nodes.Node;
 import org.openide.util.ContextGlobalProvider;
 import org.openide.util.Exceptions;
 import org.openide.util.Lookup;
 import org.openide.util.Lookup.Result;
-import org.openide.util.Lookup.Template;
 import org.openide.util.LookupEvent;
 import org.openide.util.LookupListener;
 import org.openide.util.NbBundle.Messages;
+import org.openide.util.RequestProcessor;
 import org.openide.util.lookup.AbstractLookup;
 import org.openide.util.lookup.InstanceContent;
 import org.openide.util.lookup.ProxyLookup;
@@ -75,6 +72,10 @@ public class GlobalActionContextProxy implements ContextGlobalProvider {
 	 * The actual proxyLookup returned by this class
 	 */
 	private Lookup proxyLookup;
+	/**
+	 * The projects currently in the content, guarded by the lock
+	 */
+	private List<Project> proxyProjects = Collections.emptyList();
 	/**
 	 * A lookup result that we listen to for Projects
 	 */
@@ -86,7 +87,15 @@ public class GlobalActionContextProxy implements ContextGlobalProvider {
 	/**
 	 * Listener for changes on the TopComponent registry
 	 */
-	private final PropertyChangeListener registryListener;
+	private final RegistryPropertyChangeListener registryListener;
+	/**
+	 * A lookup result that we listen to for configuration changes
+	 */
+	private final Result<ConfigurationSnapshot> resultConfiguration;
+	/**
+	 * Listener for changes resultConfiguration
+	 */
+	private final LookupListener configurationListener;
 	/**
 	 * The last project selected
 	 */
@@ -97,6 +106,22 @@ public class GlobalActionContextProxy implements ContextGlobalProvider {
 	 */
 	private final Object lock = new Object();
 	private static final Logger logger = Logger.getLogger(GlobalActionContextProxy.class.getName());
+	/**
+	 * Processor resolving the projects off the EDT
+	 */
+	private static final RequestProcessor RP = new RequestProcessor(GlobalActionContextProxy.class.getName(), 1);
+	/**
+	 * Delay in milliseconds without activation before the project of the activated nodes is resolved
+	 */
+	private static final int ACTIVATION_DELAY = 150;
+	/**
+	 * Maximum number of times the first frame report waits for the pending events to be dispatched
+	 */
+	private static final int FIRST_FRAME_MAX_WAITS = 100;
+	/**
+	 * Time in milliseconds between the JVM start and the first interactive frame, or -1
+	 */
+	private static volatile long firstFrameMillis = -1;
 	public static final String PROJECT_LOGICAL_TAB_ID = "projectTabLogical_tc";
 	public static final String PROJECT_FILE_TAB_ID = "projectTab_tc";
 
@@ -104,6 +129,7 @@ public class GlobalActionContextProxy implements ContextGlobalProvider {
 		"LBL_EditorShapePaletteTopComponent=Shapes"
 	})
 	public GlobalActionContextProxy() {
+		StartupProfiler.Span constructorSpan = StartupProfiler.getDefault().start("GlobalActionContextProxy.<init>");
 		this.content = new InstanceContent();
 		// The default GlobalContextProvider
 		this.globalContextProvider = new GlobalActionContextImpl();
@@ -118,158 +144,149 @@ public class GlobalActionContextProxy implements ContextGlobalProvider {
 		this.resultListener = new LookupListenerImpl();
 		this.resultProjects.addLookupListener(this.resultListener);
 
+		// Monitor the configuration reloads
+		this.resultConfiguration = CentralLookup.getDefault().lookupResult(ConfigurationSnapshot.class);
+		this.configurationListener = new ConfigurationListenerImpl();
+		this.resultConfiguration.addLookupListener(this.configurationListener);
+
 		WindowManager.getDefault().invokeWhenUIReady(new Runnable() {
 			@Override
 			public void run() {
-				// Hack to force the current Project selection when the application starts up
-				TopComponent tc = WindowManager.getDefault().findTopComponent(PROJECT_LOGICAL_TAB_ID);
-				if (tc != null) {
-					tc.requestActive();
-				}
+				StartupProfiler.Span uiReadySpan = StartupProfiler.getDefault().start("GlobalActionContextProxy.uiReady");
+				// Resolves the current Project selection when the application starts up, without activating the Projects tab
+				registryListener.resolveSelection();
 				displayShapePalette();
+				reportFirstFrame();
+				uiReadySpan.end();
 			}
 		});
+		constructorSpan.end();
 	}
 
 	/**
-	 * Displays the shape palette.
+	 * Gets the time between the JVM start and the first interactive frame : the first time the event queue was empty once the UI was ready.
+	 *
+	 * @return the time in milliseconds, or -1 if the first frame was not reached yet.
 	 */
-	private void displayShapePalette() {
+	public static long getFirstFrameMillis() {
+		return firstFrameMillis;
+	}
+
+	/**
+	 * Measures and reports the time to the first interactive frame, once the events queued while the UI was made ready are dispatched.
+	 */
+	private void reportFirstFrame() {
 		SwingUtilities.invokeLater(new Runnable() {
+			private int waits = 0;
 
 			@Override
 			public void run() {
-				Configuration configuration = CentralLookup.getDefault().lookup(Configuration.class);
-				if (configuration.getBoolean("withShapes", false) == true) {
-					// Adds to Menu.
-					FileObject menuFolder = FileUtil.getConfigFile("Menu/Window");
-					try {
-						registerAction(EditorShapeTopComponent.class, Bundle.LBL_EditorShapePaletteTopComponent(), null, menuFolder, 333);
-					} catch (IOException ex) {
-						Exceptions.printStackTrace(ex);
-					}
-
-					// Adds to left dock.
-					if (!isTopComponentInUserDirCache(EditorShapeTopComponent.class)) {
-						EditorShapeTopComponent tcPalette = new EditorShapeTopComponent();
-						Mode leftSideMode = WindowManager.getDefault().findMode("leftSlidingSide");
-						leftSideMode.dockInto(tcPalette);
-						tcPalette.open();
-					}
-				} else {
-					// Removes the file from the cache : avoid it to be reopened by the persistence manager.
-					removeTopComponentInUserDirCache(EditorShapeTopComponent.class);
+				if (Toolkit.getDefaultToolkit().getSystemEventQueue().peekEvent() != null && ++waits < FIRST_FRAME_MAX_WAITS) {
+					// Events are still pending : waits after them.
+					SwingUtilities.invokeLater(this);
+					return;
 				}
+				firstFrameMillis = ManagementFactory.getRuntimeMXBean().getUptime();
+				StartupProfiler.getDefault().mark("firstFrame");
+				StartupProfiler.getDefault().exportLater();
+				logger.log(Level.INFO, "First interactive frame {0} ms after the JVM start", firstFrameMillis);
 			}
 		});
-
 	}
 
 	/**
-	 * Removes a component in the userdir cache of Netbeans.
-	 *
-	 * @param <T> : child class of TopComponent.
-	 * @param classType : class type.
+	 * Displays the shape palette. The palette is docked as a placeholder, it is only constructed the first time it is shown.
 	 */
-	private <T extends TopComponent> void removeTopComponentInUserDirCache(final Class<T> classType) {
-		// Gets the directory which contains cache on Components.
-		Path compDirPath = getUserDirComponentsSettingPath();
-
-		// It the directory exists, removes the files referencing the component.
-		File compDirFile = compDirPath.toFile();
-		if (compDirFile.exists()) {
-			// Gets the files referencing the component.
-			File[] compFiles = compDirFile.listFiles(new FilenameFilter() {
-				@Override
-				public boolean accept(File dir, String name) {
-					StringBuilder filenameMatcher = new StringBuilder("^");
-					filenameMatcher.append(classType.getSimpleName());
-					filenameMatcher.append("(_\\d*)?");
-					filenameMatcher.append(".settings$");
-					return name != null && name.matches(filenameMatcher.toString());
-				}
-			});
+	private void displayShapePalette() {
+		SwingUtilities.invokeLater(new Runnable() {
 
-			// Removes the files referencing the component.
-			if (compFiles != null) {
-				for (int i = compFiles.length - 1; i >= 0; i--) {
-					File compFile = compFiles[i];
-					compFile.delete();
+			@Override
+			public void run() {
+				StartupProfiler.Span span = StartupProfiler.getDefault().start("GlobalActionContextProxy.displayShapePalette");
+				try {
+					displayShapePaletteNow();
+				} finally {
+					span.end();
+					// Deferred while the configuration loads, this span may end after the first frame was exported.
+					StartupProfiler.getDefault().exportLater();
 				}
 			}
-		}
+		});
+
 	}
 
 	/**
-	 * Checks if a component appears in the userdir cache of Netbeans.
-	 *
-	 * @param <T> : child class of TopComponent.
-	 * @param classType : class type.
-	 * @return true if the component is in the cache, false otherwise.
+	 * Displays or hides the shape palette according to the configuration. Must be called on the EDT.
 	 */
-	private <T extends TopComponent> boolean isTopComponentInUserDirCache(final Class<T> classType) {
-		boolean isInCache = false;
-
-		// Gets the directory which contains cache on Components.
-		Path compDirPath = getUserDirComponentsSettingPath();
-
-		// It the directory exists, checks if the component has already been opened.
-		File compDirFile = compDirPath.toFile();
-		if (compDirFile.exists()) {
-			// Gets the files referencing the component.
-			File[] compFiles = compDirFile.listFiles(new FilenameFilter() {
+	private void displayShapePaletteNow() {
+		Configuration configuration = CentralLookup.getDefault().lookup(Configuration.class);
+		if (configuration instanceof ConfigurationLoader.PendingConfiguration) {
+			// The configuration is still loaded in background : displays the palette once it is published.
+			((ConfigurationLoader.PendingConfiguration) configuration).whenLoaded(new Runnable() {
 				@Override
-				public boolean accept(File dir, String name) {
-					StringBuilder filenameMatcher = new StringBuilder("^");
-					filenameMatcher.append(classType.getSimpleName());
-					filenameMatcher.append("(_\\d*)?");
-					filenameMatcher.append(".settings$");
-					return name != null && name.matches(filenameMatcher.toString());
+				public void run() {
+					displayShapePalette();
 				}
 			});
+			return;
+		}
+		if (configuration == null) {
+			logger.warning("displayShapePalette: no configuration available");
+			return;
+		}
+		if (configuration.getBoolean("withShapes", false) == true) {
+			// Adds to Menu.
+			FileObject menuFolder = FileUtil.getConfigFile("Menu/Window");
+			try {
+				new ActionRegistrationBatch(menuFolder)
+						.add(EditorShapeTopComponent.class, Bundle.LBL_EditorShapePaletteTopComponent(), null, 333)
+						.commit();
+			} catch (IOException ex) {
+				Exceptions.printStackTrace(ex);
+			}
 
-			// If there is at least 1 file, the component has already been opened.
-			if (compFiles != null && compFiles.length > 0) {
-				isInCache = true;
+			// Adds to left dock.
+			if (!isTopComponentInUserDirCache(EditorShapeTopComponent.class)
+					&& DeferredTopComponent.findOpened(EditorShapeTopComponent.class) == null) {
+				TopComponent tcPalette = new DeferredTopComponent(EditorShapeTopComponent.class,
+						Bundle.CTL_EditorShapeTopComponent(), Bundle.HINT_EditorShapeTopComponent());
+				Mode leftSideMode = WindowManager.getDefault().findMode("leftSlidingSide");
+				leftSideMode.dockInto(tcPalette);
+				tcPalette.open();
+			}
+		} else {
+			// Closes the palette if the configuration changed while it was open.
+			for (TopComponent openComponent : new ArrayList<>(TopComponentIndex.getDefault().findAll(EditorShapeTopComponent.class))) {
+				openComponent.close();
+			}
+			DeferredTopComponent placeholder = DeferredTopComponent.findOpened(EditorShapeTopComponent.class);
+			if (placeholder != null) {
+				placeholder.close();
 			}
+			// Removes the file from the cache : avoid it to be reopened by the persistence manager.
+			removeTopComponentInUserDirCache(EditorShapeTopComponent.class);
 		}
-		return isInCache;
 	}
 
 	/**
-	 * Gets the path of the component directory in the userdir. The directory contains the settings files for the TopComponent of Netbeans. This is usefull to
-	 * get the state when the application stopped.
+	 * Removes a component in the userdir cache of Netbeans.
 	 *
-	 * @return path of the component directory in the userdir.
+	 * @param <T> : child class of TopComponent.
+	 * @param classType : class type.
 	 */
-	private Path getUserDirComponentsSettingPath() {
-		String userDir = System.getProperty("netbeans.user");
-		Path compDirPath = Paths.get(userDir).resolve("config/Windows2Local/Components/");
-		return compDirPath;
+	private <T extends TopComponent> void removeTopComponentInUserDirCache(final Class<T> classType) {
+		UserDirComponentsIndex.getDefault().remove(classType.getSimpleName());
 	}
 
 	/**
-	 * Registers menu action.
+	 * Checks if a component appears in the userdir cache of Netbeans.
 	 *
+	 * @param <T> : child class of TopComponent.
 	 * @param classType : class type.
-	 * @param menuDisplayName : menu name.
-	 * @param icon : icon.
-	 * @param menuFolder : menu folder.
-	 * @throws IOException : exception when adding the menu item.
+	 * @return true if the component is in the cache, false otherwise.
 	 */
-	private void registerAction(Class<? extends TopComponent> classType, String menuDisplayName, Icon icon, FileObject menuFolder, int position) throws IOException {
-
-		// Create if missing. 
-		FileObject menu = menuFolder.getFileObject(classType.getSimpleName(), "instance");
-
-		// With this approach I noticed that I only need to create the instance the first time. 
-		if (menu == null) {
-			menu = menuFolder.createData(classType.getSimpleName(), "instance");
-			AbstractAction action = new MenuAction(classType, menuDisplayName, icon);
-			menu.setAttribute("instanceCreate", action);
-			menu.setAttribute("instanceClass", action.getClass().getName());
-			menu.setAttribute("position", position);
-		}
+	private <T extends TopComponent> boolean isTopComponentInUserDirCache(final Class<T> classType) {
+		return UserDirComponentsIndex.getDefault().contains(classType.getSimpleName());
 	}
 
 	/**
@@ -290,13 +307,42 @@ public class GlobalActionContextProxy implements ContextGlobalProvider {
 
 	/**
 	 * This class populates the proxy lookup with the currently selected project found in the Projects tab.
+	 *
+	 * The activations are coalesced : the activated nodes are only recorded on the EDT, the project owning them is resolved off the EDT once no
+	 * other activation happened for ACTIVATION_DELAY ms, and only the lookup update is made back on the EDT.
 	 */
 	private class RegistryPropertyChangeListener implements PropertyChangeListener {
 
 		private TopComponent projectsTab = null;
+		/**
+		 * Nodes of the latest activation, waiting for their project to be resolved
+		 */
+		private volatile Node[] pendingNodes = null;
+		/**
+		 * Counter of the activations with nodes, only modified on the EDT
+		 */
+		private volatile int activation = 0;
+		/**
+		 * Task resolving the project of the pending nodes
+		 */
+		private final RequestProcessor.Task resolveTask = RP.create(new Runnable() {
+			@Override
+			public void run() {
+				resolvePendingNodes();
+			}
+		});
 
 		@Override
 		public void propertyChange(PropertyChangeEvent event) {
+			Object watched = EdtWatchdog.enter(this);
+			try {
+				activationChanged(event);
+			} finally {
+				EdtWatchdog.exit(watched);
+			}
+		}
+
+		private void activationChanged(PropertyChangeEvent event) {
 			if (event.getPropertyName().equals(TopComponent.Registry.PROP_ACTIVATED_NODES)
 					|| event.getPropertyName().equals(TopComponent.Registry.PROP_ACTIVATED)) {
 				// Get a reference to the Projects window
@@ -320,28 +366,73 @@ public class GlobalActionContextProxy implements ContextGlobalProvider {
 					ExplorerManager em = ((ExplorerManager.Provider) projectsTab).getExplorerManager();
 					nodes = em.getSelectedNodes();
 				}
-				// Find and use the first project that owns a node
+				// Resolve the project once the activations settle down
 				if (nodes != null) {
-					for (Node node : nodes) {
-						Project project = findProjectThatOwnsNode(node);
-						if (project != null) {
-							synchronized (lock) {
-								// Remember this project for when the Project Tab goes out of focus
-								lastProject = project;
-
-								// Add this project to the proxy if it's not in the global lookup
-								if (!resultProjects.allInstances().contains(lastProject)) {
-									logger.finer("propertyChange: Found project ["
-											+ ProjectUtils.getInformation(lastProject).getDisplayName()
-											+ "] that owns current node.");
-									updateProjectLookup(lastProject);
-								}
-							}
-							break;
+					pendingNodes = nodes;
+					activation++;
+					resolveTask.schedule(ACTIVATION_DELAY);
+				}
+			}
+		}
+
+		/**
+		 * Resolves the project of the nodes selected in the Projects window, whether it is activated or not. Must be called on the EDT.
+		 */
+		void resolveSelection() {
+			TopComponent tc = WindowManager.getDefault().findTopComponent(PROJECT_LOGICAL_TAB_ID);
+			if (!(tc instanceof ExplorerManager.Provider)) {
+				return;
+			}
+			projectsTab = tc;
+			Node[] nodes = ((ExplorerManager.Provider) tc).getExplorerManager().getSelectedNodes();
+			if (nodes.length > 0) {
+				pendingNodes = nodes;
+				activation++;
+				resolveTask.schedule(0);
+			}
+		}
+
+		/**
+		 * Finds the first project that owns a pending node, then updates the lookup on the EDT unless a later activation happened meanwhile.
+		 */
+		private void resolvePendingNodes() {
+			final int resolvedActivation = activation;
+			Node[] nodes = pendingNodes;
+			if (nodes == null) {
+				return;
+			}
+			Project owner = null;
+			for (Node node : nodes) {
+				owner = findProjectThatOwnsNode(node);
+				if (owner != null) {
+					break;
+				}
+			}
+			if (owner == null) {
+				return;
+			}
+			final Project project = owner;
+			SwingUtilities.invokeLater(new Runnable() {
+				@Override
+				public void run() {
+					if (resolvedActivation != activation) {
+						// A later activation is being resolved
+						return;
+					}
+					synchronized (lock) {
+						// Remember this project for when the Project Tab goes out of focus
+						lastProject = project;
+
+						// Add this project to the proxy if it's not in the global lookup
+						if (!resultProjects.allInstances().contains(lastProject)) {
+							logger.finer("propertyChange: Found project ["
+									+ ProjectUtils.getInformation(lastProject).getDisplayName()
+									+ "] that owns current node.");
+							updateProjectLookup(lastProject);
 						}
 					}
 				}
-			}
+			});
 		}
 	}
 
@@ -352,6 +443,15 @@ public class GlobalActionContextProxy implements ContextGlobalProvider {
 
 		@Override
 		public void resultChanged(LookupEvent event) {
+			Object watched = EdtWatchdog.enter(this);
+			try {
+				projectsChanged();
+			} finally {
+				EdtWatchdog.exit(watched);
+			}
+		}
+
+		private void projectsChanged() {
 			logger.finer("resultChanged: Entered...");
 			synchronized (lock) {
 				// First, handle projects in the principle lookup
@@ -388,14 +488,35 @@ public class GlobalActionContextProxy implements ContextGlobalProvider {
 		}
 	}
 
+	/**
+	 * This class listens for the configuration snapshots, and displays or hides the shape palette when the configuration is reloaded.
+	 */
+	private class ConfigurationListenerImpl implements LookupListener {
+
+		/**
+		 * Revision of the last snapshot handled, so each reload is handled once.
+		 */
+		private long handledRevision = 1;
+
+		@Override
+		public synchronized void resultChanged(LookupEvent event) {
+			// The first snapshot is handled when the UI is ready.
+			ConfigurationSnapshot snapshot = ConfigurationService.getDefault().getSnapshot();
+			if (snapshot != null && snapshot.getRevision() > handledRevision) {
+				handledRevision = snapshot.getRevision();
+				if (snapshot.isChanged("withShapes")) {
+					logger.fine("resultChanged: withShapes changed, updating the shape palette");
+					displayShapePalette();
+				}
+			}
+		}
+	}
+
 	/**
 	 * Unconditionally clears the project lookup.
 	 */
 	private void clearProjectLookup() {
-		Collection<? extends Project> projects = projectLookup.lookupAll(Project.class);
-		for (Project project : projects) {
-			content.remove(project);
-		}
+		setProjectLookup(Collections.<Project>emptyList());
 	}
 
 	/**
@@ -407,35 +528,37 @@ public class GlobalActionContextProxy implements ContextGlobalProvider {
 		if (project == null) {
 			throw new IllegalArgumentException("project cannot be null.");
 		}
-		// Add the project if an instance of it is not already in the lookup
-		Template<Project> template = new Template<Project>(Project.class, null, project);
-		if (projectLookup.lookupItem(template) == null) {
-			clearProjectLookup();
-			content.add(project);
+		// Replace the projects only if this one is not already the content of the lookup
+		if (setProjectLookup(Collections.singletonList(project))) {
 			logger.fine("updateProjectLookup: added ["
-					+ ProjectUtils.getInformation(lastProject).getDisplayName()
+					+ ProjectUtils.getInformation(project).getDisplayName()
 					+ "] to the proxy lookup.");
 		}
 	}
 
 	/**
-	 * Recursively searches the node hierarchy for the project that owns a node.
+	 * Replaces the projects of the project lookup in a single change, so the listeners of the global context receive a single event. Nothing is
+	 * fired if the projects are already the content of the lookup. Must be called while holding the lock.
+	 *
+	 * @param projects : projects to place in the project lookup.
+	 * @return true if the content of the lookup changed.
+	 */
+	private boolean setProjectLookup(List<Project> projects) {
+		if (projects.equals(proxyProjects)) {
+			return false;
+		}
+		proxyProjects = projects;
+		content.set(projects, null);
+		return true;
+	}
+
+	/**
+	 * Searches the node hierarchy for the project that owns a node. The owners are cached, see {@link ProjectOwnerCache}.
 	 *
 	 * @param node a node to test for a Project in its or its ancestor's lookup.
 	 * @return the Project that owns the node, or null if not found
 	 */
 	private static Project findProjectThatOwnsNode(Node node) {
-		if (node != null) {
-			Project project = node.getLookup().lookup(Project.class);
-			if (project == null) {
-				DataObject dataObject = node.getLookup().lookup(DataObject.class);
-				if (dataObject != null) {
-					project = FileOwnerQuery.getOwner(dataObject.getPrimaryFile());
-				}
-			}
-			return (project == null) ? findProjectThatOwnsNode(node.getParentNode()) : project;
-		} else {
-			return null;
-		}
+		return ProjectOwnerCache.getDefault().findOwner(node);
 	}
 }
@@ -1,67 +1,115 @@
 package fr.test.netbeans.test.example;
 
 import java.io.File;
-import java.net.MalformedURLException;
-import java.net.URL;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
-import org.apache.commons.configuration.Configuration;
-import org.apache.commons.configuration.ConfigurationException;
-import org.apache.commons.configuration.DefaultConfigurationBuilder;
+import java.util.concurrent.TimeUnit;
 import org.apache.log4j.LogManager;
 import org.apache.log4j.Logger;
 import org.netbeans.Module;
 import org.openide.modules.InstalledFileLocator;
 import org.openide.modules.ModuleInfo;
 import org.openide.modules.ModuleInstall;
+import org.openide.modules.Places;
 import org.openide.util.Lookup;
-import org.openide.util.Utilities;
+import org.openide.util.RequestProcessor;
 
 public class Installer extends ModuleInstall {
 
+	/**
+	 * Cache file of the module JAR index, relative to the cache directory of the userdir.
+	 */
+	private static final String MODULE_JAR_INDEX_CACHE = "test-example/module-jar-index.dat";
+
+	/**
+	 * Maximum time in milliseconds the module restoration may take on the startup thread.
+	 */
+	private static final long STARTUP_BUDGET_MS = Long.getLong("test-example.startup.budget", 100);
+
+	/**
+	 * Name of the profiled span of the module restoration.
+	 */
+	private static final String RESTORED_SPAN = "Installer.restored";
+
+	private static final RequestProcessor RP = new RequestProcessor(Installer.class.getName(), 1);
+
 	private final Logger logger = LogManager.getLogger(getClass());
 
 	@Override
 	public void restored() {
+		long start = System.nanoTime();
+		// Watches the EDT from the start, when enabled.
+		EdtWatchdog.getDefault().start();
+		StartupProfiler profiler = StartupProfiler.getDefault();
+		profiler.setBudget(RESTORED_SPAN, STARTUP_BUDGET_MS);
+		StartupProfiler.Span configurationSpan = profiler.start("Installer.configuration");
 		File editorConfiguration = InstalledFileLocator.getDefault().locate(
 				"conf/config.xml",
 				"test-example",
 				false);
 
 		logger.info("Editor config file = " + editorConfiguration);
-		DefaultConfigurationBuilder builder = new DefaultConfigurationBuilder();
-		builder.setFile(editorConfiguration);
-		try {
-			Configuration configuration = builder.getConfiguration(true);
-			synchronized (CentralLookup.getDefault()) {
-				CentralLookup.getDefault().add(configuration);
-			}
-		} catch (ConfigurationException e) {
-			logger.error(e.getMessage(), e);
-		}
+		// The configuration is parsed in background, a placeholder is published meanwhile.
+		new ConfigurationLoader(editorConfiguration).start();
+		configurationSpan.end();
 
-		List<URL> modulesUrls = new ArrayList<>();
-		List<ClassLoader> modulesClassLoaders = new ArrayList<>();
+		// Collects the JARs of the enabled modules, the index is built in background.
+		StartupProfiler.Span scanSpan = profiler.start("Installer.moduleScan");
+		final List<File> modulesJarFiles = new ArrayList<>();
 		Collection<? extends ModuleInfo> modules = Lookup.getDefault().lookupAll(ModuleInfo.class);
 		for (ModuleInfo module : modules) {
 			if (module instanceof Module && module.isEnabled()) {
-				try {
-					List<File> moduleJarFiles = ((Module) module).getAllJars();
-					if (moduleJarFiles != null) {
-						for (File moduleJarFile : moduleJarFiles) {
-							if (moduleJarFile.isFile()) {
-								modulesUrls.add(new URL("jar:" + Utilities.toURI(moduleJarFile) + "!/"));
-							}
+				List<File> moduleJarFiles = ((Module) module).getAllJars();
+				if (moduleJarFiles != null) {
+					for (File moduleJarFile : moduleJarFiles) {
+						if (moduleJarFile.isFile()) {
+							modulesJarFiles.add(moduleJarFile);
 						}
 					}
-					modulesClassLoaders.add(module.getClassLoader());
-				} catch (MalformedURLException ex) {
-					// ignore this module
-					logger.warn("Module ignored due to this exception:" + ex.getMessage(), ex);
 				}
 			}
 		}
+		profiler.count("modules.jars", modulesJarFiles.size());
+		scanSpan.end();
+		buildModuleJarIndex(modulesJarFiles);
 
+		long end = System.nanoTime();
+		profiler.record(RESTORED_SPAN, start, end);
+		profiler.exportLater();
+		long elapsedMs = TimeUnit.NANOSECONDS.toMillis(end - start);
+		if (elapsedMs > STARTUP_BUDGET_MS) {
+			logger.warn("Module restored in " + elapsedMs + " ms, over the startup budget of " + STARTUP_BUDGET_MS + " ms");
+		} else {
+			logger.info("Module restored in " + elapsedMs + " ms");
+		}
+	}
+
+	/**
+	 * Builds the index of the module JARs on RP and publishes it in the central lookup. The root scan task runs on the RP thread, the tasks it
+	 * forks on the common fork/join pool.
+	 *
+	 * @param modulesJarFiles : JARs of the enabled modules.
+	 */
+	private void buildModuleJarIndex(final List<File> modulesJarFiles) {
+		final Path cacheFile = Places.getCacheSubfile(MODULE_JAR_INDEX_CACHE).toPath();
+		RP.post(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					long start = System.nanoTime();
+					ModuleJarIndex index = ModuleJarIndex.build(modulesJarFiles, cacheFile);
+					long end = System.nanoTime();
+					StartupProfiler.getDefault().record("ModuleJarIndex.build", start, end);
+					StartupProfiler.getDefault().count("modules.jars.scanned", index.getScannedCount());
+					logger.info("Module JAR index built in " + TimeUnit.NANOSECONDS.toMillis(end - start) + " ms ("
+							+ index.getScannedCount() + " scanned / " + index.getJars().size() + " JARs)");
+					CentralLookup.getDefault().add(index);
+				} catch (RuntimeException ex) {
+					logger.error("Cannot build the module JAR index", ex);
+				}
+			}
+		});
 	}
 }
@@ -0,0 +1,59 @@
+package fr.test.netbeans.test.example;
+
+import java.io.InterruptedIOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounds the bandwidth of background writes : the writing thread waits before writing more than allowed.
+ *
+ * @author BGRY
+ */
+final class IoThrottle {
+
+	/**
+	 * Throttle which never waits.
+	 */
+	static final IoThrottle UNLIMITED = new IoThrottle(Long.MAX_VALUE);
+
+	private final long bytesPerSecond;
+	/**
+	 * Time at which the bytes written so far are paid for.
+	 */
+	private long paidUntil = System.nanoTime();
+
+	/**
+	 * Creates a throttle.
+	 *
+	 * @param bytesPerSecond : maximum bandwidth.
+	 */
+	IoThrottle(long bytesPerSecond) {
+		this.bytesPerSecond = bytesPerSecond;
+	}
+
+	/**
+	 * Waits until some bytes can be written.
+	 *
+	 * @param bytes : number of bytes about to be written.
+	 * @throws InterruptedIOException if the thread is interrupted while waiting.
+	 */
+	void acquire(long bytes) throws InterruptedIOException {
+		if (bytesPerSecond == Long.MAX_VALUE) {
+			return;
+		}
+		long waitNanos;
+		synchronized (this) {
+			long now = System.nanoTime();
+			// Up to one second of bandwidth is written without waiting, an idle period gives no more credit.
+			paidUntil = Math.max(paidUntil, now) + TimeUnit.SECONDS.toNanos(bytes) / bytesPerSecond;
+			waitNanos = paidUntil - now - TimeUnit.SECONDS.toNanos(1);
+		}
+		if (waitNanos > 0) {
+			try {
+				TimeUnit.NANOSECONDS.sleep(waitNanos);
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted while throttling a write");
+			}
+		}
+	}
+}
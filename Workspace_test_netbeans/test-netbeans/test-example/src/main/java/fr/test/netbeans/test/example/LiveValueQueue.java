@@ -0,0 +1,154 @@
+package fr.test.netbeans.test.example;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Queue of the live values published by the {@link LiveValueSource}s, which keeps only the latest value of each tag.
+ *
+ * The queue has many producers and one consumer, without lock : a published value replaces the pending value of its tag, and the tag is
+ * pushed on a stack only if it was not already pending. The consumer takes the whole stack at once, so the cost of a drain depends on the
+ * number of changed tags, not on the number of published values.
+ *
+ * @author BGRY
+ */
+public final class LiveValueQueue {
+
+	/**
+	 * Receiver of the drained values.
+	 */
+	public interface Receiver {
+
+		/**
+		 * Called with the latest value of a changed tag.
+		 *
+		 * @param tag : tag of the value.
+		 * @param value : latest value.
+		 */
+		void valueChanged(String tag, Object value);
+	}
+
+	private final ConcurrentMap<String, Channel> channels = new ConcurrentHashMap<>();
+	/**
+	 * Stack of the channels with a pending value.
+	 */
+	private final AtomicReference<Node> pending = new AtomicReference<>();
+	private final LongAdder publishedCount = new LongAdder();
+
+	/**
+	 * Gets the channel of a tag, to publish its values without looking it up each time.
+	 *
+	 * @param tag : tag of the values.
+	 * @return the channel.
+	 */
+	public Channel getChannel(String tag) {
+		Channel channel = channels.get(tag);
+		if (channel == null) {
+			Channel created = new Channel(tag);
+			channel = channels.putIfAbsent(tag, created);
+			if (channel == null) {
+				channel = created;
+			}
+		}
+		return channel;
+	}
+
+	/**
+	 * Publishes a value, from any thread.
+	 *
+	 * @param tag : tag of the value.
+	 * @param value : new value.
+	 */
+	public void publish(String tag, Object value) {
+		getChannel(tag).publish(value);
+	}
+
+	/**
+	 * Gets the number of values published since the creation of the queue.
+	 *
+	 * @return the number of published values.
+	 */
+	public long getPublishedCount() {
+		return publishedCount.sum();
+	}
+
+	/**
+	 * Takes the latest value of each tag changed since the last drain. Only called by the consumer.
+	 *
+	 * @param receiver : receiver of the values, in publication order of the tags.
+	 * @return the number of changed tags.
+	 */
+	public int drain(Receiver receiver) {
+		Node node = pending.getAndSet(null);
+		// The stack is in reverse order
+		Node first = null;
+		while (node != null) {
+			Node next = node.next;
+			node.next = first;
+			first = node;
+			node = next;
+		}
+		int count = 0;
+		for (node = first; node != null; node = node.next) {
+			Channel channel = node.channel;
+			// Cleared before reading the value : a value published meanwhile pushes the channel again
+			channel.queued.set(false);
+			receiver.valueChanged(channel.tag, channel.value.get());
+			count++;
+		}
+		return count;
+	}
+
+	private void push(Channel channel) {
+		Node node = new Node(channel);
+		Node top;
+		do {
+			top = pending.get();
+			node.next = top;
+		} while (!pending.compareAndSet(top, node));
+	}
+
+	/**
+	 * Channel of the values of a tag.
+	 */
+	public final class Channel {
+
+		private final String tag;
+		private final AtomicReference<Object> value = new AtomicReference<>();
+		private final AtomicBoolean queued = new AtomicBoolean(false);
+
+		private Channel(String tag) {
+			this.tag = tag;
+		}
+
+		public String getTag() {
+			return tag;
+		}
+
+		/**
+		 * Publishes a value, from any thread.
+		 *
+		 * @param newValue : new value.
+		 */
+		public void publish(Object newValue) {
+			value.set(newValue);
+			publishedCount.increment();
+			if (!queued.get() && queued.compareAndSet(false, true)) {
+				push(this);
+			}
+		}
+	}
+
+	private static final class Node {
+
+		private final Channel channel;
+		private Node next;
+
+		Node(Channel channel) {
+			this.channel = channel;
+		}
+	}
+}
@@ -0,0 +1,24 @@
+package fr.test.netbeans.test.example;
+
+/**
+ * Source of the live values displayed by the synoptic pages.
+ *
+ * The sources registered in the default lookup are started when a synoptic page is opened. A source publishes the values from its own
+ * threads into the queue it is given, at any rate : only the latest value of each tag is applied to the shapes.
+ *
+ * @author BGRY
+ */
+public interface LiveValueSource {
+
+	/**
+	 * Starts publishing values.
+	 *
+	 * @param queue : queue of the published values.
+	 */
+	void start(LiveValueQueue queue);
+
+	/**
+	 * Stops publishing values.
+	 */
+	void stop();
+}
@@ -1,8 +1,6 @@
 package fr.test.netbeans.test.example;
 
 import java.awt.event.ActionEvent;
-import java.lang.reflect.InvocationTargetException;
-import java.util.Set;
 import javax.swing.AbstractAction;
 import static javax.swing.Action.NAME;
 import javax.swing.Icon;
@@ -38,19 +36,27 @@ public final class MenuAction extends AbstractAction implements Presenter.Menu {
 			public void run() {
 				try {
 					// Checks that the menu is not already open.
-					Set<TopComponent> openComponents = WindowManager.getDefault().getRegistry().getOpened();
-					for (TopComponent openComponent : openComponents) {
-						if (openComponent.getClass().equals(tcClass)) {
-							openComponent.requestActive();
-							return;
+					TopComponentIndex index = TopComponentIndex.getDefault();
+					TopComponent openComponent = index.find(tcClass);
+					if (openComponent != null) {
+						openComponent.requestActive();
+						return;
+					}
+
+					// Replaces the placeholder docked until the component is shown.
+					DeferredTopComponent placeholder = DeferredTopComponent.findOpened(tcClass);
+					if (placeholder != null) {
+						TopComponent topComponent = placeholder.materialize();
+						if (topComponent != null) {
+							topComponent.requestActive();
 						}
+						return;
 					}
 
 					// Opens the menu.
-					//WindowManager.getDefault().findTopComponent(tcClass.)
-					TopComponent topComponent = WindowManager.getDefault().findTopComponent(getIdForTopComponentClass(tcClass));
+					TopComponent topComponent = WindowManager.getDefault().findTopComponent(TopComponentIndex.getPreferredId(tcClass));
 					if (topComponent == null) {
-						topComponent = tcClass.getConstructor().newInstance();
+						topComponent = TopComponentIndex.newInstance(tcClass);
 						if (!topComponent.isOpened()) {
 							Mode leftSideMode = WindowManager.getDefault().findMode("leftSlidingSide");
 							leftSideMode.dockInto(topComponent);
@@ -58,7 +64,7 @@ public final class MenuAction extends AbstractAction implements Presenter.Menu {
 					}
 					topComponent.open();
 					topComponent.requestActive();
-				} catch (NoSuchMethodException | SecurityException | InstantiationException | IllegalAccessException | IllegalArgumentException | InvocationTargetException ex) {
+				} catch (IllegalArgumentException | IllegalStateException ex) {
 					Exceptions.printStackTrace(ex);
 				}
 			}
@@ -66,21 +72,6 @@ public final class MenuAction extends AbstractAction implements Presenter.Menu {
 
 	}
 
-	/**
-	 * Reads the ID in annotation of the component class.
-	 *
-	 * @param classType : class type of the component.
-	 * @return ID for this type of component.
-	 */
-	private String getIdForTopComponentClass(Class<? extends TopComponent> classType) {
-		String preferredId = null;
-		TopComponent.Description idTopComponent = classType.getAnnotation(TopComponent.Description.class);
-		if (idTopComponent != null) {
-			preferredId = idTopComponent.preferredID();
-		}
-		return preferredId;
-	}
-
 	@Override
 
 	public JMenuItem getMenuPresenter() {
@@ -0,0 +1,365 @@
+package fr.test.netbeans.test.example;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RecursiveTask;
+import java.util.jar.JarFile;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.ZipEntry;
+import org.objectweb.asm.AnnotationVisitor;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+/**
+ * Index of the classes and class annotations contained in the JARs of the enabled modules.
+ *
+ * The JARs are scanned in parallel on a fork/join pool with ASM. The result is persisted in a cache file, each JAR being keyed by its path, size and
+ * last modification time : on a warm start only the JARs which changed are scanned again.
+ *
+ * @author BGRY
+ */
+public final class ModuleJarIndex {
+
+	private static final Logger logger = Logger.getLogger(ModuleJarIndex.class.getName());
+	private static final int MAGIC = 0x4D4A4958; // "MJIX"
+	private static final int FORMAT_VERSION = 1;
+	/**
+	 * Number of JARs under which a scan task is not split anymore.
+	 */
+	private static final int SCAN_THRESHOLD = 4;
+	private static final int ASM_FLAGS = ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES;
+
+	/**
+	 * Indexed JARs by absolute path.
+	 */
+	private final Map<String, IndexedJar> jars;
+	/**
+	 * Number of JARs scanned while building this index (the others came from the cache).
+	 */
+	private final int scannedCount;
+
+	private ModuleJarIndex(Map<String, IndexedJar> jars, int scannedCount) {
+		this.jars = Collections.unmodifiableMap(jars);
+		this.scannedCount = scannedCount;
+	}
+
+	/**
+	 * Gets the indexed JARs.
+	 *
+	 * @return indexed JARs, in module order.
+	 */
+	public Collection<IndexedJar> getJars() {
+		return jars.values();
+	}
+
+	/**
+	 * Gets the number of JARs which had to be scanned to build this index.
+	 *
+	 * @return number of JARs not found in the cache.
+	 */
+	public int getScannedCount() {
+		return scannedCount;
+	}
+
+	/**
+	 * Gets the names of the classes annotated with an annotation.
+	 *
+	 * @param annotationClassName : binary name of the annotation class.
+	 * @return names of the annotated classes.
+	 */
+	public List<String> getClassesAnnotatedWith(String annotationClassName) {
+		List<String> classNames = new ArrayList<>();
+		for (IndexedJar jar : jars.values()) {
+			for (ClassMetadata metadata : jar.getClasses()) {
+				if (metadata.getAnnotations().contains(annotationClassName)) {
+					classNames.add(metadata.getClassName());
+				}
+			}
+		}
+		return classNames;
+	}
+
+	/**
+	 * Builds the index of some JARs. The JARs which are unchanged since the cache file was written are not scanned again.
+	 *
+	 * The JARs to scan are split in fork/join tasks : the root task runs on the calling thread, the Installer RequestProcessor, and the tasks it
+	 * forks run on the common fork/join pool.
+	 *
+	 * @param jarFiles : JARs to index.
+	 * @param cacheFile : cache file of the index.
+	 * @return index of the JARs.
+	 */
+	static ModuleJarIndex build(List<File> jarFiles, Path cacheFile) {
+		Map<String, IndexedJar> cached = read(cacheFile);
+
+		// Splits the JARs between the ones up to date in the cache and the ones to scan.
+		Map<String, IndexedJar> indexed = new LinkedHashMap<>();
+		List<File> toScan = new ArrayList<>();
+		for (File jarFile : jarFiles) {
+			String path = jarFile.getAbsolutePath();
+			IndexedJar jar = cached.get(path);
+			if (jar != null && jar.getSize() == jarFile.length() && jar.getLastModified() == jarFile.lastModified()) {
+				indexed.put(path, jar);
+			} else {
+				indexed.put(path, null);
+				toScan.add(jarFile);
+			}
+		}
+
+		if (!toScan.isEmpty()) {
+			for (IndexedJar jar : new ScanTask(toScan, 0, toScan.size()).invoke()) {
+				indexed.put(jar.getPath(), jar);
+			}
+		}
+		// Drops the JARs which could not be read.
+		indexed.values().removeAll(Collections.singleton(null));
+
+		ModuleJarIndex index = new ModuleJarIndex(indexed, toScan.size());
+		if (!toScan.isEmpty() || cached.size() != indexed.size()) {
+			index.write(cacheFile);
+		}
+		return index;
+	}
+
+	/**
+	 * Reads the cache file.
+	 *
+	 * @param cacheFile : cache file of the index.
+	 * @return indexed JARs by path, empty if the cache is missing or unreadable.
+	 */
+	private static Map<String, IndexedJar> read(Path cacheFile) {
+		Map<String, IndexedJar> cached = new LinkedHashMap<>();
+		if (!Files.isRegularFile(cacheFile)) {
+			return cached;
+		}
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(cacheFile)))) {
+			if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+				logger.log(Level.INFO, "Ignoring module JAR index cache with an unknown format: {0}", cacheFile);
+				return cached;
+			}
+			int jarCount = in.readInt();
+			for (int i = 0; i < jarCount; i++) {
+				String path = in.readUTF();
+				long size = in.readLong();
+				long lastModified = in.readLong();
+				int classCount = in.readInt();
+				List<ClassMetadata> classes = new ArrayList<>(classCount);
+				for (int j = 0; j < classCount; j++) {
+					String className = in.readUTF();
+					int annotationCount = in.readUnsignedShort();
+					List<String> annotations = new ArrayList<>(annotationCount);
+					for (int k = 0; k < annotationCount; k++) {
+						annotations.add(in.readUTF());
+					}
+					classes.add(new ClassMetadata(className, annotations));
+				}
+				cached.put(path, new IndexedJar(path, size, lastModified, classes));
+			}
+		} catch (IOException ex) {
+			logger.log(Level.INFO, "Ignoring unreadable module JAR index cache: " + cacheFile, ex);
+			cached.clear();
+		}
+		return cached;
+	}
+
+	/**
+	 * Writes the cache file. The file is written in a temporary file which then replaces the previous one.
+	 *
+	 * @param cacheFile : cache file of the index.
+	 */
+	private void write(Path cacheFile) {
+		try {
+			Files.createDirectories(cacheFile.getParent());
+			Path tmpFile = cacheFile.resolveSibling(cacheFile.getFileName() + ".tmp");
+			try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmpFile)))) {
+				out.writeInt(MAGIC);
+				out.writeInt(FORMAT_VERSION);
+				out.writeInt(jars.size());
+				for (IndexedJar jar : jars.values()) {
+					out.writeUTF(jar.getPath());
+					out.writeLong(jar.getSize());
+					out.writeLong(jar.getLastModified());
+					out.writeInt(jar.getClasses().size());
+					for (ClassMetadata metadata : jar.getClasses()) {
+						out.writeUTF(metadata.getClassName());
+						out.writeShort(metadata.getAnnotations().size());
+						for (String annotation : metadata.getAnnotations()) {
+							out.writeUTF(annotation);
+						}
+					}
+				}
+			}
+			Files.move(tmpFile, cacheFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException ex) {
+			logger.log(Level.WARNING, "Cannot write module JAR index cache: " + cacheFile, ex);
+		}
+	}
+
+	/**
+	 * Scans a JAR.
+	 *
+	 * @param jarFile : JAR to scan.
+	 * @return indexed JAR, or null if the JAR cannot be read.
+	 */
+	private static IndexedJar scan(File jarFile) {
+		// Size and date are read before the content, so a JAR modified while scanned is scanned again next time.
+		long size = jarFile.length();
+		long lastModified = jarFile.lastModified();
+		List<ClassMetadata> classes = new ArrayList<>();
+		try (JarFile jar = new JarFile(jarFile, false)) {
+			Enumeration<? extends ZipEntry> zipEntries = jar.entries();
+			while (zipEntries.hasMoreElements()) {
+				ZipEntry zipEntry = zipEntries.nextElement();
+				if (!zipEntry.isDirectory() && zipEntry.getName().endsWith(".class")) {
+					try (InputStream in = jar.getInputStream(zipEntry)) {
+						MetadataVisitor visitor = new MetadataVisitor();
+						new ClassReader(in).accept(visitor, ASM_FLAGS);
+						classes.add(new ClassMetadata(visitor.className, visitor.annotations));
+					} catch (RuntimeException ex) {
+						// ASM fails on class files more recent than it supports: ignores the class.
+						logger.log(Level.FINE, "Cannot read class " + zipEntry.getName() + " in " + jarFile, ex);
+					}
+				}
+			}
+		} catch (IOException ex) {
+			logger.log(Level.INFO, "Cannot index module JAR: " + jarFile, ex);
+			return null;
+		}
+		return new IndexedJar(jarFile.getAbsolutePath(), size, lastModified, classes);
+	}
+
+	/**
+	 * Task scanning a range of JARs, split in two halves until the range is small enough.
+	 */
+	private static final class ScanTask extends RecursiveTask<List<IndexedJar>> {
+
+		private static final long serialVersionUID = 1L;
+		private final List<File> jarFiles;
+		private final int from;
+		private final int to;
+
+		ScanTask(List<File> jarFiles, int from, int to) {
+			this.jarFiles = jarFiles;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected List<IndexedJar> compute() {
+			if (to - from <= SCAN_THRESHOLD) {
+				List<IndexedJar> result = new ArrayList<>(to - from);
+				for (int i = from; i < to; i++) {
+					IndexedJar jar = scan(jarFiles.get(i));
+					if (jar != null) {
+						result.add(jar);
+					}
+				}
+				return result;
+			}
+			int middle = (from + to) >>> 1;
+			ScanTask left = new ScanTask(jarFiles, from, middle);
+			left.fork();
+			List<IndexedJar> result = new ScanTask(jarFiles, middle, to).compute();
+			result.addAll(0, left.join());
+			return result;
+		}
+	}
+
+	/**
+	 * ASM visitor collecting the name and the annotations of a class.
+	 */
+	private static final class MetadataVisitor extends ClassVisitor {
+
+		private String className;
+		private final List<String> annotations = new ArrayList<>();
+
+		MetadataVisitor() {
+			super(Opcodes.ASM5);
+		}
+
+		@Override
+		public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
+			className = Type.getObjectType(name).getClassName();
+		}
+
+		@Override
+		public AnnotationVisitor visitAnnotation(String desc, boolean visible) {
+			annotations.add(Type.getType(desc).getClassName());
+			return null;
+		}
+	}
+
+	/**
+	 * Indexed content of a JAR.
+	 */
+	public static final class IndexedJar {
+
+		private final String path;
+		private final long size;
+		private final long lastModified;
+		private final List<ClassMetadata> classes;
+
+		IndexedJar(String path, long size, long lastModified, List<ClassMetadata> classes) {
+			this.path = path;
+			this.size = size;
+			this.lastModified = lastModified;
+			this.classes = Collections.unmodifiableList(classes);
+		}
+
+		public String getPath() {
+			return path;
+		}
+
+		public long getSize() {
+			return size;
+		}
+
+		public long getLastModified() {
+			return lastModified;
+		}
+
+		public List<ClassMetadata> getClasses() {
+			return classes;
+		}
+	}
+
+	/**
+	 * Metadata of a class : its name and the annotations on the class.
+	 */
+	public static final class ClassMetadata {
+
+		private final String className;
+		private final List<String> annotations;
+
+		ClassMetadata(String className, List<String> annotations) {
+			this.className = className;
+			this.annotations = Collections.unmodifiableList(annotations);
+		}
+
+		public String getClassName() {
+			return className;
+		}
+
+		public List<String> getAnnotations() {
+			return annotations;
+		}
+	}
+}
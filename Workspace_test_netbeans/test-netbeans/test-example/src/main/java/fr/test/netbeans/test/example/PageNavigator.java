@@ -0,0 +1,367 @@
+package fr.test.netbeans.test.example;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.openide.util.RequestProcessor;
+
+/**
+ * Navigates between the pages of a project.
+ *
+ * The pages are decoded in background and kept in a bounded LRU set. After each navigation, the neighbors of the page and the pages recently
+ * visited are prefetched with a lower priority, so going to the next, the previous or back to a recent page is usually immediate. The
+ * navigator follows the edits of the project : a page whose data changed is dropped from memory, as well as all the pages when the page list
+ * changed, until the navigator is closed.
+ *
+ * @author BGRY
+ */
+public final class PageNavigator {
+
+	private static final Logger logger = Logger.getLogger(PageNavigator.class.getName());
+	private static final RequestProcessor RP = new RequestProcessor(PageNavigator.class.getName(), 2);
+	/**
+	 * Number of pages visited recently which are prefetched.
+	 */
+	private static final int PREFETCHED_HISTORY = 2;
+	private static final int HISTORY_SIZE = 16;
+
+	/**
+	 * Decodes the data of a page, called off the EDT.
+	 */
+	public interface PageDecoder {
+
+		/**
+		 * Decodes a page.
+		 *
+		 * @param page : page to decode.
+		 * @return the decoded content.
+		 * @throws Exception if the page cannot be decoded.
+		 */
+		Object decode(ProjectPage page) throws Exception;
+	}
+
+	/**
+	 * Decoder returning the data of the pages as is, without copying it : the content must not be modified.
+	 */
+	public static final PageDecoder RAW_DECODER = new PageDecoder() {
+		@Override
+		public Object decode(ProjectPage page) {
+			return page.getData();
+		}
+	};
+
+	private final Project project;
+	private final PageDecoder decoder;
+	/**
+	 * Resident pages by name, in access order, guarded by this.
+	 */
+	private final Map<String, CompletableFuture<LoadedPage>> residents;
+	/**
+	 * Pages visited, most recent first, guarded by this.
+	 */
+	private final Deque<String> history = new ArrayDeque<>();
+	private String current = null;
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong loads = new AtomicLong();
+	private final AtomicLong totalLoadNanos = new AtomicLong();
+	private final AtomicLong maxLoadNanos = new AtomicLong();
+	private final ProjectEditListener editListener = new EditListener();
+
+	/**
+	 * Creates a navigator, following the edits of the project until it is closed.
+	 *
+	 * @param project : project whose pages are navigated.
+	 * @param capacity : maximum number of pages kept in memory, at least the current page and the prefetched ones (5).
+	 * @param decoder : decoder of the pages.
+	 */
+	public PageNavigator(Project project, final int capacity, PageDecoder decoder) {
+		this.project = project;
+		this.decoder = decoder;
+		this.residents = new LinkedHashMap<String, CompletableFuture<LoadedPage>>(capacity, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, CompletableFuture<LoadedPage>> eldest) {
+				return size() > capacity;
+			}
+		};
+		project.addEditListener(editListener);
+	}
+
+	/**
+	 * Stops following the edits of the project, for instance once the navigator is replaced.
+	 */
+	public void close() {
+		project.removeEditListener(editListener);
+	}
+
+	/**
+	 * Goes to a page. Returns immediately, the page is decoded in background if it is not in memory.
+	 *
+	 * @param pageName : name of the page.
+	 * @return a future completed with the page once it is decoded, or completed exceptionally if the page does not exist or cannot be decoded.
+	 */
+	public CompletableFuture<LoadedPage> gotoPage(final String pageName) {
+		CompletableFuture<LoadedPage> page;
+		synchronized (this) {
+			if (current != null && !current.equals(pageName)) {
+				history.remove(current);
+				history.addFirst(current);
+				if (history.size() > HISTORY_SIZE) {
+					history.removeLast();
+				}
+			}
+			current = pageName;
+			page = residents.get(pageName);
+			if (page == null) {
+				page = load(pageName, Thread.NORM_PRIORITY);
+				misses.incrementAndGet();
+			} else {
+				hits.incrementAndGet();
+			}
+		}
+		RP.post(new Runnable() {
+			@Override
+			public void run() {
+				prefetch(pageName);
+			}
+		}, 0, Thread.MIN_PRIORITY);
+		return page;
+	}
+
+	/**
+	 * Gets the name of the current page.
+	 *
+	 * @return the name of the last page navigated to, or null.
+	 */
+	public synchronized String getCurrentPageName() {
+		return current;
+	}
+
+	/**
+	 * Drops a page from memory, for instance after its data changed.
+	 *
+	 * @param pageName : name of the page.
+	 */
+	public synchronized void invalidate(String pageName) {
+		residents.remove(pageName);
+	}
+
+	/**
+	 * Drops all the pages from memory.
+	 */
+	public synchronized void invalidate() {
+		residents.clear();
+	}
+
+	/**
+	 * Gets the number of navigations to a page which was in memory or being loaded.
+	 *
+	 * @return number of hits.
+	 */
+	public long getHitCount() {
+		return hits.get();
+	}
+
+	/**
+	 * Gets the number of navigations to a page which had to be loaded.
+	 *
+	 * @return number of misses.
+	 */
+	public long getMissCount() {
+		return misses.get();
+	}
+
+	/**
+	 * Gets the hit rate of the navigations.
+	 *
+	 * @return hit rate between 0 and 1, 0 before the first navigation.
+	 */
+	public double getHitRate() {
+		long hitCount = hits.get();
+		long total = hitCount + misses.get();
+		return total > 0 ? (double) hitCount / total : 0;
+	}
+
+	/**
+	 * Gets the number of pages decoded, prefetched ones included.
+	 *
+	 * @return number of loads.
+	 */
+	public long getLoadCount() {
+		return loads.get();
+	}
+
+	/**
+	 * Gets the average decoding time of the pages.
+	 *
+	 * @return average load time in milliseconds, 0 before the first load.
+	 */
+	public double getAverageLoadMillis() {
+		long loadCount = loads.get();
+		return loadCount > 0 ? totalLoadNanos.get() / 1e6 / loadCount : 0;
+	}
+
+	/**
+	 * Gets the longest decoding time of a page.
+	 *
+	 * @return maximum load time in milliseconds.
+	 */
+	public double getMaxLoadMillis() {
+		return maxLoadNanos.get() / 1e6;
+	}
+
+	/**
+	 * Loads a page in background and makes it resident. Must be called while holding the lock.
+	 *
+	 * @param pageName : name of the page.
+	 * @param priority : priority of the loading.
+	 * @return the future page.
+	 */
+	private CompletableFuture<LoadedPage> load(final String pageName, int priority) {
+		final CompletableFuture<LoadedPage> page = new CompletableFuture<>();
+		residents.put(pageName, page);
+		RP.post(new Runnable() {
+			@Override
+			public void run() {
+				decode(pageName, page);
+			}
+		}, 0, priority);
+		return page;
+	}
+
+	private void decode(String pageName, CompletableFuture<LoadedPage> page) {
+		long start = System.nanoTime();
+		try {
+			ProjectPage projectPage = project.getPage(pageName);
+			if (projectPage == null) {
+				throw new IllegalArgumentException("No page " + pageName + " in the project");
+			}
+			Object content = decoder.decode(projectPage);
+			long loadNanos = System.nanoTime() - start;
+			loads.incrementAndGet();
+			totalLoadNanos.addAndGet(loadNanos);
+			long max;
+			while (loadNanos > (max = maxLoadNanos.get()) && !maxLoadNanos.compareAndSet(max, loadNanos)) {
+				// Retries until the maximum is updated or is greater.
+			}
+			page.complete(new LoadedPage(projectPage, content, TimeUnit.NANOSECONDS.toMillis(loadNanos)));
+		} catch (Exception ex) {
+			logger.log(Level.FINE, "Cannot load page " + pageName, ex);
+			synchronized (this) {
+				// A failed page is loaded again on the next navigation.
+				residents.remove(pageName, page);
+			}
+			page.completeExceptionally(ex);
+		}
+	}
+
+	/**
+	 * Prefetches the neighbors of a page and the pages visited recently.
+	 *
+	 * @param pageName : page navigated to.
+	 */
+	private void prefetch(String pageName) {
+		List<String> candidates = new ArrayList<>();
+		List<ProjectPage> pages = project.getPages();
+		for (int i = 0; i < pages.size(); i++) {
+			if (pages.get(i).getName().equals(pageName)) {
+				if (i + 1 < pages.size()) {
+					candidates.add(pages.get(i + 1).getName());
+				}
+				if (i > 0) {
+					candidates.add(pages.get(i - 1).getName());
+				}
+				break;
+			}
+		}
+		synchronized (this) {
+			if (!pageName.equals(current)) {
+				// Already navigated elsewhere.
+				return;
+			}
+			int count = 0;
+			for (String visited : history) {
+				if (count++ == PREFETCHED_HISTORY) {
+					break;
+				}
+				candidates.add(visited);
+			}
+			for (String candidate : candidates) {
+				if (!residents.containsKey(candidate)) {
+					load(candidate, Thread.MIN_PRIORITY);
+				}
+			}
+			// The current page stays the most recently used, ahead of the prefetched ones.
+			residents.get(pageName);
+		}
+	}
+
+	/**
+	 * Drops the pages edited from memory.
+	 */
+	private final class EditListener implements ProjectEditListener {
+
+		@Override
+		public void informationsEdited(Project project, ProjectInformationSnapshot informations) {
+			// The pages do not depend on the informations.
+		}
+
+		@Override
+		public void pageEdited(Project project, ProjectPage page, byte[] data) {
+			invalidate(page.getName());
+		}
+
+		@Override
+		public void pagesEdited(Project project, List<ProjectPage> pages) {
+			invalidate();
+		}
+	}
+
+	/**
+	 * Decoded page.
+	 */
+	public static final class LoadedPage {
+
+		private final ProjectPage page;
+		private final Object content;
+		private final long loadMillis;
+
+		LoadedPage(ProjectPage page, Object content, long loadMillis) {
+			this.page = page;
+			this.content = content;
+			this.loadMillis = loadMillis;
+		}
+
+		public ProjectPage getPage() {
+			return page;
+		}
+
+		/**
+		 * Gets the decoded content.
+		 *
+		 * @return the content returned by the decoder of the navigator.
+		 */
+		public Object getContent() {
+			return content;
+		}
+
+		/**
+		 * Gets the time the page took to be decoded.
+		 *
+		 * @return load time in milliseconds.
+		 */
+		public long getLoadMillis() {
+			return loadMillis;
+		}
+	}
+}
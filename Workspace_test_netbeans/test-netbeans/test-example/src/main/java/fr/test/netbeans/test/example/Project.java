@@ -1,18 +1,176 @@
 package fr.test.netbeans.test.example;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
 public class Project {
 
+	/**
+	 * Source of the modification stamps, shared by all the projects so that a stamp is never reused, even when the informations are replaced.
+	 */
+	private static final AtomicLong MODIFICATION_STAMPS = new AtomicLong();
+
+	private final List<ProjectEditListener> editListeners = new CopyOnWriteArrayList<>();
+
 	public Project() {
+		this._Informations.setOwner(this);
+	}
+
+	/**
+	 * Adds a listener of the edits of the project.
+	 *
+	 * @param listener : listener to add.
+	 */
+	public void addEditListener(ProjectEditListener listener) {
+		editListeners.add(listener);
+	}
+
+	/**
+	 * Removes a listener of the edits of the project.
+	 *
+	 * @param listener : listener to remove.
+	 */
+	public void removeEditListener(ProjectEditListener listener) {
+		editListeners.remove(listener);
+	}
+
+	void fireInformationsEdited(ProjectInformationSnapshot informations) {
+		for (ProjectEditListener listener : editListeners) {
+			listener.informationsEdited(this, informations);
+		}
+	}
 
+	void firePageEdited(ProjectPage page, byte[] data) {
+		for (ProjectEditListener listener : editListeners) {
+			listener.pageEdited(this, page, data);
+		}
 	}
 
-	private ProjectInformation _Informations = new ProjectInformation();
+	/**
+	 * Takes a new modification stamp. The stamps increase with time.
+	 *
+	 * @return the stamp.
+	 */
+	static long nextModificationStamp() {
+		return MODIFICATION_STAMPS.incrementAndGet();
+	}
+
+	private volatile ProjectInformation _Informations = new ProjectInformation();
 
 	public ProjectInformation getInformations() {
 		return this._Informations;
 	}
 
 	protected void setInformations(ProjectInformation value) {
+		value.setOwner(this);
 		this._Informations = value;
+		this._StructureStamp = nextModificationStamp();
+		fireInformationsEdited(value.getSnapshot());
+	}
+
+	/**
+	 * Pages of the project, an immutable list replaced on each change.
+	 */
+	private volatile List<ProjectPage> _Pages = Collections.emptyList();
+	/**
+	 * Stamp of the last change of the informations instance or of the page list.
+	 */
+	private volatile long _StructureStamp = nextModificationStamp();
+
+	/**
+	 * Gets the pages of the project, in display order.
+	 *
+	 * @return an immutable list of the pages.
+	 */
+	public List<ProjectPage> getPages() {
+		return this._Pages;
+	}
+
+	/**
+	 * Gets a page by name.
+	 *
+	 * @param name : name of the page.
+	 * @return the page, or null if there is none with this name.
+	 */
+	public ProjectPage getPage(String name) {
+		for (ProjectPage page : this._Pages) {
+			if (page.getName().equals(name)) {
+				return page;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Adds a page at the end of the project.
+	 *
+	 * @param page : page to add.
+	 */
+	public synchronized void addPage(ProjectPage page) {
+		List<ProjectPage> pages = new ArrayList<>(this._Pages);
+		pages.add(page);
+		setPages(pages);
+	}
+
+	/**
+	 * Removes a page.
+	 *
+	 * @param page : page to remove.
+	 * @return true if the page was in the project.
+	 */
+	public synchronized boolean removePage(ProjectPage page) {
+		List<ProjectPage> pages = new ArrayList<>(this._Pages);
+		if (!pages.remove(page)) {
+			return false;
+		}
+		setPages(pages);
+		return true;
+	}
+
+	/**
+	 * Replaces all the pages.
+	 *
+	 * @param pages : new pages, in display order.
+	 */
+	public synchronized void setPages(Collection<ProjectPage> pages) {
+		List<ProjectPage> newPages = Collections.unmodifiableList(new ArrayList<>(pages));
+		for (ProjectPage page : newPages) {
+			// The data of the new pages which are not stored is part of the edit.
+			if (page.setOwner(this) && page.getStored() == null) {
+				firePageEdited(page, page.getData());
+			}
+		}
+		this._Pages = newPages;
+		this._StructureStamp = nextModificationStamp();
+		for (ProjectEditListener listener : editListeners) {
+			listener.pagesEdited(this, newPages);
+		}
+	}
+
+	/**
+	 * Gets the stamp of the last change of the project : informations, page list or page data.
+	 *
+	 * @return the modification stamp.
+	 */
+	public long getModificationStamp() {
+		long stamp = Math.max(this._StructureStamp, this._Informations.getModificationStamp());
+		for (ProjectPage page : this._Pages) {
+			stamp = Math.max(stamp, page.getModificationStamp());
+		}
+		return stamp;
+	}
+
+	/**
+	 * Checks if the project changed since a given stamp, typically the stamp read before it was last saved.
+	 *
+	 * @param stamp : modification stamp.
+	 * @return true if the project changed after the stamp was taken.
+	 */
+	public boolean isModifiedSince(long stamp) {
+		return getModificationStamp() > stamp;
 	}
 }
@@ -0,0 +1,199 @@
+package fr.test.netbeans.test.example;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.openide.util.RequestProcessor;
+
+/**
+ * Saves periodically, in background, the registered projects which changed since they were last saved.
+ *
+ * Finding out if a project changed only compares its modification stamp with the stamp it had when it was saved : the projects which did not
+ * change are not serialized. Between two saves, the edits of the registered projects are written in a {@link ProjectJournal}, each save being
+ * a checkpoint of the journal.
+ *
+ * @author BGRY
+ */
+public final class ProjectAutosave {
+
+	private static final Logger logger = Logger.getLogger(ProjectAutosave.class.getName());
+	private static final RequestProcessor RP = new RequestProcessor(ProjectAutosave.class.getName(), 1);
+	/**
+	 * Delay in milliseconds between two autosaves.
+	 */
+	private static final int AUTOSAVE_INTERVAL = Integer.getInteger("test-example.autosave.interval", 30000);
+	private static ProjectAutosave def = null;
+
+	/**
+	 * Registered projects, guarded by this.
+	 */
+	private final Map<Project, Registration> registrations = new LinkedHashMap<>();
+	private final int interval;
+	/**
+	 * True while the next autosave is scheduled, guarded by this.
+	 */
+	private boolean scheduled = false;
+	private final RequestProcessor.Task saveTask = RP.create(new Runnable() {
+		@Override
+		public void run() {
+			saveModified();
+			schedule();
+		}
+	});
+
+	/**
+	 * Creates an autosave.
+	 *
+	 * @param interval : delay in milliseconds between two autosaves.
+	 */
+	ProjectAutosave(int interval) {
+		this.interval = interval;
+	}
+
+	/**
+	 * Gets the autosave of the application.
+	 *
+	 * @return the default autosave.
+	 */
+	public static synchronized ProjectAutosave getDefault() {
+		if (def == null) {
+			def = new ProjectAutosave(AUTOSAVE_INTERVAL);
+		}
+		return def;
+	}
+
+	/**
+	 * Registers a project which was just opened or saved in a store.
+	 *
+	 * @param project : project.
+	 * @param store : store of the project.
+	 */
+	public void register(Project project, ProjectStore store) {
+		register(project, store, project.getModificationStamp());
+	}
+
+	private synchronized void register(Project project, ProjectStore store, long savedStamp) {
+		Registration previous = registrations.put(project, new Registration(store, ProjectJournal.open(project, store), savedStamp));
+		if (previous != null) {
+			previous.journal.close();
+		}
+		// Scheduled by the first registration only : rescheduling would postpone the pending autosave.
+		if (!scheduled) {
+			scheduled = true;
+			saveTask.schedule(interval);
+		}
+	}
+
+	/**
+	 * Opens a project, replays the edits of its journal which were not saved, and registers it.
+	 *
+	 * @param file : store file.
+	 * @return the project.
+	 * @throws IOException if the project cannot be read.
+	 */
+	public Project open(Path file) throws IOException {
+		Project project = new Project();
+		ProjectStore store = ProjectStore.open(file, project);
+		long savedStamp = project.getModificationStamp();
+		ProjectJournal.recover(file, project);
+		register(project, store, savedStamp);
+		return project;
+	}
+
+	/**
+	 * Unregisters a project, for instance when it is closed. Changes which were not saved stay in its journal.
+	 *
+	 * @param project : project.
+	 */
+	public synchronized void unregister(Project project) {
+		Registration registration = registrations.remove(project);
+		if (registration != null) {
+			registration.journal.close();
+		}
+	}
+
+	/**
+	 * Checks if a registered project changed since it was last saved.
+	 *
+	 * @param project : project.
+	 * @return true if the project is registered and changed.
+	 */
+	public boolean isModified(Project project) {
+		Registration registration;
+		synchronized (this) {
+			registration = registrations.get(project);
+		}
+		return registration != null && project.isModifiedSince(registration.savedStamp);
+	}
+
+	/**
+	 * Saves the modified projects now, in background.
+	 *
+	 * @return the task saving the projects.
+	 */
+	public RequestProcessor.Task saveNow() {
+		return RP.post(new Runnable() {
+			@Override
+			public void run() {
+				saveModified();
+			}
+		});
+	}
+
+	/**
+	 * Saves the modified projects.
+	 */
+	private void saveModified() {
+		List<Map.Entry<Project, Registration>> toCheck;
+		synchronized (this) {
+			toCheck = new ArrayList<>(registrations.entrySet());
+		}
+		for (Map.Entry<Project, Registration> entry : toCheck) {
+			Project project = entry.getKey();
+			Registration registration = entry.getValue();
+			// The stamp is read before saving : a change made while saving leaves the project modified.
+			long stamp = project.getModificationStamp();
+			if (stamp <= registration.savedStamp) {
+				continue;
+			}
+			try {
+				registration.journal.checkpoint();
+				registration.savedStamp = stamp;
+				logger.log(Level.FINE, "Autosaved {0}", registration.store.getFile());
+			} catch (IOException ex) {
+				logger.log(Level.WARNING, "Cannot autosave project " + registration.store.getFile(), ex);
+			}
+		}
+	}
+
+	/**
+	 * Schedules the next autosave, while projects are registered.
+	 */
+	private synchronized void schedule() {
+		scheduled = !registrations.isEmpty();
+		if (scheduled) {
+			saveTask.schedule(interval);
+		}
+	}
+
+	/**
+	 * Store of a registered project and stamp of its last save.
+	 */
+	private static final class Registration {
+
+		private final ProjectStore store;
+		private final ProjectJournal journal;
+		private volatile long savedStamp;
+
+		Registration(ProjectStore store, ProjectJournal journal, long savedStamp) {
+			this.store = store;
+			this.journal = journal;
+			this.savedStamp = savedStamp;
+		}
+	}
+}
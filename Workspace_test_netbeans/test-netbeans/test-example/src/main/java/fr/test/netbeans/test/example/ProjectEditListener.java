@@ -0,0 +1,37 @@
+package fr.test.netbeans.test.example;
+
+import java.util.List;
+
+/**
+ * Listener of the edits of a project. Called synchronously by the editing thread, with the new values : implementations must be fast and must
+ * not modify the project.
+ *
+ * @author BGRY
+ */
+public interface ProjectEditListener {
+
+	/**
+	 * Called when the informations of the project changed or were replaced.
+	 *
+	 * @param project : edited project.
+	 * @param informations : new informations.
+	 */
+	void informationsEdited(Project project, ProjectInformationSnapshot informations);
+
+	/**
+	 * Called when the data of a page changed, or when a page which is not stored is added to the project.
+	 *
+	 * @param project : edited project.
+	 * @param page : edited page.
+	 * @param data : new data of the page.
+	 */
+	void pageEdited(Project project, ProjectPage page, byte[] data);
+
+	/**
+	 * Called when pages were added, removed or reordered.
+	 *
+	 * @param project : edited project.
+	 * @param pages : new pages, in display order.
+	 */
+	void pagesEdited(Project project, List<ProjectPage> pages);
+}
@@ -1,56 +1,133 @@
 package fr.test.netbeans.test.example;
 
 import java.util.Date;
-
+import java.util.Objects;
+
+/**
+ * Informations of a project.
+ *
+ * The informations are stored in an immutable {@link ProjectInformationSnapshot} replaced on each change : getting a consistent snapshot is a
+ * volatile read. Each change updates the modification date and takes a new modification stamp, unless the value did not change.
+ */
 public class ProjectInformation {
 
-	private String _Name = "New project";
+	private volatile ProjectInformationSnapshot _State;
+	/**
+	 * Project notified of the changes, or null.
+	 */
+	private volatile Project _Owner;
 
-	public String getName() {
-		return this._Name;
+	public ProjectInformation() {
+		this._State = new ProjectInformationSnapshot("New project", "", new Date(), null, "", Project.nextModificationStamp());
 	}
 
-	public void setName(String value) {
-		this._Name = value;
+	/**
+	 * Creates informations with a given state, for instance when a project is loaded.
+	 *
+	 * @param state : state of the informations.
+	 */
+	ProjectInformation(ProjectInformationSnapshot state) {
+		this._State = state;
 	}
 
-	private String _Author = "";
+	void setOwner(Project owner) {
+		this._Owner = owner;
+	}
 
-	public String getAuthor() {
-		return this._Author;
+	/**
+	 * Gets the current state of the informations.
+	 *
+	 * @return an immutable snapshot.
+	 */
+	public ProjectInformationSnapshot getSnapshot() {
+		return this._State;
 	}
 
-	public void setAuthor(String value) {
-		this._Author = value;
+	/**
+	 * Gets the stamp of the last change.
+	 *
+	 * @return the modification stamp.
+	 */
+	public long getModificationStamp() {
+		return this._State.getModificationStamp();
 	}
 
-	private Date _Created = new Date();
+	public String getName() {
+		return this._State.getName();
+	}
 
-	public Date getCreated() {
-		return this._Created;
+	public synchronized void setName(String value) {
+		ProjectInformationSnapshot state = this._State;
+		if (!Objects.equals(value, state.getName())) {
+			change(value, state.getAuthor(), state.getCreated(), state.getComment());
+		}
 	}
 
-	public void setCreated(Date value) {
-		this._Created = value;
+	public String getAuthor() {
+		return this._State.getAuthor();
 	}
 
-	private Date _Modified;
+	public synchronized void setAuthor(String value) {
+		ProjectInformationSnapshot state = this._State;
+		if (!Objects.equals(value, state.getAuthor())) {
+			change(state.getName(), value, state.getCreated(), state.getComment());
+		}
+	}
 
-	public Date getModified() {
-		return this._Modified;
+	public Date getCreated() {
+		return this._State.getCreated();
 	}
 
-	public void setModified(Date value) {
-		this._Modified = value;
+	public synchronized void setCreated(Date value) {
+		ProjectInformationSnapshot state = this._State;
+		if (!Objects.equals(value, state.getCreated())) {
+			change(state.getName(), state.getAuthor(), value, state.getComment());
+		}
 	}
 
-	private String _Comment = "";
+	public Date getModified() {
+		return this._State.getModified();
+	}
+
+	/**
+	 * Sets the modification date. The date is updated on each change, this only takes a new modification stamp.
+	 *
+	 * @param value : modification date.
+	 */
+	public synchronized void setModified(Date value) {
+		ProjectInformationSnapshot state = this._State;
+		if (!Objects.equals(value, state.getModified())) {
+			changed(new ProjectInformationSnapshot(state.getName(), state.getAuthor(), state.getCreated(), value, state.getComment(),
+					Project.nextModificationStamp()));
+		}
+	}
 
 	public String getComment() {
-		return this._Comment;
+		return this._State.getComment();
+	}
+
+	public synchronized void setComment(String value) {
+		ProjectInformationSnapshot state = this._State;
+		if (!Objects.equals(value, state.getComment())) {
+			change(state.getName(), state.getAuthor(), state.getCreated(), value);
+		}
+	}
+
+	/**
+	 * Replaces the state after a change. Must be called while holding the lock.
+	 */
+	private void change(String name, String author, Date created, String comment) {
+		changed(new ProjectInformationSnapshot(name, author, created, new Date(), comment, Project.nextModificationStamp()));
 	}
 
-	public void setComment(String value) {
-		this._Comment = value;
+	/**
+	 * Sets the new state and notifies the owner. Must be called while holding the lock, so the owner is notified in the order of the changes.
+	 */
+	private void changed(ProjectInformationSnapshot state) {
+		this._State = state;
+		Project owner = this._Owner;
+		if (owner != null) {
+			owner.fireInformationsEdited(state);
+		}
 	}
 }
@@ -0,0 +1,76 @@
+package fr.test.netbeans.test.example;
+
+import java.util.Date;
+
+/**
+ * Immutable state of a {@link ProjectInformation}.
+ *
+ * @author BGRY
+ */
+public final class ProjectInformationSnapshot {
+
+	private final String name;
+	private final String author;
+	private final long created;
+	private final long modified;
+	private final String comment;
+	private final long modificationStamp;
+
+	/**
+	 * Creates a snapshot.
+	 *
+	 * @param name : name of the project.
+	 * @param author : author.
+	 * @param created : creation date, or null.
+	 * @param modified : last modification date, or null.
+	 * @param comment : comment.
+	 * @param modificationStamp : stamp of the last change, see {@link Project#nextModificationStamp()}.
+	 */
+	public ProjectInformationSnapshot(String name, String author, Date created, Date modified, String comment, long modificationStamp) {
+		this.name = name;
+		this.author = author;
+		this.created = created != null ? created.getTime() : Long.MIN_VALUE;
+		this.modified = modified != null ? modified.getTime() : Long.MIN_VALUE;
+		this.comment = comment;
+		this.modificationStamp = modificationStamp;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public String getAuthor() {
+		return author;
+	}
+
+	/**
+	 * Gets the creation date.
+	 *
+	 * @return a copy of the date, or null.
+	 */
+	public Date getCreated() {
+		return created != Long.MIN_VALUE ? new Date(created) : null;
+	}
+
+	/**
+	 * Gets the last modification date.
+	 *
+	 * @return a copy of the date, or null.
+	 */
+	public Date getModified() {
+		return modified != Long.MIN_VALUE ? new Date(modified) : null;
+	}
+
+	public String getComment() {
+		return comment;
+	}
+
+	/**
+	 * Gets the stamp of the last change.
+	 *
+	 * @return the modification stamp.
+	 */
+	public long getModificationStamp() {
+		return modificationStamp;
+	}
+}
@@ -0,0 +1,406 @@
+package fr.test.netbeans.test.example;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+import org.openide.util.RequestProcessor;
+
+/**
+ * Write-ahead journal of the edits of a project.
+ *
+ * The edits are appended to journal files next to the store of the project. They are queued by the editing thread and written in background
+ * : the edits queued meanwhile are written together and synced to the disk once (group commit). A checkpoint saves the project in its store
+ * and starts a new journal file, the previous files being deleted once the store is saved. After a crash, {@link #recover(Path, Project)}
+ * replays the journal files over the store.
+ *
+ * The records hold the new values (informations, data of a page, page list) : replaying a record twice gives the same project, so a journal
+ * file left by a crash during a checkpoint can be replayed over the saved store.
+ *
+ * @author BGRY
+ */
+public final class ProjectJournal {
+
+	private static final Logger logger = Logger.getLogger(ProjectJournal.class.getName());
+	private static final RequestProcessor RP = new RequestProcessor(ProjectJournal.class.getName(), 1);
+	/**
+	 * Delay in milliseconds during which the edits are grouped before being written.
+	 */
+	private static final int COMMIT_DELAY = Integer.getInteger("test-example.journal.commit.delay", 200);
+	/**
+	 * Maximum bandwidth in bytes per second of the journal and of the checkpoints.
+	 */
+	private static final long BANDWIDTH = Long.getLong("test-example.journal.bandwidth", 4 * 1024 * 1024);
+	private static final String JOURNAL_EXTENSION = ".journal.";
+	private static final byte RECORD_INFORMATIONS = 1;
+	private static final byte RECORD_PAGE_DATA = 2;
+	private static final byte RECORD_PAGE_LIST = 3;
+
+	private final Project project;
+	private final ProjectStore store;
+	private final IoThrottle throttle = new IoThrottle(BANDWIDTH);
+	private final ConcurrentLinkedQueue<Record> pending = new ConcurrentLinkedQueue<>();
+	private final AtomicBoolean commitScheduled = new AtomicBoolean();
+	private final ProjectEditListener editListener = new EditListener();
+	private final RequestProcessor.Task commitTask = RP.create(new Runnable() {
+		@Override
+		public void run() {
+			commit();
+		}
+	});
+	/**
+	 * Journal file being written and its sequence number, guarded by this.
+	 */
+	private FileChannel channel = null;
+	private long sequence;
+	private boolean closed = false;
+
+	private ProjectJournal(Project project, ProjectStore store, long sequence) {
+		this.project = project;
+		this.store = store;
+		this.sequence = sequence;
+	}
+
+	/**
+	 * Starts journaling the edits of a project. The project must have been opened from its store and recovered, or just saved.
+	 *
+	 * @param project : project.
+	 * @param store : store of the project.
+	 * @return the journal.
+	 */
+	public static ProjectJournal open(Project project, ProjectStore store) {
+		TreeMap<Long, Path> files = findJournalFiles(store.getFile());
+		ProjectJournal journal = new ProjectJournal(project, store, files.isEmpty() ? 1 : files.lastKey() + 1);
+		project.addEditListener(journal.editListener);
+		return journal;
+	}
+
+	/**
+	 * Replays the journal files of a store over its project.
+	 *
+	 * @param storeFile : store file.
+	 * @param project : project just opened from the store.
+	 * @return the number of records replayed.
+	 * @throws IOException if a journal file cannot be read.
+	 */
+	public static int recover(Path storeFile, Project project) throws IOException {
+		long start = System.nanoTime();
+		int count = 0;
+		for (Path file : findJournalFiles(storeFile).values()) {
+			// The file is small compared to the store : it is read at once.
+			DataInputStream in = new DataInputStream(new ByteArrayInputStream(Files.readAllBytes(file)));
+			while (in.available() >= 8) {
+				int length = in.readInt();
+				int crc = in.readInt();
+				if (length < 0 || length > in.available()) {
+					// Record torn by a crash : the previous records are complete.
+					break;
+				}
+				byte[] payload = new byte[length];
+				in.readFully(payload);
+				if (crc != crc(payload)) {
+					logger.log(Level.INFO, "Stopping the replay of {0} at a corrupted record", file);
+					break;
+				}
+				replay(project, payload);
+				count++;
+			}
+		}
+		if (count > 0) {
+			logger.log(Level.INFO, "Recovered {0} journal records of {1} in {2} ms", new Object[]{
+				count, storeFile, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)});
+		}
+		return count;
+	}
+
+	/**
+	 * Saves the project in its store and starts a new journal file, then deletes the previous journal files. Called off the EDT.
+	 *
+	 * @throws IOException if the project cannot be saved.
+	 */
+	public void checkpoint() throws IOException {
+		long current;
+		synchronized (this) {
+			if (closed) {
+				return;
+			}
+			// The edits journaled so far are saved in the store, the next ones go to a new file.
+			writePending();
+			closeChannel();
+			current = ++sequence;
+		}
+		store.save(project, throttle);
+		for (Map.Entry<Long, Path> file : findJournalFiles(store.getFile()).entrySet()) {
+			if (file.getKey() < current) {
+				Files.deleteIfExists(file.getValue());
+			}
+		}
+	}
+
+	/**
+	 * Stops journaling, after writing the pending edits. The journal files are kept until the next checkpoint.
+	 */
+	public void close() {
+		project.removeEditListener(editListener);
+		synchronized (this) {
+			try {
+				writePending();
+			} catch (IOException ex) {
+				logger.log(Level.WARNING, "Cannot write the journal of " + store.getFile(), ex);
+			}
+			closeChannel();
+			closed = true;
+		}
+	}
+
+	private void enqueue(Record record) {
+		pending.add(record);
+		// Scheduled once per group : rescheduling would postpone the commit while edits keep coming.
+		if (commitScheduled.compareAndSet(false, true)) {
+			commitTask.schedule(COMMIT_DELAY);
+		}
+	}
+
+	/**
+	 * Writes the pending edits.
+	 */
+	private synchronized void commit() {
+		commitScheduled.set(false);
+		if (closed) {
+			return;
+		}
+		try {
+			writePending();
+		} catch (IOException ex) {
+			logger.log(Level.WARNING, "Cannot write the journal of " + store.getFile(), ex);
+		}
+	}
+
+	/**
+	 * Writes the pending edits in one write and syncs the file once. Must be called while holding the lock.
+	 */
+	private void writePending() throws IOException {
+		List<ByteBuffer> records = new ArrayList<>();
+		long length = 0;
+		Record record;
+		while ((record = pending.poll()) != null) {
+			ByteBuffer encoded = record.encode();
+			records.add(encoded);
+			length += encoded.remaining();
+		}
+		if (records.isEmpty()) {
+			return;
+		}
+		if (channel == null) {
+			channel = FileChannel.open(getJournalFile(store.getFile(), sequence), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+					StandardOpenOption.APPEND);
+		}
+		throttle.acquire(length);
+		ByteBuffer[] buffers = records.toArray(new ByteBuffer[records.size()]);
+		while (length > 0) {
+			length -= channel.write(buffers);
+		}
+		channel.force(false);
+	}
+
+	private void closeChannel() {
+		if (channel != null) {
+			try {
+				channel.close();
+			} catch (IOException ex) {
+				logger.log(Level.FINE, "Cannot close the journal of " + store.getFile(), ex);
+			}
+			channel = null;
+		}
+	}
+
+	private static Path getJournalFile(Path storeFile, long sequence) {
+		return storeFile.resolveSibling(storeFile.getFileName() + JOURNAL_EXTENSION + sequence);
+	}
+
+	/**
+	 * Finds the journal files of a store.
+	 *
+	 * @param storeFile : store file.
+	 * @return the journal files by sequence number, in increasing order.
+	 */
+	private static TreeMap<Long, Path> findJournalFiles(Path storeFile) {
+		TreeMap<Long, Path> files = new TreeMap<>();
+		Path directory = storeFile.toAbsolutePath().getParent();
+		String prefix = storeFile.getFileName() + JOURNAL_EXTENSION;
+		if (!Files.isDirectory(directory)) {
+			return files;
+		}
+		try (DirectoryStream<Path> candidates = Files.newDirectoryStream(directory, prefix + "*")) {
+			for (Path candidate : candidates) {
+				try {
+					files.put(Long.parseLong(candidate.getFileName().toString().substring(prefix.length())), candidate);
+				} catch (NumberFormatException ex) {
+					// Not a journal file.
+				}
+			}
+		} catch (IOException ex) {
+			logger.log(Level.INFO, "Cannot list the journal files of " + storeFile, ex);
+		}
+		return files;
+	}
+
+	private static int crc(byte[] payload) {
+		CRC32 crc = new CRC32();
+		crc.update(payload, 0, payload.length);
+		return (int) crc.getValue();
+	}
+
+	/**
+	 * Applies a record to a project.
+	 */
+	private static void replay(Project project, byte[] payload) throws IOException {
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+		switch (in.readByte()) {
+			case RECORD_INFORMATIONS:
+				String name = readString(in);
+				String author = readString(in);
+				String comment = readString(in);
+				long created = in.readLong();
+				long modified = in.readLong();
+				project.setInformations(new ProjectInformation(new ProjectInformationSnapshot(name, author,
+						created != Long.MIN_VALUE ? new Date(created) : null, modified != Long.MIN_VALUE ? new Date(modified) : null, comment,
+						Project.nextModificationStamp())));
+				break;
+			case RECORD_PAGE_DATA:
+				String pageName = in.readUTF();
+				byte[] data = new byte[in.readInt()];
+				in.readFully(data);
+				ProjectPage page = project.getPage(pageName);
+				if (page != null) {
+					page.setData(data);
+				} else {
+					// The page list record which adds the page follows.
+					project.addPage(new ProjectPage(pageName, data));
+				}
+				break;
+			case RECORD_PAGE_LIST:
+				int count = in.readInt();
+				List<ProjectPage> pages = new ArrayList<>(count);
+				Map<String, ProjectPage> existing = new LinkedHashMap<>();
+				for (ProjectPage existingPage : project.getPages()) {
+					existing.put(existingPage.getName(), existingPage);
+				}
+				for (int i = 0; i < count; i++) {
+					ProjectPage listed = existing.get(in.readUTF());
+					if (listed != null) {
+						pages.add(listed);
+					}
+				}
+				project.setPages(pages);
+				break;
+			default:
+				throw new IOException("Unknown journal record");
+		}
+	}
+
+	private static void writeString(DataOutputStream out, String value) throws IOException {
+		out.writeBoolean(value != null);
+		if (value != null) {
+			out.writeUTF(value);
+		}
+	}
+
+	private static String readString(DataInputStream in) throws IOException {
+		return in.readBoolean() ? in.readUTF() : null;
+	}
+
+	/**
+	 * Edit waiting to be written.
+	 */
+	private abstract static class Record {
+
+		/**
+		 * Encodes the record : length and CRC of the payload, then the payload.
+		 *
+		 * @return the encoded record.
+		 */
+		final ByteBuffer encode() throws IOException {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			DataOutputStream out = new DataOutputStream(bytes);
+			writePayload(out);
+			out.flush();
+			byte[] payload = bytes.toByteArray();
+			ByteBuffer encoded = ByteBuffer.allocate(8 + payload.length);
+			encoded.putInt(payload.length);
+			encoded.putInt(crc(payload));
+			encoded.put(payload);
+			encoded.flip();
+			return encoded;
+		}
+
+		abstract void writePayload(DataOutputStream out) throws IOException;
+	}
+
+	/**
+	 * Queues the edits of the project.
+	 */
+	private final class EditListener implements ProjectEditListener {
+
+		@Override
+		public void informationsEdited(Project project, final ProjectInformationSnapshot informations) {
+			enqueue(new Record() {
+				@Override
+				void writePayload(DataOutputStream out) throws IOException {
+					out.writeByte(RECORD_INFORMATIONS);
+					writeString(out, informations.getName());
+					writeString(out, informations.getAuthor());
+					writeString(out, informations.getComment());
+					out.writeLong(informations.getCreated() != null ? informations.getCreated().getTime() : Long.MIN_VALUE);
+					out.writeLong(informations.getModified() != null ? informations.getModified().getTime() : Long.MIN_VALUE);
+				}
+			});
+		}
+
+		@Override
+		public void pageEdited(Project project, final ProjectPage page, final byte[] data) {
+			enqueue(new Record() {
+				@Override
+				void writePayload(DataOutputStream out) throws IOException {
+					out.writeByte(RECORD_PAGE_DATA);
+					out.writeUTF(page.getName());
+					out.writeInt(data.length);
+					out.write(data);
+				}
+			});
+		}
+
+		@Override
+		public void pagesEdited(Project project, final List<ProjectPage> pages) {
+			enqueue(new Record() {
+				@Override
+				void writePayload(DataOutputStream out) throws IOException {
+					out.writeByte(RECORD_PAGE_LIST);
+					out.writeInt(pages.size());
+					for (ProjectPage page : pages) {
+						out.writeUTF(page.getName());
+					}
+				}
+			});
+		}
+	}
+}
@@ -1,5 +1,18 @@
 package fr.test.netbeans.test.example;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.swing.event.ChangeListener;
+import org.openide.util.ChangeSupport;
+import org.openide.util.RequestProcessor;
+
+/**
+ * Holds the current project.
+ *
+ * The current project and its page navigator are swapped together atomically : readers get a consistent pair without locking. The navigator
+ * replaced is closed, so it no longer follows the edits of its project. The current project is published in the central lookup and the
+ * listeners are notified in background, successive changes being coalesced into a single notification.
+ */
 public final class ProjectManager {
 
 	/**
@@ -8,21 +21,184 @@ public final class ProjectManager {
 	private ProjectManager() {
 	}
 
-	private static Project _Current = null;
+	/**
+	 * Maximum number of pages of the current project kept in memory.
+	 */
+	private static final int RESIDENT_PAGES = Integer.getInteger("test-example.resident.pages", 16);
+	private static final RequestProcessor RP = new RequestProcessor(ProjectManager.class.getName(), 1);
+
+	private static final Current NONE = new Current(null, null);
+	private static final AtomicReference<Current> _Current = new AtomicReference<>(NONE);
+	private static final ChangeSupport changeSupport = new ChangeSupport(ProjectManager.class);
+	/**
+	 * Project published in the central lookup, only accessed by the publishing task.
+	 */
+	private static Project _Published = null;
+	private static final RequestProcessor.Task publishTask = RP.create(new Runnable() {
+		@Override
+		public void run() {
+			publish();
+		}
+	});
 
+	/**
+	 * Gets the current project. Never blocks.
+	 *
+	 * @return the current project, or null.
+	 */
 	public static Project getCurrent() {
-		return _Current;
+		return _Current.get().project;
 	}
 
+	/**
+	 * Sets the current project.
+	 *
+	 * @param value : new current project, or null.
+	 */
 	public static void setCurrent(Project value) {
-		_Current = value;
+		while (true) {
+			Current previous = _Current.get();
+			if (previous.project == value) {
+				return;
+			}
+			Current current = create(value);
+			if (_Current.compareAndSet(previous, current)) {
+				previous.close();
+				publishTask.schedule(0);
+				return;
+			}
+			current.close();
+		}
+	}
+
+	/**
+	 * Sets the current project if it is still the expected one, for instance when a project loaded in background must not replace a project
+	 * opened meanwhile.
+	 *
+	 * @param expect : expected current project, or null.
+	 * @param update : new current project, or null.
+	 * @return true if the current project was the expected one.
+	 */
+	public static boolean compareAndSetCurrent(Project expect, Project update) {
+		while (true) {
+			Current previous = _Current.get();
+			if (previous.project != expect) {
+				return false;
+			}
+			if (expect == update) {
+				return true;
+			}
+			Current current = create(update);
+			if (_Current.compareAndSet(previous, current)) {
+				previous.close();
+				publishTask.schedule(0);
+				return true;
+			}
+			current.close();
+		}
 	}
 
-	public static void gotoPage(String pageName) {
-		System.out.println("[ProjectManager] gotoPage : " + pageName);
+	/**
+	 * Adds a listener notified, in background, after the current project changed.
+	 *
+	 * @param listener : listener to add.
+	 */
+	public static void addChangeListener(ChangeListener listener) {
+		changeSupport.addChangeListener(listener);
 	}
 
+	/**
+	 * Removes a listener.
+	 *
+	 * @param listener : listener to remove.
+	 */
+	public static void removeChangeListener(ChangeListener listener) {
+		changeSupport.removeChangeListener(listener);
+	}
+
+	/**
+	 * Gets the navigator of the pages of the current project.
+	 *
+	 * @return the navigator, or null if there is no current project.
+	 */
+	public static PageNavigator getNavigator() {
+		return _Current.get().navigator;
+	}
+
+	/**
+	 * Goes to a page of the current project.
+	 *
+	 * @param pageName : name of the page.
+	 * @return a future completed once the page is loaded.
+	 */
+	public static CompletableFuture<PageNavigator.LoadedPage> gotoPage(String pageName) {
+		PageNavigator navigator = _Current.get().navigator;
+		if (navigator == null) {
+			CompletableFuture<PageNavigator.LoadedPage> page = new CompletableFuture<>();
+			page.completeExceptionally(new IllegalStateException("No current project"));
+			return page;
+		}
+		return navigator.gotoPage(pageName);
+	}
+
+	/**
+	 * Gets the name of the current page.
+	 *
+	 * @return the name of the current page, or null.
+	 */
 	public static String getCurrentPageName() {
-		return "xavier";
+		PageNavigator navigator = _Current.get().navigator;
+		return navigator != null ? navigator.getCurrentPageName() : null;
+	}
+
+	private static Current create(Project project) {
+		return project != null ? new Current(project, new PageNavigator(project, RESIDENT_PAGES, PageNavigator.RAW_DECODER)) : NONE;
+	}
+
+	/**
+	 * Replaces the published project by the current one in a single lookup change, then notifies the listeners.
+	 */
+	private static void publish() {
+		final Project project = _Current.get().project;
+		final Project previous = _Published;
+		if (project == previous) {
+			return;
+		}
+		_Published = project;
+		CentralLookup.getDefault().batch(new Runnable() {
+			@Override
+			public void run() {
+				if (previous != null) {
+					CentralLookup.getDefault().remove(previous);
+				}
+				if (project != null) {
+					CentralLookup.getDefault().add(project);
+				}
+			}
+		});
+		changeSupport.fireChange();
+	}
+
+	/**
+	 * Current project with its navigator.
+	 */
+	private static final class Current {
+
+		private final Project project;
+		private final PageNavigator navigator;
+
+		Current(Project project, PageNavigator navigator) {
+			this.project = project;
+			this.navigator = navigator;
+		}
+
+		/**
+		 * Closes the navigator once this pair is replaced, or was not set.
+		 */
+		void close() {
+			if (navigator != null) {
+				navigator.close();
+			}
+		}
 	}
 }
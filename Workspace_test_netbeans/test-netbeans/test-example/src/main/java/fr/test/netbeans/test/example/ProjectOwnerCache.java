@@ -0,0 +1,298 @@
+package fr.test.netbeans.test.example;
+
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.netbeans.api.project.FileOwnerQuery;
+import org.netbeans.api.project.Project;
+import org.netbeans.api.project.ui.OpenProjects;
+import org.openide.filesystems.FileChangeAdapter;
+import org.openide.filesystems.FileChangeListener;
+import org.openide.filesystems.FileEvent;
+import org.openide.filesystems.FileObject;
+import org.openide.filesystems.FileRenameEvent;
+import org.openide.filesystems.FileStateInvalidException;
+import org.openide.filesystems.FileSystem;
+import org.openide.filesystems.FileUtil;
+import org.openide.loaders.DataObject;
+import org.openide.nodes.Node;
+
+/**
+ * Caches the project owning a node, so repeated selections within a project do not walk the node hierarchy nor query the file owners again.
+ *
+ * The owners are cached by FileObject and by node identity, with weak references on both keys and projects. The cache is invalidated when
+ * projects are opened or closed, and when a cached file, or a folder containing one, is renamed, moved or deleted.
+ *
+ * @author BGRY
+ */
+public final class ProjectOwnerCache {
+
+	private static final Logger logger = Logger.getLogger(ProjectOwnerCache.class.getName());
+	/**
+	 * Cached value of a file or node known to have no owner.
+	 */
+	private static final Reference<Project> NO_OWNER = new WeakReference<>(null);
+	private static ProjectOwnerCache def = null;
+
+	/**
+	 * Owners by file.
+	 */
+	private final Map<FileObject, Reference<Project>> fileOwners = new WeakHashMap<>();
+	/**
+	 * Owners by node identity.
+	 */
+	private final Map<NodeKey, Reference<Project>> nodeOwners = new HashMap<>();
+	private final ReferenceQueue<Node> collectedNodes = new ReferenceQueue<>();
+	/**
+	 * File systems of the cached files, which are listened to.
+	 */
+	private final Map<FileSystem, Boolean> fileSystems = new WeakHashMap<>();
+	private final FileChangeListener fileListener = new FileListener();
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	/**
+	 * Incremented by each invalidation, so the owners looked up meanwhile are not cached.
+	 */
+	private long generation = 0;
+
+	/**
+	 * Creates a cache which is only invalidated by file changes. Use {@link #getDefault()} for a cache also following the open projects.
+	 */
+	ProjectOwnerCache() {
+	}
+
+	/**
+	 * Gets the cache of the application, invalidated when projects are opened or closed.
+	 *
+	 * @return the default cache.
+	 */
+	public static synchronized ProjectOwnerCache getDefault() {
+		if (def == null) {
+			def = new ProjectOwnerCache();
+			OpenProjects.getDefault().addPropertyChangeListener(new PropertyChangeListener() {
+				@Override
+				public void propertyChange(PropertyChangeEvent event) {
+					if (OpenProjects.PROPERTY_OPEN_PROJECTS.equals(event.getPropertyName())) {
+						def.invalidate();
+					}
+				}
+			});
+		}
+		return def;
+	}
+
+	/**
+	 * Searches the node hierarchy for the project that owns a node.
+	 *
+	 * @param node : a node to test for a Project in its or its ancestor's lookup.
+	 * @return the Project that owns the node, or null if not found.
+	 */
+	public Project findOwner(Node node) {
+		long lookupGeneration = getGeneration();
+		boolean fromCache = false;
+		Project owner = null;
+		List<Node> visited = new ArrayList<>();
+		for (Node current = node; current != null; current = current.getParentNode()) {
+			Reference<Project> cached = getCachedOwner(current);
+			if (cached != null) {
+				fromCache = true;
+				owner = cached.get();
+				break;
+			}
+			visited.add(current);
+			Project project = current.getLookup().lookup(Project.class);
+			if (project == null) {
+				DataObject dataObject = current.getLookup().lookup(DataObject.class);
+				if (dataObject != null) {
+					FileObject file = dataObject.getPrimaryFile();
+					cached = getCachedOwner(file);
+					if (cached != null) {
+						fromCache = true;
+						project = cached.get();
+					} else {
+						project = FileOwnerQuery.getOwner(file);
+						cacheOwner(file, project, lookupGeneration);
+					}
+				}
+			}
+			if (project != null) {
+				owner = project;
+				break;
+			}
+		}
+		cacheOwner(visited, owner, lookupGeneration);
+		(fromCache ? hits : misses).incrementAndGet();
+		return owner;
+	}
+
+	/**
+	 * Gets the number of owners found in the cache.
+	 *
+	 * @return number of cache hits.
+	 */
+	public long getHitCount() {
+		return hits.get();
+	}
+
+	/**
+	 * Gets the number of owners which were not in the cache.
+	 *
+	 * @return number of cache misses.
+	 */
+	public long getMissCount() {
+		return misses.get();
+	}
+
+	/**
+	 * Clears the cache.
+	 */
+	public synchronized void invalidate() {
+		generation++;
+		fileOwners.clear();
+		nodeOwners.clear();
+	}
+
+	private synchronized long getGeneration() {
+		return generation;
+	}
+
+	private synchronized Reference<Project> getCachedOwner(FileObject file) {
+		return validate(fileOwners.get(file));
+	}
+
+	private synchronized Reference<Project> getCachedOwner(Node node) {
+		return validate(nodeOwners.get(new NodeKey(node, null)));
+	}
+
+	/**
+	 * Caches the owner of a file, unless the cache was invalidated since the owner was looked up.
+	 *
+	 * @param file : file whose owner was looked up.
+	 * @param owner : owner of the file, or null.
+	 * @param lookupGeneration : generation of the cache when the lookup started.
+	 */
+	private synchronized void cacheOwner(FileObject file, Project owner, long lookupGeneration) {
+		if (lookupGeneration != generation) {
+			return;
+		}
+		fileOwners.put(file, owner != null ? new WeakReference<>(owner) : NO_OWNER);
+		try {
+			FileSystem fileSystem = file.getFileSystem();
+			if (!fileSystems.containsKey(fileSystem)) {
+				fileSystems.put(fileSystem, Boolean.TRUE);
+				fileSystem.addFileChangeListener(FileUtil.weakFileChangeListener(fileListener, fileSystem));
+			}
+		} catch (FileStateInvalidException ex) {
+			logger.log(Level.FINE, "Cannot listen to the file system of " + file, ex);
+			fileOwners.remove(file);
+		}
+	}
+
+	private synchronized void cacheOwner(List<Node> nodes, Project owner, long lookupGeneration) {
+		expungeCollectedNodes();
+		if (lookupGeneration != generation) {
+			return;
+		}
+		Reference<Project> reference = owner != null ? new WeakReference<>(owner) : NO_OWNER;
+		for (Node node : nodes) {
+			nodeOwners.put(new NodeKey(node, collectedNodes), reference);
+		}
+	}
+
+	/**
+	 * Checks a cached reference is still usable.
+	 *
+	 * @param cached : cached reference, or null.
+	 * @return the reference, or null if there is none or if its project was collected.
+	 */
+	private static Reference<Project> validate(Reference<Project> cached) {
+		return cached == null || (cached != NO_OWNER && cached.get() == null) ? null : cached;
+	}
+
+	private void expungeCollectedNodes() {
+		Reference<? extends Node> collected;
+		while ((collected = collectedNodes.poll()) != null) {
+			nodeOwners.remove(collected);
+		}
+	}
+
+	/**
+	 * Invalidates the owner of a file, and all the owners of a folder content.
+	 *
+	 * @param file : file or folder renamed, moved or deleted.
+	 */
+	private synchronized void invalidate(FileObject file) {
+		boolean changed = false;
+		if (file.isFolder()) {
+			for (FileObject cachedFile : new ArrayList<>(fileOwners.keySet())) {
+				if (cachedFile != null && (cachedFile.equals(file) || FileUtil.isParentOf(file, cachedFile))) {
+					fileOwners.remove(cachedFile);
+					changed = true;
+				}
+			}
+		} else {
+			changed = fileOwners.remove(file) != null;
+		}
+		if (changed) {
+			generation++;
+			// The nodes do not know which file they were resolved from.
+			nodeOwners.clear();
+		}
+	}
+
+	/**
+	 * Listener of the file systems of the cached files.
+	 */
+	private final class FileListener extends FileChangeAdapter {
+
+		@Override
+		public void fileRenamed(FileRenameEvent event) {
+			invalidate(event.getFile());
+		}
+
+		@Override
+		public void fileDeleted(FileEvent event) {
+			invalidate(event.getFile());
+		}
+	}
+
+	/**
+	 * Weak key comparing the nodes by identity.
+	 */
+	private static final class NodeKey extends WeakReference<Node> {
+
+		private final int hash;
+
+		NodeKey(Node node, ReferenceQueue<Node> queue) {
+			super(node, queue);
+			this.hash = System.identityHashCode(node);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof NodeKey)) {
+				return false;
+			}
+			Node node = get();
+			return node != null && node == ((NodeKey) obj).get();
+		}
+	}
+}
@@ -0,0 +1,134 @@
+package fr.test.netbeans.test.example;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Page of a project : a synoptic, stored as raw data.
+ *
+ * A page loaded from a {@link ProjectStore} keeps a view of its stored content, which is only copied when its data is requested. A page whose
+ * data was not set since it was stored is saved again by copying its stored content.
+ *
+ * @author BGRY
+ */
+public class ProjectPage {
+
+	private final String _Name;
+	private byte[] _Data;
+	/**
+	 * Stored content, null if the page was never stored.
+	 */
+	private ByteBuffer _Stored;
+	private boolean _Dirty;
+	private volatile long _ModificationStamp;
+	/**
+	 * Project notified of the changes, or null.
+	 */
+	private volatile Project _Owner;
+
+	/**
+	 * Creates a new page.
+	 *
+	 * @param name : name of the page.
+	 * @param data : data of the page.
+	 */
+	public ProjectPage(String name, byte[] data) {
+		this._Name = name;
+		this._Data = data;
+		this._Dirty = true;
+		this._ModificationStamp = Project.nextModificationStamp();
+	}
+
+	/**
+	 * Creates a page loaded from a store.
+	 *
+	 * @param name : name of the page.
+	 * @param stored : stored content.
+	 */
+	ProjectPage(String name, ByteBuffer stored) {
+		this._Name = name;
+		this._Stored = stored;
+		this._Dirty = false;
+		this._ModificationStamp = Project.nextModificationStamp();
+	}
+
+	public String getName() {
+		return this._Name;
+	}
+
+	/**
+	 * Gets the data of the page, copied from the stored content on the first call.
+	 *
+	 * @return the data.
+	 */
+	public synchronized byte[] getData() {
+		if (this._Data == null) {
+			ByteBuffer stored = this._Stored.duplicate();
+			this._Data = new byte[stored.remaining()];
+			stored.get(this._Data);
+		}
+		return this._Data;
+	}
+
+	public synchronized void setData(byte[] value) {
+		this._Data = value;
+		this._Dirty = true;
+		this._ModificationStamp = Project.nextModificationStamp();
+		Project owner = this._Owner;
+		if (owner != null) {
+			owner.firePageEdited(this, value);
+		}
+	}
+
+	/**
+	 * Sets the project notified of the changes.
+	 *
+	 * @param owner : project of the page.
+	 * @return true if the page belonged to another project, or to none.
+	 */
+	boolean setOwner(Project owner) {
+		Project previous = this._Owner;
+		this._Owner = owner;
+		return previous != owner;
+	}
+
+	/**
+	 * Gets the stamp of the last change of the data.
+	 *
+	 * @return the modification stamp.
+	 */
+	public long getModificationStamp() {
+		return this._ModificationStamp;
+	}
+
+	/**
+	 * Checks if the data was set since the page was last stored.
+	 *
+	 * @return true if the page must be encoded again.
+	 */
+	public synchronized boolean isDirty() {
+		return this._Dirty;
+	}
+
+	/**
+	 * Gets the stored content.
+	 *
+	 * @return a view of the stored content, or null if the page was never stored.
+	 */
+	synchronized ByteBuffer getStored() {
+		return this._Stored != null ? this._Stored.duplicate() : null;
+	}
+
+	/**
+	 * Marks the page as stored.
+	 *
+	 * @param stored : new stored content.
+	 * @param data : data which was stored.
+	 */
+	synchronized void stored(ByteBuffer stored, byte[] data) {
+		this._Stored = stored;
+		// The data may have been set again while it was written.
+		if (this._Data == data) {
+			this._Dirty = false;
+		}
+	}
+}
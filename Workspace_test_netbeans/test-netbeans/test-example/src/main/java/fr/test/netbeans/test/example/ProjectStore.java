@@ -0,0 +1,395 @@
+package fr.test.netbeans.test.example;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Binary store of a project.
+ *
+ * The file starts with a header and a directory of the sections, followed by a table of the strings and by the sections :
+ * <pre>
+ * header    : magic (int), format version (short), reserved (short), section count (int), string count (int)
+ * directory : for each section, type (int), name (index in the string table, int), offset (long), length (int)
+ * strings   : for each string, length (int) and UTF-8 bytes
+ * sections  : content of the sections
+ * </pre>
+ *
+ * The file is mapped in memory when it is opened : the information section is decoded, the pages are views of the mapping, copied only when
+ * their data is requested. A save writes a temporary file which then replaces the store : the pages which did not change are copied as stored,
+ * without being decoded again, as well as the sections of unknown types written by newer versions. A mapped file cannot be replaced on every
+ * platform, so a save first copies the stored contents still viewing the mapping on the heap, and the saved pages keep their heap contents.
+ *
+ * @author BGRY
+ */
+public final class ProjectStore {
+
+	private static final Logger logger = Logger.getLogger(ProjectStore.class.getName());
+	private static final int MAGIC = 0x5450524A; // "TPRJ"
+	private static final short FORMAT_VERSION = 1;
+	private static final int HEADER_LENGTH = 16;
+	private static final int DIRECTORY_ENTRY_LENGTH = 20;
+	private static final int NO_STRING = -1;
+	private static final int WRITE_CHUNK = 64 * 1024;
+	static final int SECTION_INFORMATION = 1;
+	static final int SECTION_PAGE = 2;
+
+	private final Path file;
+	/**
+	 * Sections of unknown types, kept as stored.
+	 */
+	private final List<Section> unknownSections = new ArrayList<>();
+
+	private ProjectStore(Path file) {
+		this.file = file;
+	}
+
+	/**
+	 * Gets the file of the store.
+	 *
+	 * @return the file.
+	 */
+	public Path getFile() {
+		return file;
+	}
+
+	/**
+	 * Opens a store and loads its project. The data of the pages is read from the file when it is requested.
+	 *
+	 * @param file : store file.
+	 * @param project : project to fill, its informations and pages are replaced.
+	 * @return the store.
+	 * @throws IOException if the file cannot be read or is not a project store.
+	 */
+	public static ProjectStore open(Path file, Project project) throws IOException {
+		ProjectStore store = new ProjectStore(file);
+		store.load(map(file), project);
+		return store;
+	}
+
+	/**
+	 * Creates a store for a new project. Nothing is written until the project is saved.
+	 *
+	 * @param file : store file.
+	 * @return the store.
+	 */
+	public static ProjectStore create(Path file) {
+		return new ProjectStore(file);
+	}
+
+	private static MappedByteBuffer map(Path file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			if (channel.size() > Integer.MAX_VALUE) {
+				throw new IOException("Project store too large: " + file);
+			}
+			// The mapping stays valid once the channel is closed.
+			return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+	}
+
+	/**
+	 * Loads a project from the mapping of the file.
+	 */
+	private void load(ByteBuffer buffer, Project project) throws IOException {
+		try {
+			if (buffer.getInt(0) != MAGIC) {
+				throw new IOException("Not a project store: " + file);
+			}
+			short version = buffer.getShort(4);
+			if (version > FORMAT_VERSION) {
+				throw new IOException("Project store " + file + " has format version " + version + ", newer than " + FORMAT_VERSION);
+			}
+			int sectionCount = buffer.getInt(8);
+			int stringCount = buffer.getInt(12);
+			String[] strings = readStrings(buffer, HEADER_LENGTH + sectionCount * DIRECTORY_ENTRY_LENGTH, stringCount);
+
+			List<ProjectPage> pages = new ArrayList<>();
+			ProjectInformation informations = new ProjectInformation();
+			unknownSections.clear();
+			for (int i = 0; i < sectionCount; i++) {
+				int entry = HEADER_LENGTH + i * DIRECTORY_ENTRY_LENGTH;
+				int type = buffer.getInt(entry);
+				int name = buffer.getInt(entry + 4);
+				ByteBuffer content = slice(buffer, buffer.getLong(entry + 8), buffer.getInt(entry + 16));
+				switch (type) {
+					case SECTION_INFORMATION:
+						informations = readInformations(content, strings);
+						break;
+					case SECTION_PAGE:
+						pages.add(new ProjectPage(strings[name], content));
+						break;
+					default:
+						logger.log(Level.FINE, "Keeping section of unknown type {0} in {1}", new Object[]{type, file});
+						unknownSections.add(new Section(type, name != NO_STRING ? strings[name] : null, content));
+						break;
+				}
+			}
+			project.setInformations(informations);
+			project.setPages(pages);
+		} catch (IndexOutOfBoundsException | IllegalArgumentException ex) {
+			throw new IOException("Corrupted project store: " + file, ex);
+		}
+	}
+
+	private static ByteBuffer slice(ByteBuffer buffer, long offset, int length) {
+		if (offset < 0 || offset + length > buffer.limit()) {
+			throw new IndexOutOfBoundsException("Section out of the file: " + offset + "+" + length);
+		}
+		ByteBuffer content = buffer.duplicate();
+		content.position((int) offset);
+		content.limit((int) offset + length);
+		return content.slice();
+	}
+
+	private static String[] readStrings(ByteBuffer buffer, int offset, int count) {
+		ByteBuffer in = buffer.duplicate();
+		in.position(offset);
+		String[] strings = new String[count];
+		for (int i = 0; i < count; i++) {
+			byte[] bytes = new byte[in.getInt()];
+			in.get(bytes);
+			strings[i] = new String(bytes, StandardCharsets.UTF_8);
+		}
+		return strings;
+	}
+
+	private static ProjectInformation readInformations(ByteBuffer content, String[] strings) {
+		long created = content.getLong(12);
+		long modified = content.getLong(20);
+		return new ProjectInformation(new ProjectInformationSnapshot(
+				getString(strings, content.getInt(0)),
+				getString(strings, content.getInt(4)),
+				created != Long.MIN_VALUE ? new Date(created) : null,
+				modified != Long.MIN_VALUE ? new Date(modified) : null,
+				getString(strings, content.getInt(8)),
+				Project.nextModificationStamp()));
+	}
+
+	private static String getString(String[] strings, int index) {
+		return index != NO_STRING ? strings[index] : null;
+	}
+
+	/**
+	 * Saves a project. The project is written in a temporary file which then replaces the store. The store no longer refers to the mapping of
+	 * the replaced file.
+	 *
+	 * @param project : project to save.
+	 * @throws IOException if the project cannot be written.
+	 */
+	public void save(Project project) throws IOException {
+		save(project, IoThrottle.UNLIMITED);
+	}
+
+	/**
+	 * Saves a project with a bounded bandwidth.
+	 *
+	 * @param project : project to save.
+	 * @param throttle : bandwidth of the writes.
+	 * @throws IOException if the project cannot be written.
+	 */
+	synchronized void save(Project project, IoThrottle throttle) throws IOException {
+		StringTable strings = new StringTable();
+		List<Section> sections = new ArrayList<>();
+		sections.add(new Section(SECTION_INFORMATION, null, writeInformations(project.getInformations().getSnapshot(), strings)));
+		List<ProjectPage> pages = new ArrayList<>(project.getPages());
+		List<byte[]> savedData = new ArrayList<>(pages.size());
+		for (ProjectPage page : pages) {
+			ByteBuffer stored = page.getStored();
+			byte[] data = null;
+			if (stored == null || page.isDirty()) {
+				data = page.getData();
+				stored = ByteBuffer.wrap(data);
+			} else {
+				stored = toHeap(stored);
+			}
+			savedData.add(data);
+			sections.add(new Section(SECTION_PAGE, page.getName(), stored));
+		}
+		for (int i = 0; i < unknownSections.size(); i++) {
+			Section section = unknownSections.get(i);
+			unknownSections.set(i, new Section(section.getType(), section.getName(), toHeap(section.getContent())));
+		}
+		sections.addAll(unknownSections);
+
+		Files.createDirectories(file.toAbsolutePath().getParent());
+		Path tmpFile = file.resolveSibling(file.getFileName() + ".tmp");
+		try {
+			write(tmpFile, sections, strings, throttle);
+			Files.move(tmpFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(tmpFile);
+		}
+
+		// The pages now refer to their saved contents, the new file is not mapped so that the next save can replace it.
+		for (int i = 0; i < pages.size(); i++) {
+			pages.get(i).stored(sections.get(i + 1).getContent(), savedData.get(i));
+		}
+	}
+
+	/**
+	 * Copies a content on the heap if it is a view of a mapping.
+	 *
+	 * @param content : content.
+	 * @return the content, or its copy.
+	 */
+	private static ByteBuffer toHeap(ByteBuffer content) {
+		if (!content.isDirect()) {
+			return content;
+		}
+		ByteBuffer copy = ByteBuffer.allocate(content.remaining());
+		copy.put(content.duplicate());
+		copy.flip();
+		return copy;
+	}
+
+	private static ByteBuffer writeInformations(ProjectInformationSnapshot informations, StringTable strings) {
+		ByteBuffer content = ByteBuffer.allocate(28);
+		content.putInt(strings.indexOf(informations.getName()));
+		content.putInt(strings.indexOf(informations.getAuthor()));
+		content.putInt(strings.indexOf(informations.getComment()));
+		content.putLong(informations.getCreated() != null ? informations.getCreated().getTime() : Long.MIN_VALUE);
+		content.putLong(informations.getModified() != null ? informations.getModified().getTime() : Long.MIN_VALUE);
+		content.flip();
+		return content;
+	}
+
+	private static void write(Path target, List<Section> sections, StringTable strings, IoThrottle throttle) throws IOException {
+		for (Section section : sections) {
+			strings.indexOf(section.getName());
+		}
+		int directoryLength = sections.size() * DIRECTORY_ENTRY_LENGTH;
+		ByteBuffer head = ByteBuffer.allocate(HEADER_LENGTH + directoryLength + strings.getLength());
+		head.putInt(MAGIC);
+		head.putShort(FORMAT_VERSION);
+		head.putShort((short) 0);
+		head.putInt(sections.size());
+		head.putInt(strings.size());
+		long offset = head.capacity();
+		for (Section section : sections) {
+			head.putInt(section.getType());
+			head.putInt(strings.indexOf(section.getName()));
+			head.putLong(offset);
+			head.putInt(section.getLength());
+			offset += section.getLength();
+		}
+		strings.write(head);
+		head.flip();
+
+		try (FileChannel channel = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+				StandardOpenOption.WRITE)) {
+			write(channel, head, throttle);
+			for (Section section : sections) {
+				write(channel, section.getContent(), throttle);
+			}
+			channel.force(true);
+		}
+	}
+
+	/**
+	 * Writes a buffer by chunks, each chunk waiting for the throttle.
+	 */
+	private static void write(FileChannel channel, ByteBuffer buffer, IoThrottle throttle) throws IOException {
+		while (buffer.hasRemaining()) {
+			ByteBuffer chunk = buffer.duplicate();
+			chunk.limit(chunk.position() + Math.min(WRITE_CHUNK, chunk.remaining()));
+			throttle.acquire(chunk.remaining());
+			buffer.position(buffer.position() + channel.write(chunk));
+		}
+	}
+
+	/**
+	 * Section of the file.
+	 */
+	private static final class Section {
+
+		private final int type;
+		private final String name;
+		private final ByteBuffer content;
+
+		Section(int type, String name, ByteBuffer content) {
+			this.type = type;
+			this.name = name;
+			this.content = content;
+		}
+
+		int getType() {
+			return type;
+		}
+
+		String getName() {
+			return name;
+		}
+
+		int getLength() {
+			return content.remaining();
+		}
+
+		/**
+		 * Gets the content.
+		 *
+		 * @return a view of the content, which can be consumed.
+		 */
+		ByteBuffer getContent() {
+			return content.duplicate();
+		}
+	}
+
+	/**
+	 * Table of the distinct strings of the file.
+	 */
+	private static final class StringTable {
+
+		private final Map<String, Integer> indexes = new LinkedHashMap<>();
+		private final List<byte[]> encoded = new ArrayList<>();
+		private int length = 0;
+
+		/**
+		 * Gets the index of a string, adding it to the table if needed.
+		 *
+		 * @param string : string, or null.
+		 * @return the index, or NO_STRING for null.
+		 */
+		int indexOf(String string) {
+			if (string == null) {
+				return NO_STRING;
+			}
+			Integer index = indexes.get(string);
+			if (index == null) {
+				index = encoded.size();
+				byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+				indexes.put(string, index);
+				encoded.add(bytes);
+				length += 4 + bytes.length;
+			}
+			return index;
+		}
+
+		int size() {
+			return encoded.size();
+		}
+
+		int getLength() {
+			return length;
+		}
+
+		void write(ByteBuffer out) {
+			for (byte[] bytes : encoded) {
+				out.putInt(bytes.length);
+				out.put(bytes);
+			}
+		}
+	}
+}
@@ -0,0 +1,646 @@
+package fr.test.netbeans.test.example;
+
+import java.awt.Shape;
+import java.awt.geom.Path2D;
+import java.awt.geom.PathIterator;
+import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.imageio.ImageIO;
+import javax.swing.SwingUtilities;
+import org.openide.filesystems.FileObject;
+import org.openide.filesystems.FileUtil;
+import org.openide.modules.InstalledFileLocator;
+import org.openide.modules.Places;
+import org.openide.util.RequestProcessor;
+
+/**
+ * Catalog of the shapes of the palette.
+ *
+ * The shape definitions (.shape files, see {@link ShapeParser}) are discovered in the "Shapes" folder of the module layers and in the
+ * "conf/shapes" folder of the installation, then parsed in parallel. The parsed shapes are kept in an index in the cache directory of the
+ * userdir, keyed by the path, size and modification date of their definition : a definition which did not change is not parsed again. The
+ * thumbnails are also cached on disk, keyed by the content hash of the definition.
+ *
+ * The listeners first receive the catalog with placeholders for the shapes which are not loaded yet, then the shapes as they are loaded. If
+ * some definitions cannot be read, they receive the catalog without them once all the shapes are loaded.
+ *
+ * @author BGRY
+ */
+public final class ShapeCatalog {
+
+	private static final Logger logger = Logger.getLogger(ShapeCatalog.class.getName());
+	private static final RequestProcessor RP = new RequestProcessor(ShapeCatalog.class.getName(), 1);
+	private static final RequestProcessor PARSER = new RequestProcessor(ShapeCatalog.class.getName() + ".parser",
+			Runtime.getRuntime().availableProcessors());
+	private static final int MAGIC = 0x53484958; // "SHIX"
+	private static final int FORMAT_VERSION = 1;
+	private static final String SHAPE_EXTENSION = "shape";
+	private static final String LAYER_FOLDER = "Shapes";
+	private static final String CONF_FOLDER = "conf/shapes";
+	/**
+	 * Cache directory of the catalog, relative to the cache directory of the userdir.
+	 */
+	private static final String CACHE_DIRECTORY = "test-example/shapes";
+	private static ShapeCatalog def = null;
+
+	/**
+	 * Receives the shapes of the catalog, on the EDT.
+	 */
+	public interface Listener {
+
+		/**
+		 * Called with the whole catalog, when the listener is added, when the catalog is discovered and when unreadable shapes are removed.
+		 *
+		 * @param entries : shapes of the catalog, {@link ShapeEntry#LOADING} for the shapes which are not loaded yet.
+		 */
+		void catalogReset(List<ShapeEntry> entries);
+
+		/**
+		 * Called when shapes are loaded.
+		 *
+		 * @param loaded : loaded shapes by index in the catalog.
+		 */
+		void shapesLoaded(Map<Integer, ShapeEntry> loaded);
+	}
+
+	private final Path cacheFile;
+	private final Path thumbnailDirectory;
+	private final List<Listener> listeners = new ArrayList<>();
+	/**
+	 * Shapes of the catalog, guarded by this.
+	 */
+	private ShapeEntry[] entries = new ShapeEntry[0];
+	/**
+	 * Shapes loaded since the listeners were last notified, guarded by this.
+	 */
+	private Map<Integer, ShapeEntry> unpublished = null;
+	private boolean started = false;
+
+	/**
+	 * Creates a catalog.
+	 *
+	 * @param cacheDirectory : directory of the index and of the thumbnails.
+	 */
+	ShapeCatalog(Path cacheDirectory) {
+		this.cacheFile = cacheDirectory.resolve("catalog.dat");
+		this.thumbnailDirectory = cacheDirectory.resolve("thumbnails");
+	}
+
+	/**
+	 * Gets the catalog of the application.
+	 *
+	 * @return the default catalog.
+	 */
+	public static synchronized ShapeCatalog getDefault() {
+		if (def == null) {
+			def = new ShapeCatalog(Places.getCacheSubdirectory(CACHE_DIRECTORY).toPath());
+		}
+		return def;
+	}
+
+	/**
+	 * Starts loading the catalog in background, if it is not started yet.
+	 */
+	public void start() {
+		synchronized (this) {
+			if (started) {
+				return;
+			}
+			started = true;
+		}
+		RP.post(new Runnable() {
+			@Override
+			public void run() {
+				load(discover());
+			}
+		});
+	}
+
+	/**
+	 * Adds a listener, which immediately receives the current catalog. Starts loading the catalog if needed. Must be called on the EDT.
+	 *
+	 * @param listener : listener to add.
+	 */
+	public void addListener(Listener listener) {
+		listeners.add(listener);
+		listener.catalogReset(getEntries());
+		start();
+	}
+
+	/**
+	 * Removes a listener. Must be called on the EDT.
+	 *
+	 * @param listener : listener to remove.
+	 */
+	public void removeListener(Listener listener) {
+		listeners.remove(listener);
+	}
+
+	/**
+	 * Gets the shapes of the catalog.
+	 *
+	 * @return the shapes, {@link ShapeEntry#LOADING} for the shapes which are not loaded yet.
+	 */
+	public synchronized List<ShapeEntry> getEntries() {
+		return Collections.unmodifiableList(new ArrayList<>(Arrays.asList(entries)));
+	}
+
+	/**
+	 * Gets a thumbnail factory reading and writing the thumbnails in the disk cache.
+	 *
+	 * @return the thumbnail factory.
+	 */
+	public ShapeThumbnailCache.ThumbnailFactory getThumbnailFactory() {
+		return new DiskThumbnailFactory(thumbnailDirectory, new ShapeThumbnailCache.OutlineRenderer());
+	}
+
+	/**
+	 * Discovers the shape definitions, those of the layers first.
+	 *
+	 * @return the definitions.
+	 */
+	private static List<FileObject> discover() {
+		List<FileObject> definitions = new ArrayList<>();
+		collect(FileUtil.getConfigFile(LAYER_FOLDER), definitions);
+		File confFolder = InstalledFileLocator.getDefault().locate(CONF_FOLDER, "test-example", false);
+		if (confFolder != null) {
+			collect(FileUtil.toFileObject(FileUtil.normalizeFile(confFolder)), definitions);
+		}
+		return definitions;
+	}
+
+	private static void collect(FileObject folder, List<FileObject> definitions) {
+		if (folder == null) {
+			return;
+		}
+		for (FileObject child : FileUtil.getOrder(Arrays.asList(folder.getChildren()), false)) {
+			if (child.isFolder()) {
+				collect(child, definitions);
+			} else if (SHAPE_EXTENSION.equals(child.getExt())) {
+				definitions.add(child);
+			}
+		}
+	}
+
+	/**
+	 * Loads the catalog : publishes the shapes of the index with placeholders for the others, then parses the new or modified definitions in
+	 * parallel and updates the index.
+	 *
+	 * @param definitions : shape definitions.
+	 */
+	void load(final List<FileObject> definitions) {
+		long start = System.nanoTime();
+		Map<String, IndexedShape> cached = read(cacheFile);
+		final IndexedShape[] index = new IndexedShape[definitions.size()];
+		ShapeEntry[] initial = new ShapeEntry[definitions.size()];
+		List<Integer> toParse = new ArrayList<>();
+		for (int i = 0; i < index.length; i++) {
+			FileObject definition = definitions.get(i);
+			IndexedShape indexed = cached.get(getKey(definition));
+			if (indexed != null && indexed.matches(definition)) {
+				index[i] = indexed;
+				initial[i] = indexed.getEntry();
+			} else {
+				toParse.add(i);
+				initial[i] = ShapeEntry.LOADING;
+			}
+		}
+		synchronized (this) {
+			entries = initial;
+			unpublished = null;
+		}
+		SwingUtilities.invokeLater(new Runnable() {
+			@Override
+			public void run() {
+				fireCatalogReset();
+			}
+		});
+
+		final AtomicInteger failed = new AtomicInteger();
+		List<RequestProcessor.Task> tasks = new ArrayList<>(toParse.size());
+		for (final int i : toParse) {
+			tasks.add(PARSER.post(new Runnable() {
+				@Override
+				public void run() {
+					index[i] = parse(definitions.get(i));
+					if (index[i] != null) {
+						loaded(i, index[i].getEntry());
+					} else {
+						failed.incrementAndGet();
+					}
+				}
+			}));
+		}
+		for (RequestProcessor.Task task : tasks) {
+			task.waitFinished();
+		}
+		if (failed.get() > 0) {
+			removeUnreadable(index);
+		}
+
+		if (!toParse.isEmpty() || cached.size() != index.length) {
+			write(cacheFile, index);
+			pruneThumbnails(index);
+		}
+		logger.log(Level.INFO, "Shape catalog loaded in {0} ms ({1} shapes, {2} parsed, {3} unreadable)", new Object[]{
+			TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), index.length, toParse.size(), failed.get()});
+	}
+
+	/**
+	 * Removes the placeholders of the shapes which cannot be read, once all the shapes are parsed, and sends the catalog to the listeners again.
+	 *
+	 * @param index : parsed shapes, null for the unreadable ones.
+	 */
+	private void removeUnreadable(IndexedShape[] index) {
+		synchronized (this) {
+			List<ShapeEntry> readable = new ArrayList<>(index.length);
+			for (int i = 0; i < index.length; i++) {
+				if (index[i] != null) {
+					readable.add(entries[i]);
+				}
+			}
+			entries = readable.toArray(new ShapeEntry[readable.size()]);
+			// The loaded shapes not published yet are part of the new catalog, their indexes are obsolete.
+			unpublished = null;
+		}
+		SwingUtilities.invokeLater(new Runnable() {
+			@Override
+			public void run() {
+				fireCatalogReset();
+			}
+		});
+	}
+
+	/**
+	 * Records a loaded shape, the listeners are notified of the shapes loaded meanwhile on the next EDT pass.
+	 *
+	 * @param i : index of the shape in the catalog.
+	 * @param entry : shape.
+	 */
+	private void loaded(int i, ShapeEntry entry) {
+		synchronized (this) {
+			entries[i] = entry;
+			if (unpublished != null) {
+				unpublished.put(i, entry);
+				return;
+			}
+			unpublished = new TreeMap<>();
+			unpublished.put(i, entry);
+		}
+		SwingUtilities.invokeLater(new Runnable() {
+			@Override
+			public void run() {
+				fireShapesLoaded();
+			}
+		});
+	}
+
+	private void fireCatalogReset() {
+		List<ShapeEntry> current = getEntries();
+		for (Listener listener : new ArrayList<>(listeners)) {
+			listener.catalogReset(current);
+		}
+	}
+
+	private void fireShapesLoaded() {
+		Map<Integer, ShapeEntry> loaded;
+		synchronized (this) {
+			loaded = unpublished;
+			unpublished = null;
+		}
+		if (loaded == null) {
+			return;
+		}
+		loaded = Collections.unmodifiableMap(loaded);
+		for (Listener listener : new ArrayList<>(listeners)) {
+			listener.shapesLoaded(loaded);
+		}
+	}
+
+	private static String getKey(FileObject definition) {
+		return definition.toURL().toExternalForm();
+	}
+
+	/**
+	 * Parses a shape definition.
+	 *
+	 * @param definition : shape definition.
+	 * @return the indexed shape, with an empty outline if the definition is not valid, or null if it cannot be read.
+	 */
+	private static IndexedShape parse(FileObject definition) {
+		byte[] content;
+		try {
+			content = definition.asBytes();
+		} catch (IOException ex) {
+			logger.log(Level.INFO, "Cannot read shape definition " + definition, ex);
+			return null;
+		}
+		String hash = hash(content);
+		ShapeEntry entry;
+		try {
+			entry = ShapeParser.parse(hash, definition.getName(), content);
+		} catch (IOException ex) {
+			logger.log(Level.INFO, "Invalid shape definition " + definition, ex);
+			entry = new ShapeEntry(hash, definition.getName(), ex.getMessage(), null);
+		}
+		return new IndexedShape(getKey(definition), definition.getSize(), definition.lastModified().getTime(), entry);
+	}
+
+	private static String hash(byte[] content) {
+		try {
+			StringBuilder hash = new StringBuilder(40);
+			for (byte b : MessageDigest.getInstance("SHA-1").digest(content)) {
+				hash.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+			}
+			return hash.toString();
+		} catch (NoSuchAlgorithmException ex) {
+			throw new IllegalStateException(ex);
+		}
+	}
+
+	/**
+	 * Reads the index file.
+	 *
+	 * @param cacheFile : index file.
+	 * @return indexed shapes by key, empty if the index is missing or unreadable.
+	 */
+	private static Map<String, IndexedShape> read(Path cacheFile) {
+		Map<String, IndexedShape> cached = new LinkedHashMap<>();
+		if (!Files.isRegularFile(cacheFile)) {
+			return cached;
+		}
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(cacheFile)))) {
+			if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+				logger.log(Level.INFO, "Ignoring shape catalog cache with an unknown format: {0}", cacheFile);
+				return cached;
+			}
+			int shapeCount = in.readInt();
+			for (int i = 0; i < shapeCount; i++) {
+				String key = in.readUTF();
+				long size = in.readLong();
+				long lastModified = in.readLong();
+				String id = in.readUTF();
+				String name = in.readUTF();
+				String description = in.readBoolean() ? in.readUTF() : null;
+				Shape outline = in.readBoolean() ? readOutline(in) : null;
+				cached.put(key, new IndexedShape(key, size, lastModified, new ShapeEntry(id, name, description, outline)));
+			}
+		} catch (IOException ex) {
+			logger.log(Level.INFO, "Ignoring unreadable shape catalog cache: " + cacheFile, ex);
+			cached.clear();
+		}
+		return cached;
+	}
+
+	/**
+	 * Writes the index file. The file is written in a temporary file which then replaces the previous one.
+	 *
+	 * @param cacheFile : index file.
+	 * @param index : indexed shapes, null for the definitions which could not be read.
+	 */
+	private static void write(Path cacheFile, IndexedShape[] index) {
+		try {
+			Files.createDirectories(cacheFile.getParent());
+			Path tmpFile = cacheFile.resolveSibling(cacheFile.getFileName() + ".tmp");
+			try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmpFile)))) {
+				out.writeInt(MAGIC);
+				out.writeInt(FORMAT_VERSION);
+				int shapeCount = 0;
+				for (IndexedShape indexed : index) {
+					shapeCount += indexed != null ? 1 : 0;
+				}
+				out.writeInt(shapeCount);
+				for (IndexedShape indexed : index) {
+					if (indexed == null) {
+						continue;
+					}
+					ShapeEntry entry = indexed.getEntry();
+					out.writeUTF(indexed.getKey());
+					out.writeLong(indexed.getSize());
+					out.writeLong(indexed.getLastModified());
+					out.writeUTF(entry.getId());
+					out.writeUTF(entry.getName());
+					out.writeBoolean(entry.getDescription() != null);
+					if (entry.getDescription() != null) {
+						out.writeUTF(entry.getDescription());
+					}
+					out.writeBoolean(entry.getOutline() != null);
+					if (entry.getOutline() != null) {
+						writeOutline(out, entry.getOutline());
+					}
+				}
+			}
+			Files.move(tmpFile, cacheFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException ex) {
+			logger.log(Level.WARNING, "Cannot write shape catalog cache: " + cacheFile, ex);
+		}
+	}
+
+	/**
+	 * Writes the segments of an outline : the winding rule, the number of segments, then the type and the coordinates of each segment.
+	 */
+	private static void writeOutline(DataOutputStream out, Shape outline) throws IOException {
+		List<float[]> segments = new ArrayList<>();
+		PathIterator iterator = outline.getPathIterator(null);
+		int windingRule = iterator.getWindingRule();
+		for (; !iterator.isDone(); iterator.next()) {
+			float[] coordinates = new float[6];
+			int type = iterator.currentSegment(coordinates);
+			float[] segment = new float[1 + getCoordinateCount(type)];
+			segment[0] = type;
+			System.arraycopy(coordinates, 0, segment, 1, segment.length - 1);
+			segments.add(segment);
+		}
+		out.writeByte(windingRule);
+		out.writeInt(segments.size());
+		for (float[] segment : segments) {
+			out.writeByte((int) segment[0]);
+			for (int i = 1; i < segment.length; i++) {
+				out.writeFloat(segment[i]);
+			}
+		}
+	}
+
+	private static Shape readOutline(DataInputStream in) throws IOException {
+		Path2D.Float outline = new Path2D.Float(in.readByte());
+		int segmentCount = in.readInt();
+		float[] c = new float[6];
+		for (int i = 0; i < segmentCount; i++) {
+			int type = in.readByte();
+			for (int j = 0; j < getCoordinateCount(type); j++) {
+				c[j] = in.readFloat();
+			}
+			switch (type) {
+				case PathIterator.SEG_MOVETO:
+					outline.moveTo(c[0], c[1]);
+					break;
+				case PathIterator.SEG_LINETO:
+					outline.lineTo(c[0], c[1]);
+					break;
+				case PathIterator.SEG_QUADTO:
+					outline.quadTo(c[0], c[1], c[2], c[3]);
+					break;
+				case PathIterator.SEG_CUBICTO:
+					outline.curveTo(c[0], c[1], c[2], c[3], c[4], c[5]);
+					break;
+				default:
+					outline.closePath();
+					break;
+			}
+		}
+		return outline;
+	}
+
+	private static int getCoordinateCount(int segmentType) {
+		switch (segmentType) {
+			case PathIterator.SEG_MOVETO:
+			case PathIterator.SEG_LINETO:
+				return 2;
+			case PathIterator.SEG_QUADTO:
+				return 4;
+			case PathIterator.SEG_CUBICTO:
+				return 6;
+			default:
+				return 0;
+		}
+	}
+
+	/**
+	 * Deletes the thumbnails of the shapes which are no longer in the catalog.
+	 *
+	 * @param index : indexed shapes.
+	 */
+	private void pruneThumbnails(IndexedShape[] index) {
+		if (!Files.isDirectory(thumbnailDirectory)) {
+			return;
+		}
+		List<String> ids = new ArrayList<>(index.length);
+		for (IndexedShape indexed : index) {
+			if (indexed != null) {
+				ids.add(indexed.getEntry().getId());
+			}
+		}
+		Collections.sort(ids);
+		try (DirectoryStream<Path> thumbnails = Files.newDirectoryStream(thumbnailDirectory, "*.png")) {
+			for (Path thumbnail : thumbnails) {
+				String fileName = thumbnail.getFileName().toString();
+				int separator = fileName.indexOf('-');
+				if (separator < 0 || Collections.binarySearch(ids, fileName.substring(0, separator)) < 0) {
+					Files.deleteIfExists(thumbnail);
+				}
+			}
+		} catch (IOException ex) {
+			logger.log(Level.INFO, "Cannot prune the shape thumbnails " + thumbnailDirectory, ex);
+		}
+	}
+
+	/**
+	 * Shape of the index, with the state of its definition when it was parsed.
+	 */
+	private static final class IndexedShape {
+
+		private final String key;
+		private final long size;
+		private final long lastModified;
+		private final ShapeEntry entry;
+
+		IndexedShape(String key, long size, long lastModified, ShapeEntry entry) {
+			this.key = key;
+			this.size = size;
+			this.lastModified = lastModified;
+			this.entry = entry;
+		}
+
+		String getKey() {
+			return key;
+		}
+
+		long getSize() {
+			return size;
+		}
+
+		long getLastModified() {
+			return lastModified;
+		}
+
+		ShapeEntry getEntry() {
+			return entry;
+		}
+
+		/**
+		 * Checks if the definition did not change since it was parsed.
+		 *
+		 * @param definition : shape definition.
+		 * @return true if the definition has the same size and modification date.
+		 */
+		boolean matches(FileObject definition) {
+			return size == definition.getSize() && lastModified == definition.lastModified().getTime();
+		}
+	}
+
+	/**
+	 * Thumbnail factory reading the thumbnails from the disk cache, and writing those it renders. The thumbnails are named after the content hash
+	 * of the shapes and their size.
+	 */
+	static final class DiskThumbnailFactory implements ShapeThumbnailCache.ThumbnailFactory {
+
+		private final Path directory;
+		private final ShapeThumbnailCache.ThumbnailFactory renderer;
+
+		DiskThumbnailFactory(Path directory, ShapeThumbnailCache.ThumbnailFactory renderer) {
+			this.directory = directory;
+			this.renderer = renderer;
+		}
+
+		@Override
+		public BufferedImage createThumbnail(ShapeEntry entry, int size) {
+			Path file = directory.resolve(entry.getId() + "-" + size + ".png");
+			if (Files.isRegularFile(file)) {
+				try {
+					BufferedImage thumbnail = ImageIO.read(file.toFile());
+					if (thumbnail != null) {
+						return thumbnail;
+					}
+				} catch (IOException ex) {
+					logger.log(Level.FINE, "Cannot read thumbnail " + file, ex);
+				}
+			}
+			BufferedImage thumbnail = renderer.createThumbnail(entry, size);
+			try {
+				Files.createDirectories(directory);
+				Path tmpFile = Files.createTempFile(directory, entry.getId(), ".tmp");
+				try {
+					ImageIO.write(thumbnail, "png", tmpFile.toFile());
+					Files.move(tmpFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+				} finally {
+					Files.deleteIfExists(tmpFile);
+				}
+			} catch (IOException ex) {
+				logger.log(Level.INFO, "Cannot write thumbnail " + file, ex);
+			}
+			return thumbnail;
+		}
+	}
+}
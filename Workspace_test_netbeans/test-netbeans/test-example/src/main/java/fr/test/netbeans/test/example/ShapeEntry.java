@@ -0,0 +1,66 @@
+package fr.test.netbeans.test.example;
+
+import java.awt.Shape;
+
+/**
+ * Entry of the shape palette : a simple shape which can be imported in a Synoptic.
+ *
+ * @author BGRY
+ */
+public final class ShapeEntry {
+
+	/**
+	 * Entry displayed in place of a shape which is not loaded yet.
+	 */
+	public static final ShapeEntry LOADING = new ShapeEntry(null, "...", null, null);
+
+	private final String id;
+	private final String name;
+	private final String description;
+	private final Shape outline;
+
+	/**
+	 * Creates an entry.
+	 *
+	 * @param id : unique identifier of the shape, the hash of its definition for the shapes of the catalog.
+	 * @param name : display name.
+	 * @param description : description, displayed as tooltip.
+	 * @param outline : geometry of the shape, in its own coordinates.
+	 */
+	public ShapeEntry(String id, String name, String description, Shape outline) {
+		this.id = id;
+		this.name = name;
+		this.description = description;
+		this.outline = outline;
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public String getDescription() {
+		return description;
+	}
+
+	public Shape getOutline() {
+		return outline;
+	}
+
+	/**
+	 * Checks if the entry stands for a shape which is not loaded yet.
+	 *
+	 * @return true for a loading placeholder.
+	 */
+	public boolean isLoading() {
+		return id == null;
+	}
+
+	@Override
+	public String toString() {
+		return name;
+	}
+}
@@ -0,0 +1,64 @@
+package fr.test.netbeans.test.example;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import javax.swing.AbstractListModel;
+
+/**
+ * List model of the shape palette. Entries are appended by batches, each batch firing a single event. Must be used on the EDT.
+ *
+ * @author BGRY
+ */
+public final class ShapePaletteModel extends AbstractListModel<ShapeEntry> {
+
+	private static final long serialVersionUID = 1L;
+	private final List<ShapeEntry> entries = new ArrayList<>();
+
+	@Override
+	public int getSize() {
+		return entries.size();
+	}
+
+	@Override
+	public ShapeEntry getElementAt(int index) {
+		return entries.get(index);
+	}
+
+	/**
+	 * Appends entries at the end of the palette.
+	 *
+	 * @param added : entries to append.
+	 */
+	public void addAll(Collection<ShapeEntry> added) {
+		if (added.isEmpty()) {
+			return;
+		}
+		int first = entries.size();
+		entries.addAll(added);
+		fireIntervalAdded(this, first, entries.size() - 1);
+	}
+
+	/**
+	 * Replaces an entry.
+	 *
+	 * @param index : index of the entry.
+	 * @param entry : new entry.
+	 */
+	public void set(int index, ShapeEntry entry) {
+		entries.set(index, entry);
+		fireContentsChanged(this, index, index);
+	}
+
+	/**
+	 * Removes all the entries.
+	 */
+	public void clear() {
+		if (entries.isEmpty()) {
+			return;
+		}
+		int last = entries.size() - 1;
+		entries.clear();
+		fireIntervalRemoved(this, 0, last);
+	}
+}
@@ -0,0 +1,105 @@
+package fr.test.netbeans.test.example;
+
+import java.awt.geom.IllegalPathStateException;
+import java.awt.geom.Path2D;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Properties;
+
+/**
+ * Parser of the shape definitions (.shape files).
+ *
+ * A definition is a properties file :
+ * <pre>
+ * name=Valve
+ * description=Two way valve
+ * path=M 0 0 L 20 10 L 20 0 L 0 10 Z
+ * </pre>
+ *
+ * The path uses the absolute commands of the SVG path data : M (move), L (line), Q (quadratic curve), C (cubic curve) and Z (close).
+ *
+ * @author BGRY
+ */
+final class ShapeParser {
+
+	private ShapeParser() {
+	}
+
+	/**
+	 * Parses a shape definition.
+	 *
+	 * @param id : identifier of the shape.
+	 * @param defaultName : name of the shape if the definition has none.
+	 * @param content : content of the definition.
+	 * @return the shape.
+	 * @throws IOException if the definition is not valid.
+	 */
+	static ShapeEntry parse(String id, String defaultName, byte[] content) throws IOException {
+		Properties properties = new Properties();
+		properties.load(new ByteArrayInputStream(content));
+		String path = properties.getProperty("path");
+		if (path == null) {
+			throw new IOException("No path in shape " + defaultName);
+		}
+		try {
+			return new ShapeEntry(id, properties.getProperty("name", defaultName), properties.getProperty("description"), parsePath(path));
+		} catch (IllegalArgumentException | IllegalPathStateException ex) {
+			throw new IOException("Invalid path in shape " + defaultName + ": " + ex.getMessage(), ex);
+		}
+	}
+
+	/**
+	 * Parses path data.
+	 *
+	 * @param data : path data.
+	 * @return the path.
+	 * @throws IllegalArgumentException if the data is not valid.
+	 * @throws IllegalPathStateException if the path does not start with a move.
+	 */
+	static Path2D.Float parsePath(String data) {
+		String[] tokens = data.trim().split("[\\s,]+");
+		Path2D.Float path = new Path2D.Float();
+		int i = 0;
+		while (i < tokens.length && !tokens[i].isEmpty()) {
+			String command = tokens[i++];
+			float[] c;
+			switch (command) {
+				case "M":
+					c = coordinates(tokens, i, 2);
+					path.moveTo(c[0], c[1]);
+					break;
+				case "L":
+					c = coordinates(tokens, i, 2);
+					path.lineTo(c[0], c[1]);
+					break;
+				case "Q":
+					c = coordinates(tokens, i, 4);
+					path.quadTo(c[0], c[1], c[2], c[3]);
+					break;
+				case "C":
+					c = coordinates(tokens, i, 6);
+					path.curveTo(c[0], c[1], c[2], c[3], c[4], c[5]);
+					break;
+				case "Z":
+					c = new float[0];
+					path.closePath();
+					break;
+				default:
+					throw new IllegalArgumentException("unknown command " + command);
+			}
+			i += c.length;
+		}
+		return path;
+	}
+
+	private static float[] coordinates(String[] tokens, int start, int count) {
+		if (start + count > tokens.length) {
+			throw new IllegalArgumentException("missing coordinates after " + tokens[start - 1]);
+		}
+		float[] coordinates = new float[count];
+		for (int i = 0; i < count; i++) {
+			coordinates[i] = Float.parseFloat(tokens[start + i]);
+		}
+		return coordinates;
+	}
+}
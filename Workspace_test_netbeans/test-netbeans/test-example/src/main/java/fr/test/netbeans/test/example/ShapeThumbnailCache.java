@@ -0,0 +1,219 @@
+package fr.test.netbeans.test.example;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.Shape;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.swing.Icon;
+import javax.swing.ImageIcon;
+import javax.swing.SwingUtilities;
+import org.openide.util.RequestProcessor;
+
+/**
+ * Bounded LRU cache of the shape thumbnails, rendered in background and kept as icons ready to paint.
+ *
+ * The palette only asks for the thumbnails of the visible cells. The requests are served last in first out, and the oldest ones are dropped when
+ * too many are pending : while scrolling, the cells which scrolled out of view are not rendered.
+ *
+ * @author BGRY
+ */
+public final class ShapeThumbnailCache {
+
+	private static final Logger logger = Logger.getLogger(ShapeThumbnailCache.class.getName());
+	private static final RequestProcessor RP = new RequestProcessor(ShapeThumbnailCache.class.getName(), 1);
+	/**
+	 * Maximum number of pending requests, about a few screens of cells.
+	 */
+	private static final int MAX_PENDING = 256;
+
+	/**
+	 * Creates the thumbnail of a shape, called off the EDT.
+	 */
+	public interface ThumbnailFactory {
+
+		/**
+		 * Creates a thumbnail.
+		 *
+		 * @param entry : shape.
+		 * @param size : width and height of the thumbnail.
+		 * @return the thumbnail.
+		 */
+		BufferedImage createThumbnail(ShapeEntry entry, int size);
+	}
+
+	private final int size;
+	private final Map<String, Icon> thumbnails;
+	private final Deque<ShapeEntry> pending = new ArrayDeque<>();
+	private final Set<String> pendingIds = new HashSet<>();
+	/**
+	 * Shapes whose rendering failed, not requested again until the cache is cleared.
+	 */
+	private final Set<String> failedIds = new HashSet<>();
+	private final Runnable onRendered;
+	private volatile ThumbnailFactory factory = new OutlineRenderer();
+	private final RequestProcessor.Task renderTask = RP.create(new Runnable() {
+		@Override
+		public void run() {
+			renderPending();
+		}
+	});
+
+	/**
+	 * Creates a cache.
+	 *
+	 * @param size : width and height of the thumbnails.
+	 * @param capacity : maximum number of thumbnails kept in memory.
+	 * @param onRendered : called on the EDT after thumbnails have been rendered.
+	 */
+	public ShapeThumbnailCache(int size, final int capacity, Runnable onRendered) {
+		this.size = size;
+		this.onRendered = onRendered;
+		this.thumbnails = new LinkedHashMap<String, Icon>(capacity, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Icon> eldest) {
+				return size() > capacity;
+			}
+		};
+	}
+
+	/**
+	 * Sets the factory creating the thumbnails. The thumbnails already in memory are kept.
+	 *
+	 * @param factory : thumbnail factory.
+	 */
+	public void setFactory(ThumbnailFactory factory) {
+		this.factory = factory;
+	}
+
+	/**
+	 * Gets the thumbnail of a shape. If it is not in memory, its rendering is requested.
+	 *
+	 * @param entry : shape.
+	 * @return the thumbnail, or null while it is rendered or if its rendering failed.
+	 */
+	public synchronized Icon getThumbnail(ShapeEntry entry) {
+		Icon thumbnail = thumbnails.get(entry.getId());
+		if (thumbnail == null && !failedIds.contains(entry.getId()) && pendingIds.add(entry.getId())) {
+			pending.addFirst(entry);
+			if (pending.size() > MAX_PENDING) {
+				pendingIds.remove(pending.removeLast().getId());
+			}
+			renderTask.schedule(0);
+		}
+		return thumbnail;
+	}
+
+	/**
+	 * Checks if the rendering of the thumbnail of a shape failed.
+	 *
+	 * @param entry : shape.
+	 * @return true if the thumbnail could not be rendered.
+	 */
+	public synchronized boolean isFailed(ShapeEntry entry) {
+		return failedIds.contains(entry.getId());
+	}
+
+	/**
+	 * Drops the thumbnails in memory, the pending requests and the failures.
+	 */
+	public synchronized void clear() {
+		thumbnails.clear();
+		pending.clear();
+		pendingIds.clear();
+		failedIds.clear();
+	}
+
+	/**
+	 * Renders the pending requests, most recent first.
+	 */
+	private void renderPending() {
+		boolean rendered = false;
+		while (true) {
+			ShapeEntry entry;
+			synchronized (this) {
+				entry = pending.pollFirst();
+				if (entry == null) {
+					break;
+				}
+			}
+			BufferedImage thumbnail = null;
+			try {
+				thumbnail = factory.createThumbnail(entry, size);
+			} catch (RuntimeException ex) {
+				logger.log(Level.INFO, "Cannot render the thumbnail of shape " + entry.getId(), ex);
+			}
+			if (thumbnail == null) {
+				logger.log(Level.FINE, "No thumbnail for shape {0}", entry.getId());
+			}
+			// Wrapped here, so the renderer paints the same icon each time.
+			Icon icon = thumbnail != null ? new ImageIcon(thumbnail) : null;
+			synchronized (this) {
+				if (pendingIds.remove(entry.getId())) {
+					if (icon != null) {
+						thumbnails.put(entry.getId(), icon);
+						rendered = true;
+					} else {
+						failedIds.add(entry.getId());
+					}
+				}
+			}
+		}
+		if (rendered) {
+			SwingUtilities.invokeLater(onRendered);
+		}
+	}
+
+	/**
+	 * Default factory, drawing the outline of the shape scaled to the thumbnail.
+	 */
+	static final class OutlineRenderer implements ThumbnailFactory {
+
+		private static final int MARGIN = 4;
+		private static final Color FILL = new Color(0xDD, 0xE8, 0xF5);
+		private static final Color STROKE = new Color(0x33, 0x55, 0x88);
+
+		@Override
+		public BufferedImage createThumbnail(ShapeEntry entry, int size) {
+			BufferedImage image = new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB);
+			Shape outline = entry.getOutline();
+			if (outline == null) {
+				return image;
+			}
+			Rectangle2D bounds = outline.getBounds2D();
+			double available = size - 2 * MARGIN;
+			double scale = available / Math.max(1e-6, Math.max(bounds.getWidth(), bounds.getHeight()));
+			AffineTransform transform = new AffineTransform();
+			transform.translate(MARGIN + (available - bounds.getWidth() * scale) / 2, MARGIN + (available - bounds.getHeight() * scale) / 2);
+			transform.scale(scale, scale);
+			transform.translate(-bounds.getX(), -bounds.getY());
+			Shape scaled = transform.createTransformedShape(outline);
+
+			Graphics2D g = image.createGraphics();
+			try {
+				g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+				g.setColor(FILL);
+				g.fill(scaled);
+				g.setColor(STROKE);
+				g.setStroke(new BasicStroke(1.5f));
+				g.draw(scaled);
+			} finally {
+				g.dispose();
+			}
+			return image;
+		}
+	}
+}
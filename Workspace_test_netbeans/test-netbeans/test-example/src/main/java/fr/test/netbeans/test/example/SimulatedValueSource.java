@@ -0,0 +1,95 @@
+package fr.test.netbeans.test.example;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Source of simulated values, to test the synoptic pages without a process : each value does a random walk between 0 and 100.
+ *
+ * The values are published by a daemon thread at a given rate, by batches each millisecond.
+ *
+ * @author BGRY
+ */
+public final class SimulatedValueSource implements LiveValueSource {
+
+	/**
+	 * Default number of values published each second.
+	 */
+	static final int DEFAULT_RATE = Integer.getInteger("test-example.synoptic.rate", 100000);
+
+	private final String[] tags;
+	private final int rate;
+	private volatile Thread thread = null;
+	private volatile long publishedCount = 0;
+
+	/**
+	 * Creates a source.
+	 *
+	 * @param tags : tags of the values.
+	 * @param rate : number of values published each second.
+	 */
+	public SimulatedValueSource(String[] tags, int rate) {
+		this.tags = tags.clone();
+		this.rate = rate;
+	}
+
+	/**
+	 * Gets the number of values published since the creation of the source.
+	 *
+	 * @return the number of published values.
+	 */
+	public long getPublishedCount() {
+		return publishedCount;
+	}
+
+	@Override
+	public synchronized void start(final LiveValueQueue queue) {
+		if (thread != null || tags.length == 0) {
+			return;
+		}
+		thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				publish(queue);
+			}
+		}, SimulatedValueSource.class.getName());
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	@Override
+	public synchronized void stop() {
+		if (thread != null) {
+			thread.interrupt();
+			thread = null;
+		}
+	}
+
+	private void publish(LiveValueQueue queue) {
+		Thread current = Thread.currentThread();
+		LiveValueQueue.Channel[] channels = new LiveValueQueue.Channel[tags.length];
+		double[] values = new double[tags.length];
+		Random random = new Random();
+		for (int i = 0; i < tags.length; i++) {
+			channels[i] = queue.getChannel(tags[i]);
+			values[i] = random.nextDouble() * 100;
+		}
+		long start = System.nanoTime();
+		long published = 0;
+		while (thread == current) {
+			// Values due since the start, by batches of at least one millisecond
+			long due = (long) ((System.nanoTime() - start) / (double) TimeUnit.SECONDS.toNanos(1) * rate);
+			if (due <= published) {
+				LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+				continue;
+			}
+			for (; published < due; published++) {
+				int i = random.nextInt(tags.length);
+				values[i] = Math.max(0, Math.min(100, values[i] + random.nextGaussian() * 5));
+				channels[i].publish(values[i]);
+			}
+			publishedCount = published;
+		}
+	}
+}
@@ -0,0 +1,140 @@
+package fr.test.netbeans.test.example;
+
+import java.awt.BorderLayout;
+import java.awt.FlowLayout;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.Map;
+import javax.swing.JButton;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JSplitPane;
+import javax.swing.JTable;
+import javax.swing.SwingUtilities;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
+import javax.swing.table.DefaultTableModel;
+import org.openide.awt.ActionID;
+import org.openide.awt.ActionReference;
+import org.openide.util.NbBundle.Messages;
+import org.openide.windows.TopComponent;
+
+/**
+ * Top component which displays the spans and counters of the {@link StartupProfiler}.
+ */
+@TopComponent.Description(
+		preferredID = "StartupDiagnosticsTopComponent",
+		iconBase = "",
+		persistenceType = TopComponent.PERSISTENCE_NEVER
+)
+@TopComponent.Registration(mode = "output", openAtStartup = false)
+@ActionID(category = "Window", id = "fr.test.netbeans.test.example.StartupDiagnosticsTopComponent")
+@ActionReference(path = "Menu/Window", position = 335)
+@TopComponent.OpenActionRegistration(
+		displayName = "#CTL_StartupDiagnosticsAction",
+		preferredID = "StartupDiagnosticsTopComponent"
+)
+@Messages({
+	"CTL_StartupDiagnosticsAction=Startup Diagnostics",
+	"CTL_StartupDiagnosticsTopComponent=Startup Diagnostics",
+	"HINT_StartupDiagnosticsTopComponent=Time spent by the startup phases",
+	"LBL_StartupDiagnosticsRefresh=Refresh",
+	"LBL_StartupDiagnosticsSpan=Span",
+	"LBL_StartupDiagnosticsThread=Thread",
+	"LBL_StartupDiagnosticsStart=Start (ms)",
+	"LBL_StartupDiagnosticsDuration=Duration (ms)",
+	"LBL_StartupDiagnosticsBudget=Budget (ms)",
+	"LBL_StartupDiagnosticsCounter=Counter",
+	"LBL_StartupDiagnosticsValue=Value"
+})
+public final class StartupDiagnosticsTopComponent extends TopComponent {
+
+	private static final long serialVersionUID = 1L;
+
+	private final DefaultTableModel spans = new DefaultTableModel(new Object[]{Bundle.LBL_StartupDiagnosticsSpan(),
+		Bundle.LBL_StartupDiagnosticsThread(), Bundle.LBL_StartupDiagnosticsStart(), Bundle.LBL_StartupDiagnosticsDuration(),
+		Bundle.LBL_StartupDiagnosticsBudget()}, 0) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		public boolean isCellEditable(int row, int column) {
+			return false;
+		}
+	};
+	private final DefaultTableModel counters = new DefaultTableModel(new Object[]{Bundle.LBL_StartupDiagnosticsCounter(),
+		Bundle.LBL_StartupDiagnosticsValue()}, 0) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		public boolean isCellEditable(int row, int column) {
+			return false;
+		}
+	};
+	/**
+	 * Refreshes the tables after each export of the profile.
+	 */
+	private final ChangeListener exportListener = new ChangeListener() {
+		@Override
+		public void stateChanged(ChangeEvent e) {
+			SwingUtilities.invokeLater(new Runnable() {
+				@Override
+				public void run() {
+					refresh();
+				}
+			});
+		}
+	};
+
+	public StartupDiagnosticsTopComponent() {
+		setName(Bundle.CTL_StartupDiagnosticsTopComponent());
+		setToolTipText(Bundle.HINT_StartupDiagnosticsTopComponent());
+		setLayout(new BorderLayout());
+
+		JTable spanTable = new JTable(spans);
+		spanTable.setAutoCreateRowSorter(true);
+		JTable counterTable = new JTable(counters);
+		counterTable.setAutoCreateRowSorter(true);
+		JSplitPane splitPane = new JSplitPane(JSplitPane.HORIZONTAL_SPLIT, new JScrollPane(spanTable), new JScrollPane(counterTable));
+		splitPane.setResizeWeight(0.75);
+		add(splitPane, BorderLayout.CENTER);
+
+		JButton refresh = new JButton(Bundle.LBL_StartupDiagnosticsRefresh());
+		refresh.addActionListener(new ActionListener() {
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				refresh();
+			}
+		});
+		JPanel toolbar = new JPanel(new FlowLayout(FlowLayout.LEADING));
+		toolbar.add(refresh);
+		add(toolbar, BorderLayout.NORTH);
+	}
+
+	/**
+	 * Reads the spans and counters of the profiler.
+	 */
+	private void refresh() {
+		StartupProfiler profiler = StartupProfiler.getDefault();
+		spans.setRowCount(0);
+		for (StartupProfiler.Span span : profiler.getSpans()) {
+			long budget = profiler.getBudget(span.getName());
+			spans.addRow(new Object[]{span.getName(), span.getThread(), profiler.getStartMillis(span),
+				span.getDurationNanos() / 1000000.0, budget >= 0 ? budget : null});
+		}
+		counters.setRowCount(0);
+		for (Map.Entry<String, Long> counter : profiler.getCounters().entrySet()) {
+			counters.addRow(new Object[]{counter.getKey(), counter.getValue()});
+		}
+	}
+
+	@Override
+	public void componentOpened() {
+		StartupProfiler.getDefault().addChangeListener(exportListener);
+		refresh();
+	}
+
+	@Override
+	public void componentClosed() {
+		StartupProfiler.getDefault().removeChangeListener(exportListener);
+	}
+}
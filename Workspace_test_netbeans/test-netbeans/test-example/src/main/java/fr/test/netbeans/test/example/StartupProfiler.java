@@ -0,0 +1,343 @@
+package fr.test.netbeans.test.example;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.swing.event.ChangeListener;
+import org.openide.modules.Places;
+import org.openide.util.ChangeSupport;
+import org.openide.util.RequestProcessor;
+
+/**
+ * Records where the startup time goes : timed spans and counters, exported as JSON in the userdir.
+ *
+ * Recording a span takes two nanoTime reads and a lock-free queue insertion, a counter is a concurrent map lookup and an atomic increment. The
+ * profiler can be disabled with the test-example.profiler.disabled system property, spans and counters are then ignored.
+ *
+ * @author BGRY
+ */
+public final class StartupProfiler {
+
+	private static final Logger logger = Logger.getLogger(StartupProfiler.class.getName());
+	private static final RequestProcessor RP = new RequestProcessor(StartupProfiler.class.getName(), 1);
+	private static final boolean ENABLED = !Boolean.getBoolean("test-example.profiler.disabled");
+	/**
+	 * Export file, relative to the userdir.
+	 */
+	public static final String EXPORT_FILE = "var/test-example/startup-profile.json";
+	/**
+	 * Time in epoch milliseconds from which the span offsets are measured, the JVM start by default. Set by the tests which start the
+	 * application several times in the same JVM.
+	 */
+	private static final long ORIGIN = Long.getLong("test-example.profiler.origin", -1);
+	private static StartupProfiler def = null;
+
+	/**
+	 * Span returned when the profiler is disabled.
+	 */
+	private static final Span DISABLED_SPAN = new Span(null, null, 0);
+
+	/**
+	 * nanoTime of the origin of the span offsets.
+	 */
+	private final long originNanos;
+	private final ConcurrentLinkedQueue<Span> spans = new ConcurrentLinkedQueue<>();
+	private final ConcurrentHashMap<String, AtomicLong> counters = new ConcurrentHashMap<>();
+	private final ConcurrentHashMap<String, Long> budgets = new ConcurrentHashMap<>();
+	private final ChangeSupport changeSupport = new ChangeSupport(this);
+	private final RequestProcessor.Task exportTask = RP.create(new Runnable() {
+		@Override
+		public void run() {
+			try {
+				Path file = export(Places.getUserDirectory().toPath().resolve(EXPORT_FILE));
+				logger.log(Level.FINE, "Startup profile exported to {0}", file);
+			} catch (IOException | RuntimeException ex) {
+				logger.log(Level.WARNING, "Cannot export the startup profile", ex);
+			}
+		}
+	});
+
+	/**
+	 * Creates a profiler.
+	 *
+	 * @param originNanos : nanoTime of the origin of the span offsets.
+	 */
+	StartupProfiler(long originNanos) {
+		this.originNanos = originNanos;
+	}
+
+	/**
+	 * Gets the profiler of the application, whose spans are offset from the JVM start, or from the test-example.profiler.origin system property.
+	 *
+	 * @return the default profiler.
+	 */
+	public static synchronized StartupProfiler getDefault() {
+		if (def == null) {
+			long elapsedMillis = ORIGIN >= 0 ? System.currentTimeMillis() - ORIGIN : ManagementFactory.getRuntimeMXBean().getUptime();
+			def = new StartupProfiler(System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(elapsedMillis));
+		}
+		return def;
+	}
+
+	/**
+	 * Starts a span, to be ended by the same thread with {@link Span#end()}.
+	 *
+	 * @param name : name of the span.
+	 * @return the started span.
+	 */
+	public Span start(String name) {
+		if (!ENABLED) {
+			return DISABLED_SPAN;
+		}
+		return new Span(this, name, System.nanoTime());
+	}
+
+	/**
+	 * Records a span measured elsewhere.
+	 *
+	 * @param name : name of the span.
+	 * @param startNanos : nanoTime of the start.
+	 * @param endNanos : nanoTime of the end.
+	 */
+	public void record(String name, long startNanos, long endNanos) {
+		if (ENABLED) {
+			Span span = new Span(this, name, startNanos);
+			span.endNanos = endNanos;
+			spans.add(span);
+		}
+	}
+
+	/**
+	 * Records a span from the JVM start to now, for instance when a milestone of the startup is reached.
+	 *
+	 * @param name : name of the span.
+	 */
+	public void mark(String name) {
+		record(name, originNanos, System.nanoTime());
+	}
+
+	/**
+	 * Adds to a counter.
+	 *
+	 * @param name : name of the counter.
+	 * @param delta : value to add.
+	 */
+	public void count(String name, long delta) {
+		if (!ENABLED) {
+			return;
+		}
+		AtomicLong counter = counters.get(name);
+		if (counter == null) {
+			AtomicLong created = new AtomicLong();
+			counter = counters.putIfAbsent(name, created);
+			if (counter == null) {
+				counter = created;
+			}
+		}
+		counter.addAndGet(delta);
+	}
+
+	/**
+	 * Sets the time budget of the spans with a name : the spans over their budget are flagged.
+	 *
+	 * @param name : name of the spans.
+	 * @param budgetMillis : budget in milliseconds.
+	 */
+	public void setBudget(String name, long budgetMillis) {
+		budgets.put(name, budgetMillis);
+	}
+
+	/**
+	 * Gets the ended spans.
+	 *
+	 * @return the spans, in end order.
+	 */
+	public List<Span> getSpans() {
+		return new ArrayList<>(spans);
+	}
+
+	/**
+	 * Gets the counters.
+	 *
+	 * @return the value of the counters by name, sorted by name.
+	 */
+	public Map<String, Long> getCounters() {
+		Map<String, Long> values = new TreeMap<>();
+		for (Map.Entry<String, AtomicLong> counter : counters.entrySet()) {
+			values.put(counter.getKey(), counter.getValue().get());
+		}
+		return values;
+	}
+
+	/**
+	 * Gets the budget of the spans with a name.
+	 *
+	 * @param name : name of the spans.
+	 * @return the budget in milliseconds, or -1.
+	 */
+	public long getBudget(String name) {
+		Long budget = budgets.get(name);
+		return budget != null ? budget : -1;
+	}
+
+	/**
+	 * Exports the spans and counters in the userdir, in background. The listeners are notified once exported.
+	 */
+	public void exportLater() {
+		exportTask.schedule(0);
+	}
+
+	/**
+	 * Exports the spans and counters as JSON.
+	 *
+	 * @param file : JSON file, replaced.
+	 * @return the file.
+	 * @throws IOException if the file cannot be written.
+	 */
+	public Path export(Path file) throws IOException {
+		Files.createDirectories(file.getParent());
+		Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+		try (Writer out = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+			out.write("{\n  \"timestamp\": " + System.currentTimeMillis() + ",\n  \"spans\": [");
+			String separator = "\n";
+			for (Span span : spans) {
+				long budget = getBudget(span.name);
+				out.write(separator + "    {\"name\": " + quote(span.name)
+						+ ", \"thread\": " + quote(span.thread)
+						+ ", \"startMillis\": " + millis(span.startNanos - originNanos)
+						+ ", \"durationMillis\": " + millis(span.getDurationNanos())
+						+ (budget >= 0 ? ", \"budgetMillis\": " + budget + ", \"overBudget\": " + span.isOverBudget() : "")
+						+ "}");
+				separator = ",\n";
+			}
+			out.write("\n  ],\n  \"counters\": {");
+			separator = "\n";
+			for (Map.Entry<String, Long> counter : getCounters().entrySet()) {
+				out.write(separator + "    " + quote(counter.getKey()) + ": " + counter.getValue());
+				separator = ",\n";
+			}
+			out.write("\n  }\n}\n");
+		}
+		Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		changeSupport.fireChange();
+		return file;
+	}
+
+	/**
+	 * Adds a listener notified after each export.
+	 *
+	 * @param listener : listener.
+	 */
+	public void addChangeListener(ChangeListener listener) {
+		changeSupport.addChangeListener(listener);
+	}
+
+	public void removeChangeListener(ChangeListener listener) {
+		changeSupport.removeChangeListener(listener);
+	}
+
+	/**
+	 * Gets the offset of a span from the JVM start.
+	 *
+	 * @param span : span.
+	 * @return the offset in milliseconds.
+	 */
+	public double getStartMillis(Span span) {
+		return millis(span.startNanos - originNanos);
+	}
+
+	private static double millis(long nanos) {
+		return Math.round(nanos / 1000.0) / 1000.0;
+	}
+
+	private static String quote(String value) {
+		StringBuilder quoted = new StringBuilder(value.length() + 2).append('"');
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c == '"' || c == '\\') {
+				quoted.append('\\').append(c);
+			} else if (c < 0x20) {
+				quoted.append(String.format("\\u%04x", (int) c));
+			} else {
+				quoted.append(c);
+			}
+		}
+		return quoted.append('"').toString();
+	}
+
+	/**
+	 * Timed span of the startup.
+	 */
+	public static final class Span {
+
+		private final StartupProfiler profiler;
+		private final String name;
+		private final String thread;
+		private final long startNanos;
+		private long endNanos = -1;
+
+		Span(StartupProfiler profiler, String name, long startNanos) {
+			this.profiler = profiler;
+			this.name = name;
+			this.thread = profiler != null ? Thread.currentThread().getName() : null;
+			this.startNanos = startNanos;
+		}
+
+		/**
+		 * Ends the span and records it. Only the first call has an effect.
+		 *
+		 * @return the duration in nanoseconds.
+		 */
+		public long end() {
+			if (profiler == null) {
+				return 0;
+			}
+			if (endNanos < 0) {
+				endNanos = System.nanoTime();
+				profiler.spans.add(this);
+			}
+			return endNanos - startNanos;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public String getThread() {
+			return thread;
+		}
+
+		/**
+		 * Gets the duration of the span.
+		 *
+		 * @return the duration in nanoseconds, or -1 if the span is not ended.
+		 */
+		public long getDurationNanos() {
+			return endNanos < 0 ? -1 : endNanos - startNanos;
+		}
+
+		/**
+		 * Checks if the span took longer than the budget of its name.
+		 *
+		 * @return true if the span has a budget and exceeded it.
+		 */
+		public boolean isOverBudget() {
+			long budget = profiler != null ? profiler.getBudget(name) : -1;
+			return budget >= 0 && getDurationNanos() > TimeUnit.MILLISECONDS.toNanos(budget);
+		}
+	}
+}
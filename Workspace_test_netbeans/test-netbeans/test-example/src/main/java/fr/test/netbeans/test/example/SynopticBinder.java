@@ -0,0 +1,248 @@
+package fr.test.netbeans.test.example;
+
+import java.awt.Color;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.swing.Timer;
+
+/**
+ * Binding of the shapes of a {@link SynopticScene} to the live values of their tag.
+ *
+ * The values are published by the sources into a {@link LiveValueQueue} from any thread, at any rate. Once per frame, the binder drains the
+ * latest value of each changed tag on the EDT and applies it to the shapes of the tag, so the EDT does one pass per frame however many values
+ * were published. The binder is only accessed on the EDT.
+ *
+ * @author BGRY
+ */
+public final class SynopticBinder {
+
+	private static final Logger logger = Logger.getLogger(SynopticBinder.class.getName());
+	/**
+	 * Delay in milliseconds between two passes applying the values.
+	 */
+	private static final int FRAME_DELAY = 16;
+
+	/**
+	 * Style of the shapes bound to a value.
+	 */
+	public interface Style {
+
+		/**
+		 * Gets the fill color displaying a value.
+		 *
+		 * @param value : value of the tag of the shape.
+		 * @param shape : bound shape.
+		 * @return the fill color.
+		 */
+		Color getFill(Object value, SynopticShape shape);
+	}
+
+	/**
+	 * Default style : the numbers from 0 to 100 go from green to red, true is green and false is gray.
+	 */
+	public static final Style DEFAULT_STYLE = new Style() {
+		private final Color[] levels = createLevels(64);
+
+		@Override
+		public Color getFill(Object value, SynopticShape shape) {
+			if (value instanceof Number) {
+				double level = Math.max(0, Math.min(100, ((Number) value).doubleValue())) / 100;
+				return levels[(int) Math.round(level * (levels.length - 1))];
+			} else if (value instanceof Boolean) {
+				return (Boolean) value ? levels[0] : Color.LIGHT_GRAY;
+			}
+			return shape.getFill();
+		}
+	};
+
+	private final SynopticScene scene;
+	private final LiveValueQueue queue = new LiveValueQueue();
+	/**
+	 * Shapes by tag.
+	 */
+	private final Map<String, List<SynopticShape>> bindings = new HashMap<>();
+	private final List<LiveValueSource> sources = new ArrayList<>();
+	private final Timer frameTimer;
+	private Style style = DEFAULT_STYLE;
+	private long appliedCount = 0;
+	private final LiveValueQueue.Receiver receiver = new LiveValueQueue.Receiver() {
+		@Override
+		public void valueChanged(String tag, Object value) {
+			List<SynopticShape> shapes = bindings.get(tag);
+			if (shapes != null) {
+				for (SynopticShape shape : shapes) {
+					scene.setColors(shape, style.getFill(value, shape), shape.getStroke());
+				}
+				appliedCount++;
+			}
+		}
+	};
+	private final SynopticScene.Listener sceneListener = new SynopticScene.Listener() {
+		@Override
+		public void shapeAdded(SynopticShape shape) {
+			bind(shape);
+		}
+
+		@Override
+		public void shapeRemoved(SynopticShape shape) {
+			unbind(shape);
+		}
+
+		@Override
+		public void shapeChanged(SynopticShape shape, double oldX, double oldY) {
+		}
+
+		@Override
+		public void layersChanged() {
+		}
+	};
+
+	/**
+	 * Creates a binder, which binds the shapes of the scene with a tag.
+	 *
+	 * @param scene : bound scene.
+	 */
+	public SynopticBinder(SynopticScene scene) {
+		this.scene = scene;
+		scene.addListener(sceneListener);
+		for (SynopticLayer layer : scene.getLayers()) {
+			for (SynopticShape shape : layer.getShapes()) {
+				bind(shape);
+			}
+		}
+		this.frameTimer = new Timer(FRAME_DELAY, new ActionListener() {
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				queue.drain(receiver);
+			}
+		});
+		frameTimer.setCoalesce(true);
+	}
+
+	/**
+	 * Gets the queue into which the sources publish the values.
+	 *
+	 * @return the queue.
+	 */
+	public LiveValueQueue getQueue() {
+		return queue;
+	}
+
+	public void setStyle(Style style) {
+		this.style = style;
+	}
+
+	/**
+	 * Gets the number of values applied to the shapes since the creation of the binder.
+	 *
+	 * @return the number of applied values.
+	 */
+	public long getAppliedCount() {
+		return appliedCount;
+	}
+
+	/**
+	 * Adds a source, which is started with the binder.
+	 *
+	 * @param source : source of values.
+	 */
+	public void addSource(LiveValueSource source) {
+		sources.add(source);
+		if (frameTimer.isRunning()) {
+			startSource(source);
+		}
+	}
+
+	/**
+	 * Removes a source, which is stopped if the binder is started.
+	 *
+	 * @param source : source of values.
+	 */
+	public void removeSource(LiveValueSource source) {
+		if (sources.remove(source) && frameTimer.isRunning()) {
+			stopSource(source);
+		}
+	}
+
+	/**
+	 * Checks if the values are applied.
+	 *
+	 * @return true between {@link #start()} and {@link #stop()}.
+	 */
+	public boolean isStarted() {
+		return frameTimer.isRunning();
+	}
+
+	/**
+	 * Starts the sources and the passes applying their values.
+	 */
+	public void start() {
+		if (!frameTimer.isRunning()) {
+			frameTimer.start();
+			for (LiveValueSource source : sources) {
+				startSource(source);
+			}
+		}
+	}
+
+	/**
+	 * Stops the sources and the passes applying their values.
+	 */
+	public void stop() {
+		if (frameTimer.isRunning()) {
+			for (LiveValueSource source : sources) {
+				stopSource(source);
+			}
+			frameTimer.stop();
+		}
+	}
+
+	private void startSource(LiveValueSource source) {
+		try {
+			source.start(queue);
+		} catch (RuntimeException ex) {
+			logger.log(Level.WARNING, "Cannot start the source " + source, ex);
+		}
+	}
+
+	private void stopSource(LiveValueSource source) {
+		try {
+			source.stop();
+		} catch (RuntimeException ex) {
+			logger.log(Level.WARNING, "Cannot stop the source " + source, ex);
+		}
+	}
+
+	private void bind(SynopticShape shape) {
+		if (shape.getTag() != null) {
+			List<SynopticShape> shapes = bindings.get(shape.getTag());
+			if (shapes == null) {
+				shapes = new ArrayList<>(1);
+				bindings.put(shape.getTag(), shapes);
+			}
+			shapes.add(shape);
+		}
+	}
+
+	private void unbind(SynopticShape shape) {
+		List<SynopticShape> shapes = bindings.get(shape.getTag());
+		if (shapes != null && shapes.remove(shape) && shapes.isEmpty()) {
+			bindings.remove(shape.getTag());
+		}
+	}
+
+	private static Color[] createLevels(int count) {
+		Color[] levels = new Color[count];
+		for (int i = 0; i < count; i++) {
+			// From green (1/3) to red (0)
+			levels[i] = Color.getHSBColor((1f - i / (float) (count - 1)) / 3f, 0.7f, 0.9f);
+		}
+		return levels;
+	}
+}
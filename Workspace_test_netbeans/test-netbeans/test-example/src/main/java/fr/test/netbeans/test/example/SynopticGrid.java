@@ -0,0 +1,318 @@
+package fr.test.netbeans.test.example;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Spatial index of the shapes of a {@link SynopticLayer} : a uniform grid of cells over the page, each cell holding the identifiers of the
+ * shapes whose painted region intersects it.
+ *
+ * The bounds, cells and paint order of the shapes are stored in primitive arrays indexed by identifier, and the identifiers of the removed
+ * shapes are reused, so updating the index does not allocate once the arrays are large enough. A query only reads the cells of its region :
+ * its cost depends on the number of shapes around the region, not on the number of shapes of the page. The shapes outside the page are in
+ * the cells of its border. Only accessed on the EDT.
+ *
+ * @author BGRY
+ */
+final class SynopticGrid {
+
+	/**
+	 * Size in pixels of a cell.
+	 */
+	static final int CELL_SIZE = Integer.getInteger("test-example.synoptic.cell", 64);
+	private static final int INITIAL_CAPACITY = 64;
+	private static final int INITIAL_CELL_CAPACITY = 4;
+
+	private final int cellSize;
+	private final int columns;
+	private final int rows;
+	/**
+	 * Identifiers of the shapes of each cell, by row then column.
+	 */
+	private final int[][] cells;
+	private final int[] cellCounts;
+
+	private SynopticShape[] shapes = new SynopticShape[INITIAL_CAPACITY];
+	private double[] minX = new double[INITIAL_CAPACITY];
+	private double[] minY = new double[INITIAL_CAPACITY];
+	private double[] maxX = new double[INITIAL_CAPACITY];
+	private double[] maxY = new double[INITIAL_CAPACITY];
+	/**
+	 * First column, first row, last column and last row of the cells of each shape.
+	 */
+	private int[] ranges = new int[INITIAL_CAPACITY * 4];
+	/**
+	 * Paint order of each shape.
+	 */
+	private int[] sequences = new int[INITIAL_CAPACITY];
+	/**
+	 * Query which last found each shape, so a shape in several cells is found once.
+	 */
+	private int[] stamps = new int[INITIAL_CAPACITY];
+	private int stamp = 0;
+	private int[] free = new int[INITIAL_CAPACITY];
+	private int freeCount = 0;
+	private int size = 0;
+	/**
+	 * Paint order and identifier of the shapes found by a query, to sort them.
+	 */
+	private long[] found = new long[INITIAL_CAPACITY];
+
+	/**
+	 * Creates an empty index.
+	 *
+	 * @param width : width of the page.
+	 * @param height : height of the page.
+	 */
+	SynopticGrid(double width, double height) {
+		this(width, height, CELL_SIZE);
+	}
+
+	SynopticGrid(double width, double height, int cellSize) {
+		this.columns = Math.max(1, (int) Math.ceil(width / cellSize));
+		this.rows = Math.max(1, (int) Math.ceil(height / cellSize));
+		this.cells = new int[columns * rows][];
+		this.cellCounts = new int[columns * rows];
+		this.cellSize = cellSize;
+	}
+
+	/**
+	 * Gets the number of indexed shapes.
+	 *
+	 * @return the number of shapes.
+	 */
+	int size() {
+		return size;
+	}
+
+	/**
+	 * Indexes a shape.
+	 *
+	 * @param shape : added shape.
+	 * @param sequence : paint order of the shape in its layer.
+	 * @return the identifier of the shape in the index.
+	 */
+	int add(SynopticShape shape, int sequence) {
+		int id;
+		if (freeCount > 0) {
+			id = free[--freeCount];
+		} else {
+			// No identifier is free : they are all used below the size
+			id = size;
+			if (id == shapes.length) {
+				grow();
+			}
+		}
+		size++;
+		shapes[id] = shape;
+		sequences[id] = sequence;
+		stamps[id] = stamp;
+		setBounds(id, shape);
+		int first = id * 4;
+		ranges[first] = column(minX[id]);
+		ranges[first + 1] = row(minY[id]);
+		ranges[first + 2] = column(maxX[id]);
+		ranges[first + 3] = row(maxY[id]);
+		insert(id, ranges[first], ranges[first + 1], ranges[first + 2], ranges[first + 3]);
+		return id;
+	}
+
+	/**
+	 * Updates the cells of a shape which moved.
+	 *
+	 * @param id : identifier of the shape.
+	 */
+	void update(int id) {
+		setBounds(id, shapes[id]);
+		int first = id * 4;
+		int firstColumn = column(minX[id]);
+		int firstRow = row(minY[id]);
+		int lastColumn = column(maxX[id]);
+		int lastRow = row(maxY[id]);
+		if (firstColumn != ranges[first] || firstRow != ranges[first + 1] || lastColumn != ranges[first + 2] || lastRow != ranges[first + 3]) {
+			delete(id, ranges[first], ranges[first + 1], ranges[first + 2], ranges[first + 3]);
+			ranges[first] = firstColumn;
+			ranges[first + 1] = firstRow;
+			ranges[first + 2] = lastColumn;
+			ranges[first + 3] = lastRow;
+			insert(id, firstColumn, firstRow, lastColumn, lastRow);
+		}
+	}
+
+	/**
+	 * Removes a shape.
+	 *
+	 * @param id : identifier of the shape.
+	 */
+	void remove(int id) {
+		int first = id * 4;
+		delete(id, ranges[first], ranges[first + 1], ranges[first + 2], ranges[first + 3]);
+		shapes[id] = null;
+		free[freeCount++] = id;
+		size--;
+	}
+
+	/**
+	 * Changes the paint order of a shape.
+	 *
+	 * @param id : identifier of the shape.
+	 * @param sequence : paint order of the shape in its layer.
+	 */
+	void setSequence(int id, int sequence) {
+		sequences[id] = sequence;
+	}
+
+	/**
+	 * Finds the shapes whose painted region intersects a rectangle.
+	 *
+	 * @param x : left of the rectangle.
+	 * @param y : top of the rectangle.
+	 * @param width : width of the rectangle.
+	 * @param height : height of the rectangle.
+	 * @param result : list to which the shapes are added, in paint order.
+	 */
+	void search(double x, double y, double width, double height, List<SynopticShape> result) {
+		if (size == 0 || width <= 0 || height <= 0) {
+			return;
+		}
+		double right = x + width;
+		double bottom = y + height;
+		int firstColumn = column(x);
+		int firstRow = row(y);
+		int lastColumn = column(right);
+		int lastRow = row(bottom);
+		nextStamp();
+		int count = 0;
+		for (int row = firstRow; row <= lastRow; row++) {
+			for (int column = firstColumn; column <= lastColumn; column++) {
+				int cell = row * columns + column;
+				int[] ids = cells[cell];
+				for (int i = 0, n = cellCounts[cell]; i < n; i++) {
+					int id = ids[i];
+					if (stamps[id] != stamp) {
+						stamps[id] = stamp;
+						if (minX[id] < right && maxX[id] > x && minY[id] < bottom && maxY[id] > y) {
+							if (count == found.length) {
+								found = Arrays.copyOf(found, count * 2);
+							}
+							found[count++] = ((long) sequences[id] << 32) | id;
+						}
+					}
+				}
+			}
+		}
+		Arrays.sort(found, 0, count);
+		for (int i = 0; i < count; i++) {
+			result.add(shapes[(int) found[i]]);
+		}
+	}
+
+	/**
+	 * Finds the topmost shape whose outline contains a point.
+	 *
+	 * @param x : abscissa on the page.
+	 * @param y : ordinate on the page.
+	 * @return the shape, or null if there is none.
+	 */
+	SynopticShape find(double x, double y) {
+		if (size == 0) {
+			return null;
+		}
+		int cell = row(y) * columns + column(x);
+		int[] ids = cells[cell];
+		SynopticShape top = null;
+		int topSequence = -1;
+		for (int i = 0, n = cellCounts[cell]; i < n; i++) {
+			int id = ids[i];
+			if (sequences[id] > topSequence && minX[id] <= x && maxX[id] >= x && minY[id] <= y && maxY[id] >= y && shapes[id].contains(x, y)) {
+				top = shapes[id];
+				topSequence = sequences[id];
+			}
+		}
+		return top;
+	}
+
+	/**
+	 * Gets the shapes of the cell containing a point.
+	 *
+	 * @param x : abscissa on the page.
+	 * @param y : ordinate on the page.
+	 * @return the identifiers of the shapes, in no particular order.
+	 */
+	int[] getCell(double x, double y) {
+		int cell = row(y) * columns + column(x);
+		return cells[cell] == null ? new int[0] : Arrays.copyOf(cells[cell], cellCounts[cell]);
+	}
+
+	private void setBounds(int id, SynopticShape shape) {
+		double margin = shape.getPaintMargin();
+		minX[id] = shape.getX() - margin;
+		minY[id] = shape.getY() - margin;
+		maxX[id] = shape.getX() + shape.getWidth() + margin;
+		maxY[id] = shape.getY() + shape.getHeight() + margin;
+	}
+
+	private int column(double x) {
+		return Math.min(columns - 1, Math.max(0, (int) Math.floor(x / cellSize)));
+	}
+
+	private int row(double y) {
+		return Math.min(rows - 1, Math.max(0, (int) Math.floor(y / cellSize)));
+	}
+
+	private void insert(int id, int firstColumn, int firstRow, int lastColumn, int lastRow) {
+		for (int row = firstRow; row <= lastRow; row++) {
+			for (int column = firstColumn; column <= lastColumn; column++) {
+				int cell = row * columns + column;
+				int[] ids = cells[cell];
+				int count = cellCounts[cell];
+				if (ids == null) {
+					ids = cells[cell] = new int[INITIAL_CELL_CAPACITY];
+				} else if (count == ids.length) {
+					ids = cells[cell] = Arrays.copyOf(ids, count * 2);
+				}
+				ids[count] = id;
+				cellCounts[cell] = count + 1;
+			}
+		}
+	}
+
+	private void delete(int id, int firstColumn, int firstRow, int lastColumn, int lastRow) {
+		for (int row = firstRow; row <= lastRow; row++) {
+			for (int column = firstColumn; column <= lastColumn; column++) {
+				int cell = row * columns + column;
+				int[] ids = cells[cell];
+				int last = cellCounts[cell] - 1;
+				for (int i = last; i >= 0; i--) {
+					if (ids[i] == id) {
+						// The order of a cell does not matter : the last identifier takes the place of the removed one
+						ids[i] = ids[last];
+						cellCounts[cell] = last;
+						break;
+					}
+				}
+			}
+		}
+	}
+
+	private void nextStamp() {
+		if (stamp == Integer.MAX_VALUE) {
+			Arrays.fill(stamps, 0);
+			stamp = 0;
+		}
+		stamp++;
+	}
+
+	private void grow() {
+		int capacity = shapes.length * 2;
+		shapes = Arrays.copyOf(shapes, capacity);
+		minX = Arrays.copyOf(minX, capacity);
+		minY = Arrays.copyOf(minY, capacity);
+		maxX = Arrays.copyOf(maxX, capacity);
+		maxY = Arrays.copyOf(maxY, capacity);
+		ranges = Arrays.copyOf(ranges, capacity * 4);
+		sequences = Arrays.copyOf(sequences, capacity);
+		stamps = Arrays.copyOf(stamps, capacity);
+		free = Arrays.copyOf(free, capacity);
+	}
+}
@@ -0,0 +1,139 @@
+package fr.test.netbeans.test.example;
+
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Layer of a synoptic page, painted in order with the other layers of its {@link SynopticScene}.
+ *
+ * The shapes of a background layer rarely change : they are painted once in cached tiles, which are copied on each repaint. The shapes of the
+ * other layers are painted on each repaint of their region. The shapes are indexed by a {@link SynopticGrid}, so the shapes of a region
+ * are found without reading all the shapes.
+ *
+ * @author BGRY
+ */
+public final class SynopticLayer {
+
+	private final String _Name;
+	private final boolean _Background;
+	private boolean _Visible = true;
+	/**
+	 * Shapes in paint order.
+	 */
+	private final List<SynopticShape> shapes = new ArrayList<>();
+	private final SynopticGrid index;
+	/**
+	 * Paint order of the next added shape.
+	 */
+	private int nextSequence = 0;
+
+	SynopticLayer(String name, boolean background, double width, double height) {
+		this._Name = name;
+		this._Background = background;
+		this.index = new SynopticGrid(width, height);
+	}
+
+	public String getName() {
+		return _Name;
+	}
+
+	/**
+	 * Checks if the layer is painted in the cached background.
+	 *
+	 * @return true for a background layer.
+	 */
+	public boolean isBackground() {
+		return _Background;
+	}
+
+	public boolean isVisible() {
+		return _Visible;
+	}
+
+	void setVisible(boolean visible) {
+		this._Visible = visible;
+	}
+
+	/**
+	 * Gets the shapes of the layer.
+	 *
+	 * @return the shapes, in paint order.
+	 */
+	public List<SynopticShape> getShapes() {
+		return Collections.unmodifiableList(shapes);
+	}
+
+	/**
+	 * Finds the shapes whose painted region intersects a region of the page.
+	 *
+	 * @param region : region of the page.
+	 * @return the shapes, in paint order.
+	 */
+	public List<SynopticShape> getShapes(Rectangle2D region) {
+		List<SynopticShape> result = new ArrayList<>();
+		index.search(region.getX(), region.getY(), region.getWidth(), region.getHeight(), result);
+		return result;
+	}
+
+	/**
+	 * Finds the shapes whose painted region intersects a rectangle, without allocation once the list is large enough.
+	 *
+	 * @param x : left of the rectangle.
+	 * @param y : top of the rectangle.
+	 * @param width : width of the rectangle.
+	 * @param height : height of the rectangle.
+	 * @param result : list to which the shapes are added, in paint order.
+	 */
+	void search(double x, double y, double width, double height, List<SynopticShape> result) {
+		index.search(x, y, width, height, result);
+	}
+
+	/**
+	 * Finds the topmost shape of the layer whose outline contains a point.
+	 *
+	 * @param x : abscissa on the page.
+	 * @param y : ordinate on the page.
+	 * @return the shape, or null if there is none.
+	 */
+	public SynopticShape getShapeAt(double x, double y) {
+		return index.find(x, y);
+	}
+
+	void add(SynopticShape shape) {
+		if (nextSequence == Integer.MAX_VALUE) {
+			renumber();
+		}
+		shapes.add(shape);
+		shape.indexId = index.add(shape, nextSequence++);
+	}
+
+	boolean remove(SynopticShape shape) {
+		if (shape.indexId < 0 || !shapes.remove(shape)) {
+			return false;
+		}
+		index.remove(shape.indexId);
+		shape.indexId = -1;
+		return true;
+	}
+
+	/**
+	 * Updates the index after a shape moved.
+	 *
+	 * @param shape : shape of the layer.
+	 */
+	void moved(SynopticShape shape) {
+		index.update(shape.indexId);
+	}
+
+	/**
+	 * Numbers the shapes again from 0 in paint order, when the paint order reached its maximum.
+	 */
+	private void renumber() {
+		nextSequence = 0;
+		for (SynopticShape shape : shapes) {
+			index.setSequence(shape.indexId, nextSequence++);
+		}
+	}
+}
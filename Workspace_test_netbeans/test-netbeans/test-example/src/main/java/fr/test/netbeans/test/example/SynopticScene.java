@@ -0,0 +1,261 @@
+package fr.test.netbeans.test.example;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Shape;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Retained scene graph of a synoptic page : layers of shapes, painted in order.
+ *
+ * The scene is modified through its methods, which notify the listeners of the changed shapes so the views only repaint their regions. The
+ * shapes of a region or under a point are found through the spatial index of each layer. The scene is only accessed on the EDT.
+ *
+ * @author BGRY
+ */
+public final class SynopticScene {
+
+	/**
+	 * Listener of the changes of a scene.
+	 */
+	public interface Listener {
+
+		/**
+		 * Called when a shape was added.
+		 *
+		 * @param shape : added shape.
+		 */
+		void shapeAdded(SynopticShape shape);
+
+		/**
+		 * Called when a shape was removed.
+		 *
+		 * @param shape : removed shape.
+		 */
+		void shapeRemoved(SynopticShape shape);
+
+		/**
+		 * Called when a shape moved or its style changed.
+		 *
+		 * @param shape : changed shape.
+		 * @param oldX : previous left of the shape.
+		 * @param oldY : previous top of the shape.
+		 */
+		void shapeChanged(SynopticShape shape, double oldX, double oldY);
+
+		/**
+		 * Called when the layers or their visibility changed : the whole page has to be repainted.
+		 */
+		void layersChanged();
+	}
+
+	private final Dimension size;
+	private final List<SynopticLayer> layers = new ArrayList<>();
+	private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+	private int shapeCount = 0;
+
+	/**
+	 * Creates an empty scene.
+	 *
+	 * @param width : width of the page.
+	 * @param height : height of the page.
+	 */
+	public SynopticScene(int width, int height) {
+		this.size = new Dimension(width, height);
+	}
+
+	/**
+	 * Gets the size of the page.
+	 *
+	 * @return a new dimension.
+	 */
+	public Dimension getSize() {
+		return new Dimension(size);
+	}
+
+	/**
+	 * Gets the layers.
+	 *
+	 * @return the layers, in paint order.
+	 */
+	public List<SynopticLayer> getLayers() {
+		return Collections.unmodifiableList(layers);
+	}
+
+	/**
+	 * Gets the number of shapes of all the layers.
+	 *
+	 * @return the number of shapes.
+	 */
+	public int getShapeCount() {
+		return shapeCount;
+	}
+
+	/**
+	 * Adds a layer above the others.
+	 *
+	 * @param name : name of the layer.
+	 * @param background : true if the shapes of the layer rarely change and are painted in the cached background.
+	 * @return the new layer.
+	 */
+	public SynopticLayer addLayer(String name, boolean background) {
+		SynopticLayer layer = new SynopticLayer(name, background, size.width, size.height);
+		layers.add(layer);
+		fireLayersChanged();
+		return layer;
+	}
+
+	/**
+	 * Shows or hides a layer.
+	 *
+	 * @param layer : layer of the scene.
+	 * @param visible : true to show the layer.
+	 */
+	public void setVisible(SynopticLayer layer, boolean visible) {
+		if (layer.isVisible() != visible) {
+			layer.setVisible(visible);
+			fireLayersChanged();
+		}
+	}
+
+	/**
+	 * Adds a shape above the others of its layer.
+	 *
+	 * @param layer : layer of the scene.
+	 * @param outline : geometry of the shape, in its own coordinates, fitted in the bounds.
+	 * @param bounds : bounds of the shape on the page.
+	 * @param tag : tag of the value displayed by the shape, or null.
+	 * @param fill : fill color, or null.
+	 * @param stroke : stroke color, or null.
+	 * @return the new shape.
+	 */
+	public SynopticShape add(SynopticLayer layer, Shape outline, Rectangle2D bounds, String tag, Color fill, Color stroke) {
+		if (!layers.contains(layer)) {
+			throw new IllegalArgumentException("layer is not a layer of this scene.");
+		}
+		SynopticShape shape = new SynopticShape(layer, outline, bounds, tag, fill, stroke);
+		layer.add(shape);
+		shapeCount++;
+		for (Listener listener : listeners) {
+			listener.shapeAdded(shape);
+		}
+		return shape;
+	}
+
+	/**
+	 * Removes a shape.
+	 *
+	 * @param shape : shape of the scene.
+	 */
+	public void remove(SynopticShape shape) {
+		if (shape.getLayer().remove(shape)) {
+			shapeCount--;
+			for (Listener listener : listeners) {
+				listener.shapeRemoved(shape);
+			}
+		}
+	}
+
+	/**
+	 * Moves a shape.
+	 *
+	 * @param shape : shape of the scene.
+	 * @param x : new left.
+	 * @param y : new top.
+	 */
+	public void move(SynopticShape shape, double x, double y) {
+		double oldX = shape.getX();
+		double oldY = shape.getY();
+		if (oldX != x || oldY != y) {
+			shape.setLocation(x, y);
+			shape.getLayer().moved(shape);
+			fireShapeChanged(shape, oldX, oldY);
+		}
+	}
+
+	/**
+	 * Changes the colors of a shape.
+	 *
+	 * @param shape : shape of the scene.
+	 * @param fill : fill color, or null.
+	 * @param stroke : stroke color, or null.
+	 */
+	public void setColors(SynopticShape shape, Color fill, Color stroke) {
+		if (!Objects.equals(fill, shape.getFill()) || !Objects.equals(stroke, shape.getStroke())) {
+			shape.setFill(fill);
+			shape.setStroke(stroke);
+			fireShapeChanged(shape, shape.getX(), shape.getY());
+		}
+	}
+
+	/**
+	 * Finds the topmost visible shape whose outline contains a point.
+	 *
+	 * @param x : abscissa on the page.
+	 * @param y : ordinate on the page.
+	 * @return the shape, or null if there is none.
+	 */
+	public SynopticShape getShapeAt(double x, double y) {
+		for (int i = layers.size() - 1; i >= 0; i--) {
+			SynopticLayer layer = layers.get(i);
+			if (layer.isVisible()) {
+				SynopticShape shape = layer.getShapeAt(x, y);
+				if (shape != null) {
+					return shape;
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Finds the visible shapes of a region of the page.
+	 *
+	 * @param region : region of the page.
+	 * @param contained : true for the shapes whose bounds are inside the region, false for the shapes whose painted region intersects it.
+	 * @return the shapes, in paint order.
+	 */
+	public List<SynopticShape> getShapes(Rectangle2D region, boolean contained) {
+		List<SynopticShape> found = new ArrayList<>();
+		for (SynopticLayer layer : layers) {
+			if (layer.isVisible()) {
+				layer.search(region.getX(), region.getY(), region.getWidth(), region.getHeight(), found);
+			}
+		}
+		if (!contained) {
+			return found;
+		}
+		List<SynopticShape> result = new ArrayList<>();
+		for (SynopticShape shape : found) {
+			if (region.contains(shape.getX(), shape.getY(), shape.getWidth(), shape.getHeight())) {
+				result.add(shape);
+			}
+		}
+		return result;
+	}
+
+	public void addListener(Listener listener) {
+		listeners.add(listener);
+	}
+
+	public void removeListener(Listener listener) {
+		listeners.remove(listener);
+	}
+
+	private void fireShapeChanged(SynopticShape shape, double oldX, double oldY) {
+		for (Listener listener : listeners) {
+			listener.shapeChanged(shape, oldX, oldY);
+		}
+	}
+
+	private void fireLayersChanged() {
+		for (Listener listener : listeners) {
+			listener.layersChanged();
+		}
+	}
+}
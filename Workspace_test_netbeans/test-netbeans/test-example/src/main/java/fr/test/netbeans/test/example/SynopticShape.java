@@ -0,0 +1,198 @@
+package fr.test.netbeans.test.example;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.Shape;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Rectangle2D;
+
+/**
+ * Shape placed on a synoptic page : an outline fitted in its bounds, filled and stroked.
+ *
+ * A shape is modified through its {@link SynopticScene}, which notifies the views of the region to repaint.
+ *
+ * @author BGRY
+ */
+public final class SynopticShape {
+
+	/**
+	 * Margin in pixels around the bounds covering the stroke and the antialiasing.
+	 */
+	private static final int PAINT_MARGIN = 2;
+
+	private final SynopticLayer _Layer;
+	/**
+	 * Outline fitted in a rectangle at the origin of the size of the bounds.
+	 */
+	private final Shape _Outline;
+	private final String _Tag;
+	private double _X;
+	private double _Y;
+	private final double _Width;
+	private final double _Height;
+	private Color _Fill;
+	private Color _Stroke;
+	private float _StrokeWidth;
+	private BasicStroke stroke;
+	/**
+	 * Identifier of the shape in the spatial index of its layer.
+	 */
+	int indexId = -1;
+
+	/**
+	 * Creates a shape.
+	 *
+	 * @param layer : layer of the shape.
+	 * @param outline : geometry of the shape, in its own coordinates.
+	 * @param bounds : bounds of the shape on the page.
+	 * @param tag : tag of the value displayed by the shape, or null.
+	 * @param fill : fill color, or null.
+	 * @param strokeColor : stroke color, or null.
+	 */
+	SynopticShape(SynopticLayer layer, Shape outline, Rectangle2D bounds, String tag, Color fill, Color strokeColor) {
+		this._Layer = layer;
+		this._Outline = fit(outline, bounds.getWidth(), bounds.getHeight());
+		this._Tag = tag;
+		this._X = bounds.getX();
+		this._Y = bounds.getY();
+		this._Width = bounds.getWidth();
+		this._Height = bounds.getHeight();
+		this._Fill = fill;
+		this._Stroke = strokeColor;
+		setStrokeWidth(1f);
+	}
+
+	/**
+	 * Scales and translates an outline into a rectangle at the origin.
+	 */
+	private static Shape fit(Shape outline, double width, double height) {
+		Rectangle2D bounds = outline.getBounds2D();
+		AffineTransform transform = new AffineTransform();
+		transform.scale(width / Math.max(1e-6, bounds.getWidth()), height / Math.max(1e-6, bounds.getHeight()));
+		transform.translate(-bounds.getX(), -bounds.getY());
+		return transform.createTransformedShape(outline);
+	}
+
+	public SynopticLayer getLayer() {
+		return _Layer;
+	}
+
+	public String getTag() {
+		return _Tag;
+	}
+
+	public double getX() {
+		return _X;
+	}
+
+	public double getY() {
+		return _Y;
+	}
+
+	public double getWidth() {
+		return _Width;
+	}
+
+	public double getHeight() {
+		return _Height;
+	}
+
+	public Color getFill() {
+		return _Fill;
+	}
+
+	public Color getStroke() {
+		return _Stroke;
+	}
+
+	public float getStrokeWidth() {
+		return _StrokeWidth;
+	}
+
+	/**
+	 * Gets the bounds of the shape on the page.
+	 *
+	 * @return a new rectangle.
+	 */
+	public Rectangle2D getBounds() {
+		return new Rectangle2D.Double(_X, _Y, _Width, _Height);
+	}
+
+	/**
+	 * Gets the region of the page painted by the shape, stroke included.
+	 *
+	 * @return a new rectangle.
+	 */
+	public Rectangle getPaintBounds() {
+		return getPaintBounds(_X, _Y);
+	}
+
+	Rectangle getPaintBounds(double x, double y) {
+		int margin = (int) Math.ceil(getPaintMargin());
+		int left = (int) Math.floor(x) - margin;
+		int top = (int) Math.floor(y) - margin;
+		return new Rectangle(left, top, (int) Math.ceil(x + _Width) + margin - left, (int) Math.ceil(y + _Height) + margin - top);
+	}
+
+	/**
+	 * Gets the margin around the bounds of the region painted by the shape.
+	 *
+	 * @return the margin in pixels.
+	 */
+	double getPaintMargin() {
+		return PAINT_MARGIN + _StrokeWidth / 2;
+	}
+
+	/**
+	 * Checks if a point of the page is inside the outline of the shape.
+	 *
+	 * @param x : abscissa on the page.
+	 * @param y : ordinate on the page.
+	 * @return true if the point is inside.
+	 */
+	public boolean contains(double x, double y) {
+		return _Outline.contains(x - _X, y - _Y);
+	}
+
+	void setLocation(double x, double y) {
+		this._X = x;
+		this._Y = y;
+	}
+
+	void setFill(Color fill) {
+		this._Fill = fill;
+	}
+
+	void setStroke(Color stroke) {
+		this._Stroke = stroke;
+	}
+
+	void setStrokeWidth(float width) {
+		this._StrokeWidth = width;
+		this.stroke = new BasicStroke(width);
+	}
+
+	/**
+	 * Paints the shape.
+	 *
+	 * @param g : graphics in page coordinates.
+	 */
+	void paint(Graphics2D g) {
+		g.translate(_X, _Y);
+		try {
+			if (_Fill != null) {
+				g.setColor(_Fill);
+				g.fill(_Outline);
+			}
+			if (_Stroke != null) {
+				g.setColor(_Stroke);
+				g.setStroke(stroke);
+				g.draw(_Outline);
+			}
+		} finally {
+			g.translate(-_X, -_Y);
+		}
+	}
+}
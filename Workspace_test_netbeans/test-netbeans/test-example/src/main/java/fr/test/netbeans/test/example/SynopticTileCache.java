@@ -0,0 +1,226 @@
+package fr.test.netbeans.test.example;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Image;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.awt.image.VolatileImage;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Cache of the background of a synoptic page : the page color and the background layers, painted in tiles.
+ *
+ * The tiles are created when first painted and the least recently painted ones are released beyond the capacity, so the memory does not depend
+ * on the size of the page. They are VolatileImages when the screen is known, which the graphics card copies ; their content is painted again
+ * when it is lost. The tiles of a changed region are painted again the next time they are copied. Only accessed on the EDT.
+ *
+ * @author BGRY
+ */
+final class SynopticTileCache {
+
+	static final int TILE_SIZE = 256;
+	/**
+	 * Maximum number of attempts to copy a tile whose content is lost.
+	 */
+	private static final int MAX_ATTEMPTS = 3;
+
+	private final SynopticScene scene;
+	private final Color background;
+	/**
+	 * Tiles by column and row, in least recently painted order.
+	 */
+	private final LinkedHashMap<Long, Tile> tiles;
+	private long renderedCount = 0;
+	/**
+	 * Shapes of the painted tile, reused between the tiles.
+	 */
+	private final List<SynopticShape> found = new ArrayList<>();
+
+	/**
+	 * Creates a cache.
+	 *
+	 * @param scene : painted scene.
+	 * @param background : color of the page.
+	 * @param capacity : maximum number of tiles kept.
+	 */
+	SynopticTileCache(SynopticScene scene, Color background, final int capacity) {
+		this.scene = scene;
+		this.background = background;
+		this.tiles = new LinkedHashMap<Long, Tile>() {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Long, Tile> eldest) {
+				if (size() > capacity) {
+					eldest.getValue().flush();
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	/**
+	 * Copies the tiles of a region of the page, painting the ones which are not valid.
+	 *
+	 * @param g : graphics in page coordinates.
+	 * @param clip : painted region of the page.
+	 * @param gc : configuration of the screen, or null.
+	 */
+	void paint(Graphics2D g, Rectangle clip, GraphicsConfiguration gc) {
+		int firstColumn = Math.max(0, Math.floorDiv(clip.x, TILE_SIZE));
+		int firstRow = Math.max(0, Math.floorDiv(clip.y, TILE_SIZE));
+		int lastColumn = Math.floorDiv(clip.x + clip.width - 1, TILE_SIZE);
+		int lastRow = Math.floorDiv(clip.y + clip.height - 1, TILE_SIZE);
+		for (int row = firstRow; row <= lastRow; row++) {
+			for (int column = firstColumn; column <= lastColumn; column++) {
+				// Moved last, as the most recently painted
+				long key = key(column, row);
+				Tile tile = tiles.remove(key);
+				if (tile == null) {
+					tile = new Tile();
+				}
+				tiles.put(key, tile);
+				tile.paint(g, column * TILE_SIZE, row * TILE_SIZE, gc);
+			}
+		}
+	}
+
+	/**
+	 * Invalidates the tiles of a region of the page.
+	 *
+	 * @param region : changed region.
+	 */
+	void invalidate(Rectangle region) {
+		int firstColumn = Math.max(0, Math.floorDiv(region.x, TILE_SIZE));
+		int firstRow = Math.max(0, Math.floorDiv(region.y, TILE_SIZE));
+		int lastColumn = Math.floorDiv(region.x + region.width - 1, TILE_SIZE);
+		int lastRow = Math.floorDiv(region.y + region.height - 1, TILE_SIZE);
+		for (int row = firstRow; row <= lastRow; row++) {
+			for (int column = firstColumn; column <= lastColumn; column++) {
+				Tile tile = tiles.get(key(column, row));
+				if (tile != null) {
+					tile.valid = false;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Invalidates all the tiles.
+	 */
+	void invalidateAll() {
+		for (Tile tile : tiles.values()) {
+			tile.valid = false;
+		}
+	}
+
+	/**
+	 * Releases the tiles.
+	 */
+	void clear() {
+		for (Iterator<Tile> it = tiles.values().iterator(); it.hasNext();) {
+			it.next().flush();
+			it.remove();
+		}
+	}
+
+	/**
+	 * Gets the number of tiles painted since the creation of the cache.
+	 *
+	 * @return the number of painted tiles.
+	 */
+	long getRenderedCount() {
+		return renderedCount;
+	}
+
+	private static long key(int column, int row) {
+		return ((long) column << 32) | (row & 0xFFFFFFFFL);
+	}
+
+	/**
+	 * Paints the background of a tile.
+	 */
+	private void render(Graphics2D g, int x, int y) {
+		renderedCount++;
+		g.setColor(background);
+		g.fillRect(0, 0, TILE_SIZE, TILE_SIZE);
+		g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+		g.translate(-x, -y);
+		for (SynopticLayer layer : scene.getLayers()) {
+			if (layer.isBackground() && layer.isVisible()) {
+				layer.search(x, y, TILE_SIZE, TILE_SIZE, found);
+				for (SynopticShape shape : found) {
+					shape.paint(g);
+				}
+				found.clear();
+			}
+		}
+	}
+
+	/**
+	 * Tile of the background.
+	 */
+	private final class Tile {
+
+		private Image image = null;
+		private boolean valid = false;
+
+		void paint(Graphics2D g, int x, int y, GraphicsConfiguration gc) {
+			if (gc == null) {
+				if (!(image instanceof BufferedImage)) {
+					flush();
+					image = new BufferedImage(TILE_SIZE, TILE_SIZE, BufferedImage.TYPE_INT_RGB);
+				}
+				if (!valid) {
+					renderImage(x, y);
+				}
+				g.drawImage(image, x, y, null);
+				return;
+			}
+			for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+				int status = image instanceof VolatileImage ? ((VolatileImage) image).validate(gc) : VolatileImage.IMAGE_INCOMPATIBLE;
+				if (status == VolatileImage.IMAGE_INCOMPATIBLE) {
+					flush();
+					image = gc.createCompatibleVolatileImage(TILE_SIZE, TILE_SIZE, Transparency.OPAQUE);
+					valid = false;
+				} else if (status == VolatileImage.IMAGE_RESTORED) {
+					valid = false;
+				}
+				if (!valid) {
+					renderImage(x, y);
+				}
+				g.drawImage(image, x, y, null);
+				if (!((VolatileImage) image).contentsLost()) {
+					return;
+				}
+				valid = false;
+			}
+		}
+
+		private void renderImage(int x, int y) {
+			Graphics2D tileGraphics = (Graphics2D) image.getGraphics();
+			try {
+				render(tileGraphics, x, y);
+			} finally {
+				tileGraphics.dispose();
+			}
+			valid = true;
+		}
+
+		void flush() {
+			if (image != null) {
+				image.flush();
+				image = null;
+			}
+		}
+	}
+}
@@ -0,0 +1,192 @@
+package fr.test.netbeans.test.example;
+
+import java.awt.BorderLayout;
+import java.awt.Color;
+import java.awt.FlowLayout;
+import java.awt.Shape;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Rectangle2D;
+import java.util.LinkedHashSet;
+import java.util.Random;
+import java.util.Set;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JToggleButton;
+import org.openide.awt.ActionID;
+import org.openide.awt.ActionReference;
+import org.openide.util.Lookup;
+import org.openide.util.NbBundle.Messages;
+import org.openide.windows.TopComponent;
+
+/**
+ * Top component which displays a synoptic page.
+ *
+ * Until a scene is set, it displays a generated page whose number of shapes is given by the "test-example.synoptic.demo" property. The shapes
+ * display the live values of the {@link LiveValueSource}s of the default lookup while the component is opened, and the values of a
+ * {@link SimulatedValueSource} can be displayed from the toolbar.
+ */
+@TopComponent.Description(
+		preferredID = "SynopticTopComponent",
+		iconBase = "",
+		persistenceType = TopComponent.PERSISTENCE_NEVER
+)
+@TopComponent.Registration(mode = "editor", openAtStartup = false)
+@ActionID(category = "Window", id = "fr.test.netbeans.test.example.SynopticTopComponent")
+@ActionReference(path = "Menu/Window", position = 340)
+@TopComponent.OpenActionRegistration(
+		displayName = "#CTL_SynopticAction",
+		preferredID = "SynopticTopComponent"
+)
+@Messages({
+	"CTL_SynopticAction=Synoptic",
+	"CTL_SynopticTopComponent=Synoptic",
+	"HINT_SynopticTopComponent=Synoptic page",
+	"LBL_SynopticFrameTimes=Frame times",
+	"LBL_SynopticSimulate=Simulated values"
+})
+public final class SynopticTopComponent extends TopComponent {
+
+	private static final long serialVersionUID = 1L;
+	private static final int DEMO_SHAPES = Integer.getInteger("test-example.synoptic.demo", 20000);
+	private static final int DEMO_CELL = 40;
+
+	private final JScrollPane scrollPane = new JScrollPane();
+	private final JToggleButton frameTimes = new JToggleButton(Bundle.LBL_SynopticFrameTimes());
+	private final JToggleButton simulate = new JToggleButton(Bundle.LBL_SynopticSimulate());
+	private SynopticView view = null;
+	private SynopticBinder binder = null;
+	private SimulatedValueSource simulation = null;
+
+	public SynopticTopComponent() {
+		setName(Bundle.CTL_SynopticTopComponent());
+		setToolTipText(Bundle.HINT_SynopticTopComponent());
+		setLayout(new BorderLayout());
+
+		scrollPane.getVerticalScrollBar().setUnitIncrement(DEMO_CELL);
+		scrollPane.getHorizontalScrollBar().setUnitIncrement(DEMO_CELL);
+		add(scrollPane, BorderLayout.CENTER);
+
+		frameTimes.addActionListener(new ActionListener() {
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				if (view != null) {
+					view.setOverlayVisible(frameTimes.isSelected());
+				}
+			}
+		});
+		simulate.addActionListener(new ActionListener() {
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				setSimulated(simulate.isSelected());
+			}
+		});
+		JPanel toolbar = new JPanel(new FlowLayout(FlowLayout.LEADING));
+		toolbar.add(frameTimes);
+		toolbar.add(simulate);
+		add(toolbar, BorderLayout.NORTH);
+	}
+
+	/**
+	 * Displays a scene.
+	 *
+	 * @param scene : displayed scene.
+	 */
+	public void setScene(SynopticScene scene) {
+		boolean started = binder != null && binder.isStarted();
+		if (started) {
+			binder.stop();
+		}
+		simulation = null;
+		view = new SynopticView(scene);
+		scrollPane.setViewportView(view);
+		view.setOverlayVisible(frameTimes.isSelected());
+		binder = new SynopticBinder(scene);
+		for (LiveValueSource source : Lookup.getDefault().lookupAll(LiveValueSource.class)) {
+			binder.addSource(source);
+		}
+		setSimulated(simulate.isSelected());
+		if (started) {
+			binder.start();
+		}
+	}
+
+	/**
+	 * Starts or stops the simulated values of the tags of the shapes.
+	 */
+	private void setSimulated(boolean simulated) {
+		if (binder == null) {
+			return;
+		}
+		if (simulated && simulation == null) {
+			Set<String> tags = new LinkedHashSet<>();
+			for (SynopticLayer layer : view.getScene().getLayers()) {
+				for (SynopticShape shape : layer.getShapes()) {
+					if (shape.getTag() != null) {
+						tags.add(shape.getTag());
+					}
+				}
+			}
+			simulation = new SimulatedValueSource(tags.toArray(new String[tags.size()]), SimulatedValueSource.DEFAULT_RATE);
+			binder.addSource(simulation);
+		} else if (!simulated && simulation != null) {
+			binder.removeSource(simulation);
+			simulation = null;
+		}
+	}
+
+	/**
+	 * Gets the view of the displayed scene.
+	 *
+	 * @return the view, or null before the component is opened.
+	 */
+	public SynopticView getView() {
+		return view;
+	}
+
+	@Override
+	public void componentOpened() {
+		if (view == null) {
+			setScene(createDemoScene(DEMO_SHAPES));
+		}
+		binder.start();
+	}
+
+	@Override
+	public void componentClosed() {
+		binder.stop();
+	}
+
+	/**
+	 * Creates a page with a background grid of cells, and a shape in each cell.
+	 *
+	 * @param shapeCount : number of shapes.
+	 * @return the scene.
+	 */
+	static SynopticScene createDemoScene(int shapeCount) {
+		int columns = Math.max(1, (int) Math.ceil(Math.sqrt(shapeCount)));
+		int rows = Math.max(1, (shapeCount + columns - 1) / columns);
+		SynopticScene scene = new SynopticScene(columns * DEMO_CELL, rows * DEMO_CELL);
+		SynopticLayer background = scene.addLayer("background", true);
+		SynopticLayer values = scene.addLayer("values", false);
+		Color grid = new Color(0xDDDDDD);
+		for (int row = 0; row < rows; row++) {
+			for (int column = 0; column < columns; column++) {
+				scene.add(background, new Rectangle2D.Double(0, 0, 1, 1), new Rectangle2D.Double(column * DEMO_CELL, row * DEMO_CELL,
+						DEMO_CELL, DEMO_CELL), null, null, grid);
+			}
+		}
+		Random random = new Random(0);
+		Shape rectangle = new Rectangle2D.Double(0, 0, 1, 1);
+		Shape ellipse = new Ellipse2D.Double(0, 0, 1, 1);
+		for (int i = 0; i < shapeCount; i++) {
+			int column = i % columns;
+			int row = i / columns;
+			Color fill = Color.getHSBColor(random.nextFloat(), 0.6f, 0.9f);
+			scene.add(values, i % 2 == 0 ? rectangle : ellipse, new Rectangle2D.Double(column * DEMO_CELL + 8, row * DEMO_CELL + 8,
+					DEMO_CELL - 16, DEMO_CELL - 16), "value" + i, fill, Color.DARK_GRAY);
+		}
+		return scene;
+	}
+}
@@ -0,0 +1,502 @@
+package fr.test.netbeans.test.example;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Font;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import javax.swing.JComponent;
+import javax.swing.JViewport;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+import javax.swing.ToolTipManager;
+
+/**
+ * View of a {@link SynopticScene}.
+ *
+ * The background layers are copied from a {@link SynopticTileCache}, only the other layers are painted. The regions of the changed shapes are
+ * collected and repainted once per frame : the regions which overlap, or whose union is not much larger than the regions themselves, are
+ * merged, and the parts which are not visible are not painted. An overlay can display the frame times. The shape under the mouse and the
+ * shapes of a rubber band are found through the spatial index of the scene. Only accessed on the EDT.
+ *
+ * @author BGRY
+ */
+public final class SynopticView extends JComponent {
+
+	private static final long serialVersionUID = 1L;
+	/**
+	 * Property of the selected shapes.
+	 */
+	public static final String PROP_SELECTION = "selection";
+	/**
+	 * Delay in milliseconds between a change and the frame repainting it, changes made meanwhile are painted in the same frame.
+	 */
+	private static final int FRAME_DELAY = 16;
+	/**
+	 * Number of regions from which the regions of a frame are painted as one.
+	 */
+	private static final int MAX_DIRTY_REGIONS = 64;
+	/**
+	 * Maximum number of background tiles kept.
+	 */
+	private static final int TILE_CAPACITY = Integer.getInteger("test-example.synoptic.tiles", 256);
+	private static final Color PAGE_COLOR = Color.WHITE;
+	private static final int OVERLAY_WIDTH = 260;
+	private static final int OVERLAY_HEIGHT = 20;
+	private static final Color SELECTION_COLOR = new Color(0x3875D7);
+	private static final Color RUBBER_BAND_FILL = new Color(0x38, 0x75, 0xD7, 48);
+
+	private final SynopticScene scene;
+	private final SynopticTileCache tiles;
+	/**
+	 * Regions to repaint in the next frame, in page coordinates.
+	 */
+	private final List<Rectangle> dirtyRegions = new ArrayList<>();
+	private boolean repaintAll = false;
+	private final Timer frameTimer;
+	private final FrameTimes frameTimes = new FrameTimes(120);
+	private boolean overlayVisible = false;
+	private boolean inFrame = false;
+	/**
+	 * Shapes of the painted region, reused between the repaints.
+	 */
+	private final List<SynopticShape> found = new ArrayList<>();
+	private List<SynopticShape> selection = Collections.emptyList();
+	/**
+	 * Rubber band being dragged, or null.
+	 */
+	private Rectangle rubberBand = null;
+	private final SynopticScene.Listener sceneListener = new SynopticScene.Listener() {
+		@Override
+		public void shapeAdded(SynopticShape shape) {
+			changed(shape.getLayer(), shape.getPaintBounds());
+		}
+
+		@Override
+		public void shapeRemoved(SynopticShape shape) {
+			changed(shape.getLayer(), shape.getPaintBounds());
+			if (selection.contains(shape)) {
+				List<SynopticShape> newSelection = new ArrayList<>(selection);
+				newSelection.remove(shape);
+				setSelection(newSelection);
+			}
+		}
+
+		@Override
+		public void shapeChanged(SynopticShape shape, double oldX, double oldY) {
+			Rectangle oldBounds = shape.getPaintBounds(oldX, oldY);
+			Rectangle newBounds = shape.getPaintBounds();
+			if (oldBounds.intersects(newBounds)) {
+				changed(shape.getLayer(), oldBounds.union(newBounds));
+			} else {
+				changed(shape.getLayer(), oldBounds);
+				changed(shape.getLayer(), newBounds);
+			}
+		}
+
+		@Override
+		public void layersChanged() {
+			tiles.invalidateAll();
+			repaintAll = true;
+			scheduleFrame();
+		}
+	};
+
+	/**
+	 * Creates a view.
+	 *
+	 * @param scene : displayed scene.
+	 */
+	public SynopticView(SynopticScene scene) {
+		this.scene = scene;
+		this.tiles = new SynopticTileCache(scene, PAGE_COLOR, TILE_CAPACITY);
+		this.frameTimer = new Timer(FRAME_DELAY, new ActionListener() {
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				paintFrame();
+			}
+		});
+		frameTimer.setRepeats(false);
+		MouseAdapter mouseListener = new MouseAdapter() {
+			private int anchorX;
+			private int anchorY;
+
+			@Override
+			public void mousePressed(MouseEvent e) {
+				if (SwingUtilities.isLeftMouseButton(e)) {
+					anchorX = e.getX();
+					anchorY = e.getY();
+				}
+			}
+
+			@Override
+			public void mouseDragged(MouseEvent e) {
+				if (SwingUtilities.isLeftMouseButton(e)) {
+					setRubberBand(new Rectangle(Math.min(anchorX, e.getX()), Math.min(anchorY, e.getY()), Math.abs(e.getX() - anchorX),
+							Math.abs(e.getY() - anchorY)));
+				}
+			}
+
+			@Override
+			public void mouseReleased(MouseEvent e) {
+				if (!SwingUtilities.isLeftMouseButton(e)) {
+					return;
+				}
+				if (rubberBand != null) {
+					Rectangle band = rubberBand;
+					setRubberBand(null);
+					setSelection(scene.getShapes(band, true));
+				} else {
+					SynopticShape shape = scene.getShapeAt(e.getX(), e.getY());
+					setSelection(shape != null ? Collections.singletonList(shape) : Collections.<SynopticShape>emptyList());
+				}
+			}
+		};
+		addMouseListener(mouseListener);
+		addMouseMotionListener(mouseListener);
+		ToolTipManager.sharedInstance().registerComponent(this);
+		setOpaque(true);
+		Dimension size = scene.getSize();
+		setPreferredSize(size);
+	}
+
+	public SynopticScene getScene() {
+		return scene;
+	}
+
+	@Override
+	public void addNotify() {
+		super.addNotify();
+		scene.addListener(sceneListener);
+		// The screen may have changed
+		tiles.clear();
+	}
+
+	@Override
+	public void removeNotify() {
+		scene.removeListener(sceneListener);
+		frameTimer.stop();
+		tiles.clear();
+		super.removeNotify();
+	}
+
+	/**
+	 * Shows or hides the frame time overlay.
+	 *
+	 * @param visible : true to show the overlay.
+	 */
+	public void setOverlayVisible(boolean visible) {
+		if (overlayVisible != visible) {
+			overlayVisible = visible;
+			// The overlay stays at the top left of the viewport : the viewport cannot copy the scrolled pixels.
+			if (getParent() instanceof JViewport) {
+				((JViewport) getParent()).setScrollMode(visible ? JViewport.SIMPLE_SCROLL_MODE : JViewport.BLIT_SCROLL_MODE);
+			}
+			repaint(getOverlayBounds());
+		}
+	}
+
+	public boolean isOverlayVisible() {
+		return overlayVisible;
+	}
+
+	/**
+	 * Gets the times of the last frames.
+	 *
+	 * @return the frame times.
+	 */
+	public FrameTimes getFrameTimes() {
+		return frameTimes;
+	}
+
+	/**
+	 * Gets the selected shapes.
+	 *
+	 * @return the selected shapes, in paint order.
+	 */
+	public List<SynopticShape> getSelection() {
+		return Collections.unmodifiableList(selection);
+	}
+
+	/**
+	 * Selects shapes of the scene.
+	 *
+	 * @param shapes : selected shapes.
+	 */
+	public void setSelection(List<SynopticShape> shapes) {
+		List<SynopticShape> oldSelection = selection;
+		selection = new ArrayList<>(shapes);
+		for (SynopticShape shape : oldSelection) {
+			addDirtyRegion(shape.getPaintBounds());
+		}
+		for (SynopticShape shape : selection) {
+			addDirtyRegion(shape.getPaintBounds());
+		}
+		firePropertyChange(PROP_SELECTION, Collections.unmodifiableList(oldSelection), getSelection());
+	}
+
+	private void setRubberBand(Rectangle band) {
+		if (rubberBand != null) {
+			addDirtyRegion(new Rectangle(rubberBand.x, rubberBand.y, rubberBand.width + 1, rubberBand.height + 1));
+		}
+		rubberBand = band;
+		if (band != null) {
+			addDirtyRegion(new Rectangle(band.x, band.y, band.width + 1, band.height + 1));
+		}
+	}
+
+	/**
+	 * Gets the tag of the shape under the mouse.
+	 *
+	 * @param event : mouse event.
+	 * @return the tag, or null.
+	 */
+	@Override
+	public String getToolTipText(MouseEvent event) {
+		SynopticShape shape = scene.getShapeAt(event.getX(), event.getY());
+		return shape != null ? shape.getTag() : null;
+	}
+
+	/**
+	 * Records a changed region of a layer, to be repainted in the next frame.
+	 */
+	private void changed(SynopticLayer layer, Rectangle region) {
+		if (layer.isBackground()) {
+			tiles.invalidate(region);
+		}
+		if (layer.isVisible()) {
+			addDirtyRegion(region);
+		}
+	}
+
+	/**
+	 * Records a region to repaint in the next frame.
+	 */
+	private void addDirtyRegion(Rectangle region) {
+		if (repaintAll) {
+			return;
+		}
+		if (dirtyRegions.size() >= MAX_DIRTY_REGIONS) {
+			// Too many regions to merge them : they are painted as one.
+			Rectangle union = dirtyRegions.get(0);
+			for (Rectangle dirty : dirtyRegions) {
+				union.add(dirty);
+			}
+			dirtyRegions.clear();
+			dirtyRegions.add(union);
+		}
+		dirtyRegions.add(region);
+		scheduleFrame();
+	}
+
+	private void scheduleFrame() {
+		if (!frameTimer.isRunning()) {
+			frameTimer.restart();
+		}
+	}
+
+	/**
+	 * Repaints the regions changed since the last frame.
+	 */
+	private void paintFrame() {
+		long start = System.nanoTime();
+		Rectangle visible = getVisibleRect();
+		List<Rectangle> regions;
+		if (repaintAll) {
+			regions = new ArrayList<>();
+			regions.add(visible);
+		} else {
+			regions = merge(dirtyRegions);
+		}
+		repaintAll = false;
+		dirtyRegions.clear();
+		inFrame = true;
+		try {
+			for (Rectangle region : regions) {
+				Rectangle painted = region.intersection(visible);
+				if (!painted.isEmpty()) {
+					paintImmediately(painted);
+				}
+			}
+		} finally {
+			inFrame = false;
+		}
+		frameTimes.add(System.nanoTime() - start);
+		if (overlayVisible) {
+			paintImmediately(getOverlayBounds());
+		}
+	}
+
+	/**
+	 * Merges the regions which overlap or whose union is not much larger than themselves.
+	 *
+	 * @param regions : regions, not modified.
+	 * @return merged regions.
+	 */
+	static List<Rectangle> merge(List<Rectangle> regions) {
+		List<Rectangle> merged = new ArrayList<>(regions.size());
+		for (Rectangle region : regions) {
+			merged.add(new Rectangle(region));
+		}
+		boolean changed = true;
+		while (changed) {
+			changed = false;
+			for (int i = 0; i < merged.size() && !changed; i++) {
+				Rectangle a = merged.get(i);
+				for (int j = i + 1; j < merged.size(); j++) {
+					Rectangle b = merged.get(j);
+					Rectangle union = a.union(b);
+					if (a.intersects(b) || area(union) <= area(a) + area(b)) {
+						a.setBounds(union);
+						merged.remove(j);
+						changed = true;
+						break;
+					}
+				}
+			}
+		}
+		return merged;
+	}
+
+	private static long area(Rectangle r) {
+		return (long) r.width * r.height;
+	}
+
+	@Override
+	protected void paintComponent(Graphics graphics) {
+		long start = System.nanoTime();
+		Graphics2D g = (Graphics2D) graphics.create();
+		try {
+			Rectangle clip = g.getClipBounds();
+			if (clip == null) {
+				clip = new Rectangle(0, 0, getWidth(), getHeight());
+			}
+			tiles.paint(g, clip, getGraphicsConfiguration());
+			g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+			for (SynopticLayer layer : scene.getLayers()) {
+				if (!layer.isBackground() && layer.isVisible()) {
+					layer.search(clip.x, clip.y, clip.width, clip.height, found);
+					for (SynopticShape shape : found) {
+						shape.paint(g);
+					}
+					found.clear();
+				}
+			}
+			paintSelection(g, clip);
+			if (!inFrame) {
+				// Repaint requested by Swing : scroll, exposure...
+				frameTimes.add(System.nanoTime() - start);
+			}
+			if (overlayVisible && clip.intersects(getOverlayBounds())) {
+				paintOverlay(g);
+			}
+		} finally {
+			g.dispose();
+		}
+	}
+
+	private void paintSelection(Graphics2D g, Rectangle clip) {
+		// Inside the repainted regions of the shapes
+		g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
+		g.setStroke(new BasicStroke(1f));
+		g.setColor(SELECTION_COLOR);
+		for (SynopticShape shape : selection) {
+			Rectangle bounds = shape.getPaintBounds();
+			if (bounds.intersects(clip)) {
+				g.drawRect(bounds.x, bounds.y, bounds.width - 1, bounds.height - 1);
+			}
+		}
+		if (rubberBand != null && rubberBand.intersects(clip)) {
+			g.setColor(RUBBER_BAND_FILL);
+			g.fill(rubberBand);
+			g.setColor(SELECTION_COLOR);
+			g.drawRect(rubberBand.x, rubberBand.y, rubberBand.width, rubberBand.height);
+		}
+	}
+
+	private Rectangle getOverlayBounds() {
+		Rectangle visible = getVisibleRect();
+		return new Rectangle(visible.x, visible.y, OVERLAY_WIDTH, OVERLAY_HEIGHT);
+	}
+
+	private void paintOverlay(Graphics2D g) {
+		Rectangle bounds = getOverlayBounds();
+		g.setColor(new Color(0, 0, 0, 160));
+		g.fillRect(bounds.x, bounds.y, bounds.width, bounds.height);
+		g.setColor(Color.WHITE);
+		g.setFont(getFont() != null ? getFont().deriveFont(Font.PLAIN, 11f) : new Font(Font.MONOSPACED, Font.PLAIN, 11));
+		g.drawString(String.format(Locale.ROOT, "frame %.1f ms  avg %.1f ms  max %.1f ms  %d shapes", frameTimes.getLastMillis(),
+				frameTimes.getAverageMillis(), frameTimes.getMaxMillis(), scene.getShapeCount()), bounds.x + 6, bounds.y + 14);
+	}
+
+	/**
+	 * Times of the last frames.
+	 */
+	public static final class FrameTimes {
+
+		private final long[] times;
+		private int count = 0;
+		private int next = 0;
+
+		FrameTimes(int capacity) {
+			this.times = new long[capacity];
+		}
+
+		void add(long nanos) {
+			times[next] = nanos;
+			next = (next + 1) % times.length;
+			count = Math.min(count + 1, times.length);
+		}
+
+		/**
+		 * Gets the time of the last frame.
+		 *
+		 * @return the time in milliseconds, or 0 if there was no frame.
+		 */
+		public double getLastMillis() {
+			return count == 0 ? 0 : millis(times[(next + times.length - 1) % times.length]);
+		}
+
+		/**
+		 * Gets the average time of the last frames.
+		 *
+		 * @return the time in milliseconds, or 0 if there was no frame.
+		 */
+		public double getAverageMillis() {
+			long total = 0;
+			for (int i = 0; i < count; i++) {
+				total += times[i];
+			}
+			return count == 0 ? 0 : millis(total / count);
+		}
+
+		/**
+		 * Gets the maximum time of the last frames.
+		 *
+		 * @return the time in milliseconds, or 0 if there was no frame.
+		 */
+		public double getMaxMillis() {
+			long max = 0;
+			for (int i = 0; i < count; i++) {
+				max = Math.max(max, times[i]);
+			}
+			return millis(max);
+		}
+
+		private static double millis(long nanos) {
+			return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+		}
+	}
+}
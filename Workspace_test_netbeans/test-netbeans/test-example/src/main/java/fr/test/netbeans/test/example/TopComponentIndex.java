@@ -0,0 +1,190 @@
+package fr.test.netbeans.test.example;
+
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import org.openide.windows.TopComponent;
+
+/**
+ * Index of the open top components by class, kept up to date from the events of the TopComponent registry.
+ *
+ * Finding the open component of a class does not depend on the number of open components. The preferred ID and the constructor of each
+ * component class are also resolved once per class. The index is only accessed on the EDT, where the registry fires its events.
+ *
+ * @author BGRY
+ */
+public final class TopComponentIndex {
+
+	private static TopComponentIndex def = null;
+
+	/**
+	 * Preferred ID of the component classes, read from their TopComponent.Description.
+	 */
+	private static final ClassValue<String> PREFERRED_IDS = new ClassValue<String>() {
+		@Override
+		protected String computeValue(Class<?> type) {
+			TopComponent.Description description = type.getAnnotation(TopComponent.Description.class);
+			return description != null ? description.preferredID() : null;
+		}
+	};
+	/**
+	 * Constructor without parameters of the component classes, or null if they have none.
+	 */
+	private static final ClassValue<MethodHandle> FACTORIES = new ClassValue<MethodHandle>() {
+		@Override
+		protected MethodHandle computeValue(Class<?> type) {
+			try {
+				return MethodHandles.publicLookup().findConstructor(type, MethodType.methodType(void.class))
+						.asType(MethodType.methodType(TopComponent.class));
+			} catch (NoSuchMethodException | IllegalAccessException ex) {
+				return null;
+			}
+		}
+	};
+
+	/**
+	 * Open components by class, in opening order.
+	 */
+	private final Map<Class<?>, Deque<TopComponent>> opened = new HashMap<>();
+	private int openedCount = 0;
+
+	/**
+	 * Creates an index of the components of a registry.
+	 *
+	 * @param registry : registry of the components.
+	 */
+	TopComponentIndex(TopComponent.Registry registry) {
+		rebuild(registry.getOpened());
+		registry.addPropertyChangeListener(new PropertyChangeListener() {
+			@Override
+			public void propertyChange(PropertyChangeEvent event) {
+				String name = event.getPropertyName();
+				if (TopComponent.Registry.PROP_TC_OPENED.equals(name)) {
+					add((TopComponent) event.getNewValue());
+				} else if (TopComponent.Registry.PROP_TC_CLOSED.equals(name)) {
+					remove((TopComponent) event.getNewValue());
+				} else if (TopComponent.Registry.PROP_OPENED.equals(name) && event.getNewValue() instanceof Set) {
+					// Only rebuilt if a change was missed, for instance when the window system is reset.
+					Set<?> components = (Set<?>) event.getNewValue();
+					if (components.size() != openedCount) {
+						rebuild(components);
+					}
+				}
+			}
+		});
+	}
+
+	/**
+	 * Gets the index of the components of the window system. Must be called on the EDT.
+	 *
+	 * @return the default index.
+	 */
+	public static synchronized TopComponentIndex getDefault() {
+		if (def == null) {
+			def = new TopComponentIndex(TopComponent.getRegistry());
+		}
+		return def;
+	}
+
+	/**
+	 * Finds the first opened component of a class.
+	 *
+	 * @param <T> : class of the component.
+	 * @param type : class of the component, subclasses are not matched.
+	 * @return the open component, or null.
+	 */
+	public <T extends TopComponent> T find(Class<T> type) {
+		Deque<TopComponent> components = opened.get(type);
+		return components != null ? type.cast(components.peekFirst()) : null;
+	}
+
+	/**
+	 * Finds the open components of a class.
+	 *
+	 * @param type : class of the components, subclasses are not matched.
+	 * @return the open components, in opening order.
+	 */
+	public Collection<TopComponent> findAll(Class<? extends TopComponent> type) {
+		Deque<TopComponent> components = opened.get(type);
+		return components != null ? Collections.unmodifiableCollection(components) : Collections.<TopComponent>emptyList();
+	}
+
+	/**
+	 * Gets the preferred ID of a component class.
+	 *
+	 * @param type : class of the component.
+	 * @return the preferred ID of its TopComponent.Description, or null.
+	 */
+	public static String getPreferredId(Class<? extends TopComponent> type) {
+		return PREFERRED_IDS.get(type);
+	}
+
+	/**
+	 * Creates a component with its constructor without parameters.
+	 *
+	 * @param <T> : class of the component.
+	 * @param type : class of the component.
+	 * @return the new component.
+	 * @throws IllegalArgumentException if the class has no public constructor without parameters.
+	 */
+	public static <T extends TopComponent> T newInstance(Class<T> type) {
+		MethodHandle factory = FACTORIES.get(type);
+		if (factory == null) {
+			throw new IllegalArgumentException(type.getName() + " has no public constructor without parameters");
+		}
+		try {
+			return type.cast((TopComponent) factory.invokeExact());
+		} catch (RuntimeException | Error ex) {
+			throw ex;
+		} catch (Throwable ex) {
+			throw new IllegalStateException("Cannot create " + type.getName(), ex);
+		}
+	}
+
+	private void add(TopComponent component) {
+		if (component == null) {
+			return;
+		}
+		Deque<TopComponent> components = opened.get(component.getClass());
+		if (components == null) {
+			components = new ArrayDeque<>(1);
+			opened.put(component.getClass(), components);
+		}
+		if (!components.contains(component)) {
+			components.addLast(component);
+			openedCount++;
+		}
+	}
+
+	private void remove(TopComponent component) {
+		if (component == null) {
+			return;
+		}
+		Deque<TopComponent> components = opened.get(component.getClass());
+		if (components != null && components.remove(component)) {
+			openedCount--;
+			if (components.isEmpty()) {
+				opened.remove(component.getClass());
+			}
+		}
+	}
+
+	private void rebuild(Collection<?> components) {
+		opened.clear();
+		openedCount = 0;
+		for (Object component : components) {
+			if (component instanceof TopComponent) {
+				add((TopComponent) component);
+			}
+		}
+	}
+}
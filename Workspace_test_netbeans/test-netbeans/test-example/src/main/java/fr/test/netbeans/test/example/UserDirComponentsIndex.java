@@ -0,0 +1,204 @@
+package fr.test.netbeans.test.example;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Index of the settings files of the TopComponents in the userdir (config/Windows2Local/Components), grouped by TopComponent simple name.
+ *
+ * The directory is scanned once, then the index follows the changes of the directory through the {@link DirectoryWatcher}. Checking if a
+ * component has settings is a map lookup.
+ *
+ * @author BGRY
+ */
+public final class UserDirComponentsIndex {
+
+	private static final Logger logger = Logger.getLogger(UserDirComponentsIndex.class.getName());
+	private static final String SETTINGS_EXTENSION = ".settings";
+	private static UserDirComponentsIndex def = null;
+
+	private final Path directory;
+	/**
+	 * Settings files by component name, null until the directory is scanned and watched.
+	 */
+	private Map<String, Set<Path>> filesByComponent = null;
+	private boolean watched = false;
+
+	/**
+	 * Creates an index.
+	 *
+	 * @param directory : directory of the components settings files.
+	 */
+	public UserDirComponentsIndex(Path directory) {
+		this.directory = directory.toAbsolutePath().normalize();
+	}
+
+	/**
+	 * Gets the index of the components directory in the userdir.
+	 *
+	 * @return the default index.
+	 */
+	public static synchronized UserDirComponentsIndex getDefault() {
+		if (def == null) {
+			String userDir = System.getProperty("netbeans.user");
+			def = new UserDirComponentsIndex(Paths.get(userDir).resolve("config/Windows2Local/Components/"));
+		}
+		return def;
+	}
+
+	/**
+	 * Checks if a component has settings files.
+	 *
+	 * @param componentName : simple name of the TopComponent class.
+	 * @return true if there is at least one settings file for the component.
+	 */
+	public synchronized boolean contains(String componentName) {
+		Set<Path> files = getIndex().get(componentName);
+		return files != null && !files.isEmpty();
+	}
+
+	/**
+	 * Removes the settings files of a component.
+	 *
+	 * @param componentName : simple name of the TopComponent class.
+	 */
+	public synchronized void remove(String componentName) {
+		Map<String, Set<Path>> index = getIndex();
+		Set<Path> files = index.get(componentName);
+		if (files == null) {
+			return;
+		}
+		for (Path file : new ArrayList<>(files)) {
+			try {
+				Files.deleteIfExists(file);
+			} catch (IOException ex) {
+				logger.log(Level.INFO, "Cannot delete component settings " + file, ex);
+			}
+			update(index, file, Files.exists(file));
+		}
+	}
+
+	/**
+	 * Gets the index. The index is kept only while the directory is watched : while the directory does not exist, or if it cannot be watched, it
+	 * is scanned on each query.
+	 *
+	 * @return settings files by component name.
+	 */
+	private Map<String, Set<Path>> getIndex() {
+		if (filesByComponent != null) {
+			return filesByComponent;
+		}
+		// Watches before scanning, so no change is missed in between.
+		boolean upToDate = watch();
+		Map<String, Set<Path>> index = new HashMap<>();
+		if (Files.isDirectory(directory)) {
+			try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + SETTINGS_EXTENSION)) {
+				for (Path file : files) {
+					update(index, file, true);
+				}
+			} catch (IOException ex) {
+				logger.log(Level.INFO, "Cannot scan the components settings directory " + directory, ex);
+				upToDate = false;
+			}
+		}
+		if (upToDate) {
+			filesByComponent = index;
+		}
+		return index;
+	}
+
+	/**
+	 * Starts watching the directory if it is not watched yet.
+	 *
+	 * @return true if the directory is watched.
+	 */
+	private boolean watch() {
+		if (!watched && Files.isDirectory(directory)) {
+			try {
+				DirectoryWatcher.getDefault().register(directory, new DirectoryWatcher.Listener() {
+					@Override
+					public void fileChanged(Path file) {
+						changed(file);
+					}
+				});
+				watched = true;
+			} catch (IOException ex) {
+				logger.log(Level.INFO, "Cannot watch the components settings directory " + directory, ex);
+			}
+		}
+		return watched;
+	}
+
+	private synchronized void changed(Path file) {
+		if (filesByComponent == null) {
+			return;
+		}
+		if (file.equals(directory)) {
+			// Events were lost : scans again on the next query.
+			filesByComponent = null;
+		} else {
+			update(filesByComponent, file, Files.exists(file));
+		}
+	}
+
+	/**
+	 * Updates an index for a file.
+	 *
+	 * @param index : settings files by component name.
+	 * @param file : settings file.
+	 * @param exists : true if the file exists.
+	 */
+	private static void update(Map<String, Set<Path>> index, Path file, boolean exists) {
+		for (String componentName : getComponentNames(file.getFileName().toString())) {
+			Set<Path> files = index.get(componentName);
+			if (exists) {
+				if (files == null) {
+					files = new LinkedHashSet<>();
+					index.put(componentName, files);
+				}
+				files.add(file);
+			} else if (files != null && files.remove(file) && files.isEmpty()) {
+				index.remove(componentName);
+			}
+		}
+	}
+
+	/**
+	 * Gets the component names a settings file may belong to. The window system names the files after the component class, with an optional
+	 * "_number" suffix : "EditorShapeTopComponent_2.settings" belongs to EditorShapeTopComponent (and to EditorShapeTopComponent_2, in case the
+	 * class name itself ends with such a suffix).
+	 *
+	 * @param fileName : name of the file.
+	 * @return names of the components, empty if the file is not a settings file.
+	 */
+	static List<String> getComponentNames(String fileName) {
+		List<String> names = new ArrayList<>(2);
+		if (!fileName.endsWith(SETTINGS_EXTENSION)) {
+			return names;
+		}
+		String baseName = fileName.substring(0, fileName.length() - SETTINGS_EXTENSION.length());
+		names.add(baseName);
+		int separator = baseName.lastIndexOf('_');
+		if (separator > 0) {
+			boolean digits = true;
+			for (int i = separator + 1; i < baseName.length() && digits; i++) {
+				digits = Character.isDigit(baseName.charAt(i));
+			}
+			if (digits) {
+				names.add(baseName.substring(0, separator));
+			}
+		}
+		return names;
+	}
+}
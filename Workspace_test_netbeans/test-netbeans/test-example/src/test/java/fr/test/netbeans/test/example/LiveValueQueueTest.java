@@ -0,0 +1,180 @@
+package fr.test.netbeans.test.example;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.netbeans.junit.NbTestCase;
+
+/**
+ * Checks that the {@link LiveValueQueue} never loses the latest value of a tag, in particular when a value is published while the queue is
+ * drained. The receiver is called during the drain, so the values it publishes come at chosen points of the drain : for a tag already
+ * received, for a tag still to be received, and for a new tag.
+ *
+ * @author BGRY
+ */
+public class LiveValueQueueTest extends NbTestCase {
+
+	private final LiveValueQueue queue = new LiveValueQueue();
+
+	public LiveValueQueueTest(String name) {
+		super(name);
+	}
+
+	public void testLatestValueOfEachTag() {
+		queue.publish("a", 1);
+		queue.publish("b", 1);
+		queue.publish("a", 2);
+		queue.publish("c", 1);
+		queue.publish("a", 3);
+		Recorder recorder = new Recorder();
+		assertEquals(3, queue.drain(recorder));
+		// In publication order of the tags, with the latest value
+		assertEquals(Arrays.asList("a=3", "b=1", "c=1"), recorder.received);
+		assertEquals(5, queue.getPublishedCount());
+		assertEquals(0, queue.drain(new Recorder()));
+	}
+
+	public void testPublishOfReceivedTagDuringDrain() {
+		queue.publish("a", 1);
+		queue.publish("b", 1);
+		Recorder recorder = new Recorder() {
+			@Override
+			public void valueChanged(String tag, Object value) {
+				super.valueChanged(tag, value);
+				if (tag.equals("b")) {
+					// "a" was already received by this drain
+					queue.publish("a", 2);
+				}
+			}
+		};
+		assertEquals(2, queue.drain(recorder));
+		assertEquals(Arrays.asList("a=1", "b=1"), recorder.received);
+		Recorder next = new Recorder();
+		assertEquals(1, queue.drain(next));
+		assertEquals(Arrays.asList("a=2"), next.received);
+	}
+
+	public void testPublishOfSameTagDuringItsReception() {
+		queue.publish("a", 1);
+		Recorder recorder = new Recorder() {
+			@Override
+			public void valueChanged(String tag, Object value) {
+				super.valueChanged(tag, value);
+				if (value.equals(1)) {
+					queue.publish("a", 2);
+				}
+			}
+		};
+		assertEquals(1, queue.drain(recorder));
+		assertEquals(Arrays.asList("a=1"), recorder.received);
+		Recorder next = new Recorder();
+		assertEquals(1, queue.drain(next));
+		assertEquals(Arrays.asList("a=2"), next.received);
+	}
+
+	public void testPublishOfPendingTagDuringDrain() {
+		queue.publish("a", 1);
+		queue.publish("b", 1);
+		Recorder recorder = new Recorder() {
+			@Override
+			public void valueChanged(String tag, Object value) {
+				super.valueChanged(tag, value);
+				if (tag.equals("a")) {
+					// "b" is still to be received by this drain : it receives the new value
+					queue.publish("b", 2);
+				}
+			}
+		};
+		assertEquals(2, queue.drain(recorder));
+		assertEquals(Arrays.asList("a=1", "b=2"), recorder.received);
+		assertEquals(0, queue.drain(new Recorder()));
+	}
+
+	public void testPublishOfNewTagDuringDrain() {
+		queue.publish("a", 1);
+		Recorder recorder = new Recorder() {
+			@Override
+			public void valueChanged(String tag, Object value) {
+				super.valueChanged(tag, value);
+				if (tag.equals("a")) {
+					queue.publish("b", 1);
+				}
+			}
+		};
+		assertEquals(1, queue.drain(recorder));
+		Recorder next = new Recorder();
+		assertEquals(1, queue.drain(next));
+		assertEquals(Arrays.asList("b=1"), next.received);
+	}
+
+	/**
+	 * Publishes increasing values from several threads while draining : the values of a tag are received in order, and the last drain
+	 * receives the last value of each tag still pending.
+	 */
+	public void testConcurrentPublishers() {
+		final int publishers = 4;
+		final int tagsByPublisher = 16;
+		final int valuesByTag = 20000;
+		List<Thread> threads = new ArrayList<>();
+		for (int p = 0; p < publishers; p++) {
+			final int publisher = p;
+			Thread thread = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					LiveValueQueue.Channel[] channels = new LiveValueQueue.Channel[tagsByPublisher];
+					for (int t = 0; t < tagsByPublisher; t++) {
+						channels[t] = queue.getChannel(publisher + "/" + t);
+					}
+					for (int v = 1; v <= valuesByTag; v++) {
+						for (LiveValueQueue.Channel channel : channels) {
+							channel.publish(v);
+						}
+					}
+				}
+			}, "publisher " + p);
+			threads.add(thread);
+			thread.start();
+		}
+		final Map<String, Integer> last = new HashMap<>();
+		LiveValueQueue.Receiver receiver = new LiveValueQueue.Receiver() {
+			@Override
+			public void valueChanged(String tag, Object value) {
+				int received = (Integer) value;
+				Integer previous = last.put(tag, received);
+				// A value published during the drain may be received twice, never an older one
+				assertTrue("Value " + received + " of " + tag + " received after " + previous, previous == null || previous <= received);
+			}
+		};
+		boolean running = true;
+		while (running) {
+			running = false;
+			for (Thread thread : threads) {
+				running |= thread.isAlive();
+			}
+			queue.drain(receiver);
+		}
+		queue.drain(receiver);
+
+		assertEquals(publishers * tagsByPublisher, last.size());
+		for (Map.Entry<String, Integer> value : last.entrySet()) {
+			assertEquals("Last value of " + value.getKey(), valuesByTag, value.getValue().intValue());
+		}
+		assertEquals((long) publishers * tagsByPublisher * valuesByTag, queue.getPublishedCount());
+		assertEquals(0, queue.drain(new Recorder()));
+	}
+
+	/**
+	 * Receiver recording the values as "tag=value".
+	 */
+	private static class Recorder implements LiveValueQueue.Receiver {
+
+		final List<String> received = new ArrayList<>();
+
+		@Override
+		public void valueChanged(String tag, Object value) {
+			received.add(tag + "=" + value);
+		}
+	}
+}
@@ -0,0 +1,159 @@
+package fr.test.netbeans.test.example;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import org.netbeans.junit.NbTestCase;
+
+/**
+ * Checks the recovery of a project from its store and its {@link ProjectJournal} after a crash : during a checkpoint, and while a record was
+ * written. The crashes are simulated by leaving the files as the journal would have left them.
+ *
+ * @author BGRY
+ */
+public class ProjectJournalTest extends NbTestCase {
+
+	private Path file;
+
+	public ProjectJournalTest(String name) {
+		super(name);
+	}
+
+	@Override
+	protected void setUp() throws IOException {
+		clearWorkDir();
+		file = getWorkDir().toPath().resolve("test.tprj");
+		Project project = new Project();
+		project.addPage(new ProjectPage("first", bytes("first saved")));
+		project.addPage(new ProjectPage("second", bytes("second saved")));
+		ProjectStore.create(file).save(project);
+	}
+
+	public void testRecoverEdits() throws IOException {
+		Project project = new Project();
+		ProjectStore store = ProjectStore.open(file, project);
+		ProjectJournal journal = ProjectJournal.open(project, store);
+		project.getPage("first").setData(bytes("first edited"));
+		project.addPage(new ProjectPage("third", bytes("third added")));
+		// Crash : the edits are only in the journal
+		journal.close();
+
+		Project recovered = open();
+		assertEquals(3, ProjectJournal.recover(file, recovered));
+		assertPages(recovered, "first", "first edited", "second", "second saved", "third", "third added");
+	}
+
+	/**
+	 * Crash during a checkpoint, once the store was saved but before the previous journal file was deleted : the journal file is replayed
+	 * over the saved store, followed by the journal file started by the checkpoint.
+	 */
+	public void testRecoverAfterCrashDuringCheckpoint() throws IOException {
+		Project project = new Project();
+		ProjectStore store = ProjectStore.open(file, project);
+		ProjectJournal journal = ProjectJournal.open(project, store);
+		project.getPage("first").setData(bytes("first edited"));
+		project.addPage(new ProjectPage("third", bytes("third added")));
+		journal.close();
+		store.save(project);
+		assertTrue(Files.exists(getJournalFile(1)));
+
+		// The next edits go to the journal file following the one left by the checkpoint.
+		journal = ProjectJournal.open(project, store);
+		project.getPage("first").setData(bytes("first edited again"));
+		project.setPages(Arrays.asList(project.getPage("third"), project.getPage("first")));
+		journal.close();
+		assertTrue(Files.exists(getJournalFile(2)));
+
+		Project recovered = open();
+		ProjectJournal.recover(file, recovered);
+		assertPages(recovered, "third", "third added", "first", "first edited again");
+	}
+
+	/**
+	 * Crash during a checkpoint, before the store was replaced : the project is recovered from the previous store and its journal.
+	 */
+	public void testRecoverAfterCrashBeforeCheckpointSave() throws IOException {
+		Project project = new Project();
+		ProjectStore store = ProjectStore.open(file, project);
+		ProjectJournal journal = ProjectJournal.open(project, store);
+		project.getPage("second").setData(bytes("second edited"));
+		journal.close();
+		// Temporary file of the save interrupted by the crash
+		Files.write(file.resolveSibling(file.getFileName() + ".tmp"), bytes("partial store"));
+
+		Project recovered = open();
+		assertEquals(1, ProjectJournal.recover(file, recovered));
+		assertPages(recovered, "first", "first saved", "second", "second edited");
+	}
+
+	public void testTruncatedLastRecordIgnored() throws IOException {
+		writeTwoEdits();
+		Path journalFile = getJournalFile(1);
+		byte[] content = Files.readAllBytes(journalFile);
+		// Torn write : the end of the last record is missing
+		Files.write(journalFile, Arrays.copyOf(content, content.length - 3));
+
+		Project recovered = open();
+		assertEquals(1, ProjectJournal.recover(file, recovered));
+		assertPages(recovered, "first", "first edited", "second", "second saved");
+	}
+
+	public void testCorruptedLastRecordIgnored() throws IOException {
+		writeTwoEdits();
+		Path journalFile = getJournalFile(1);
+		byte[] content = Files.readAllBytes(journalFile);
+		// The payload of the last record does not match its CRC anymore
+		content[content.length - 1] ^= 0x55;
+		Files.write(journalFile, content);
+
+		Project recovered = open();
+		assertEquals(1, ProjectJournal.recover(file, recovered));
+		assertPages(recovered, "first", "first edited", "second", "second saved");
+	}
+
+	/**
+	 * Journals an edit of each page, the last record being the edit of the second page.
+	 */
+	private void writeTwoEdits() throws IOException {
+		Project project = new Project();
+		ProjectStore store = ProjectStore.open(file, project);
+		ProjectJournal journal = ProjectJournal.open(project, store);
+		project.getPage("first").setData(bytes("first edited"));
+		project.getPage("second").setData(bytes("second edited"));
+		journal.close();
+	}
+
+	private Project open() throws IOException {
+		Project project = new Project();
+		ProjectStore.open(file, project);
+		return project;
+	}
+
+	/**
+	 * Gets a journal file of the store, named as the journal names it.
+	 */
+	private Path getJournalFile(long sequence) {
+		return file.resolveSibling(file.getFileName() + ".journal." + sequence);
+	}
+
+	/**
+	 * Checks the pages of a project.
+	 *
+	 * @param project : project.
+	 * @param expected : name and data of each page, in order.
+	 */
+	private static void assertPages(Project project, String... expected) {
+		assertEquals(expected.length / 2, project.getPages().size());
+		for (int i = 0; i < expected.length; i += 2) {
+			ProjectPage page = project.getPages().get(i / 2);
+			assertEquals(expected[i], page.getName());
+			assertEquals(expected[i], expected[i + 1], new String(page.getData(), StandardCharsets.UTF_8));
+		}
+	}
+
+	private static byte[] bytes(String value) {
+		return value.getBytes(StandardCharsets.UTF_8);
+	}
+}
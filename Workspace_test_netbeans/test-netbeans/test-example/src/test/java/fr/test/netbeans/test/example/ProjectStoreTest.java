@@ -0,0 +1,116 @@
+package fr.test.netbeans.test.example;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Date;
+import org.netbeans.junit.NbTestCase;
+
+/**
+ * Checks that a project saved in a {@link ProjectStore} is read back, also after several saves of a store opened from its file, and that a
+ * save does not keep the file it replaced mapped.
+ *
+ * @author BGRY
+ */
+public class ProjectStoreTest extends NbTestCase {
+
+	private Path file;
+
+	public ProjectStoreTest(String name) {
+		super(name);
+	}
+
+	@Override
+	protected void setUp() throws IOException {
+		clearWorkDir();
+		file = getWorkDir().toPath().resolve("test.tprj");
+	}
+
+	public void testWriteReadRoundTrip() throws IOException {
+		Project project = new Project();
+		project.getInformations().setName("Project");
+		project.getInformations().setAuthor("Author");
+		project.getInformations().setComment(null);
+		project.getInformations().setModified(new Date(1000));
+		project.addPage(new ProjectPage("first", bytes("first data")));
+		project.addPage(new ProjectPage("empty", new byte[0]));
+		project.addPage(new ProjectPage("third", bytes("third data")));
+		ProjectStore.create(file).save(project);
+
+		Project read = new Project();
+		ProjectStore.open(file, read);
+		ProjectInformationSnapshot informations = read.getInformations().getSnapshot();
+		assertEquals("Project", informations.getName());
+		assertEquals("Author", informations.getAuthor());
+		assertNull(informations.getComment());
+		assertEquals(project.getInformations().getCreated(), informations.getCreated());
+		assertEquals(project.getInformations().getModified(), informations.getModified());
+		assertPages(read, "first", "first data", "empty", "", "third", "third data");
+		for (ProjectPage page : read.getPages()) {
+			assertFalse(page.getName(), page.isDirty());
+		}
+	}
+
+	public void testSaveSaveReopen() throws IOException {
+		Project project = new Project();
+		project.addPage(new ProjectPage("clean", bytes("clean data")));
+		project.addPage(new ProjectPage("edited", bytes("edited data")));
+		ProjectStore.create(file).save(project);
+
+		Project opened = new Project();
+		ProjectStore store = ProjectStore.open(file, opened);
+		// "clean" is never decoded : it is saved from its stored content
+		opened.getPage("edited").setData(bytes("edited once"));
+		store.save(opened);
+		assertNotMapped(opened);
+		opened.getPage("edited").setData(bytes("edited twice"));
+		opened.addPage(new ProjectPage("added", bytes("added data")));
+		store.save(opened);
+		assertNotMapped(opened);
+		store.save(opened);
+
+		Project reopened = new Project();
+		ProjectStore.open(file, reopened);
+		assertPages(reopened, "clean", "clean data", "edited", "edited twice", "added", "added data");
+	}
+
+	public void testOpenNotAStore() throws IOException {
+		Files.write(file, bytes("not a project store"));
+		try {
+			ProjectStore.open(file, new Project());
+			fail("Opened a file which is not a store");
+		} catch (IOException ex) {
+			// expected
+		}
+	}
+
+	/**
+	 * Checks the pages of a project.
+	 *
+	 * @param project : project.
+	 * @param expected : name and data of each page, in order.
+	 */
+	private static void assertPages(Project project, String... expected) {
+		assertEquals(expected.length / 2, project.getPages().size());
+		for (int i = 0; i < expected.length; i += 2) {
+			ProjectPage page = project.getPages().get(i / 2);
+			assertEquals(expected[i], page.getName());
+			assertEquals(expected[i], expected[i + 1], new String(page.getData(), StandardCharsets.UTF_8));
+		}
+	}
+
+	/**
+	 * Checks that the saved pages no longer view a mapping, which would prevent the next save from replacing the file on some platforms.
+	 */
+	private static void assertNotMapped(Project project) {
+		for (ProjectPage page : project.getPages()) {
+			assertFalse(page.getName(), page.getStored().isDirect());
+			assertFalse(page.getName(), page.isDirty());
+		}
+	}
+
+	private static byte[] bytes(String value) {
+		return value.getBytes(StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,191 @@
+package fr.test.netbeans.test.example;
+
+import java.awt.Shape;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.netbeans.junit.NbTestCase;
+
+/**
+ * Checks the {@link SynopticGrid} against a linear scan of its shapes, while the shapes are added, moved and removed. The shapes are
+ * generated with a fixed seed, some of them across several cells or outside the page.
+ *
+ * @author BGRY
+ */
+public class SynopticGridTest extends NbTestCase {
+
+	private static final int WIDTH = 1000;
+	private static final int HEIGHT = 800;
+	private static final int CELL_SIZE = 64;
+	private static final Shape RECTANGLE = new Rectangle2D.Double(0, 0, 1, 1);
+	private static final Shape ELLIPSE = new Ellipse2D.Double(0, 0, 1, 1);
+
+	private final Random random = new Random(42);
+	private SynopticGrid grid;
+	/**
+	 * Indexed shapes and their identifier, in paint order.
+	 */
+	private final Map<SynopticShape, Integer> ids = new LinkedHashMap<>();
+	private int nextSequence = 0;
+
+	public SynopticGridTest(String name) {
+		super(name);
+	}
+
+	@Override
+	protected void setUp() {
+		grid = new SynopticGrid(WIDTH, HEIGHT, CELL_SIZE);
+		for (int i = 0; i < 500; i++) {
+			add();
+		}
+	}
+
+	public void testSearchMatchesLinearScan() {
+		for (int i = 0; i < 500; i++) {
+			assertSearch(random.nextDouble() * (WIDTH + 200) - 100, random.nextDouble() * (HEIGHT + 200) - 100,
+					random.nextDouble() * 300, random.nextDouble() * 300);
+		}
+		assertSearch(-100, -100, WIDTH + 200, HEIGHT + 200);
+	}
+
+	public void testFindMatchesLinearScan() {
+		for (int i = 0; i < 5000; i++) {
+			assertFind(random.nextDouble() * (WIDTH + 200) - 100, random.nextDouble() * (HEIGHT + 200) - 100);
+		}
+	}
+
+	public void testMoveUpdatesCells() {
+		for (int round = 0; round < 10; round++) {
+			for (Map.Entry<SynopticShape, Integer> entry : ids.entrySet()) {
+				SynopticShape shape = entry.getKey();
+				// Small moves mostly stay in the same cells, large ones go to other cells or out of the page
+				double distance = round % 2 == 0 ? 10 : 400;
+				shape.setLocation(shape.getX() + (random.nextDouble() - 0.5) * distance, shape.getY() + (random.nextDouble() - 0.5) * distance);
+				grid.update(entry.getValue());
+			}
+			assertCells();
+		}
+	}
+
+	public void testRemoveUpdatesCells() {
+		List<SynopticShape> removed = new ArrayList<>();
+		for (SynopticShape shape : ids.keySet()) {
+			if (random.nextBoolean()) {
+				removed.add(shape);
+			}
+		}
+		for (SynopticShape shape : removed) {
+			grid.remove(ids.remove(shape));
+		}
+		assertEquals(ids.size(), grid.size());
+		assertCells();
+
+		// The identifiers of the removed shapes are reused
+		for (int i = 0; i < removed.size(); i++) {
+			add();
+		}
+		assertEquals(ids.size(), grid.size());
+		assertCells();
+	}
+
+	public void testSequenceChangesOrder() {
+		List<SynopticShape> shapes = new ArrayList<>(ids.keySet());
+		ids.clear();
+		// Paints the shapes in reverse order
+		for (int i = shapes.size() - 1; i >= 0; i--) {
+			SynopticShape shape = shapes.get(i);
+			int id = shape.indexId;
+			grid.setSequence(id, nextSequence++);
+			ids.put(shape, id);
+		}
+		assertCells();
+		for (int i = 0; i < 1000; i++) {
+			assertFind(random.nextDouble() * WIDTH, random.nextDouble() * HEIGHT);
+		}
+	}
+
+	/**
+	 * Adds a shape, from a few pixels to a few cells wide.
+	 */
+	private void add() {
+		double width = random.nextInt(10) == 0 ? 50 + random.nextDouble() * 250 : 5 + random.nextDouble() * 40;
+		double height = random.nextInt(10) == 0 ? 50 + random.nextDouble() * 250 : 5 + random.nextDouble() * 40;
+		Rectangle2D bounds = new Rectangle2D.Double(random.nextDouble() * (WIDTH + 100) - 50, random.nextDouble() * (HEIGHT + 100) - 50, width,
+				height);
+		SynopticShape shape = new SynopticShape(null, random.nextBoolean() ? RECTANGLE : ELLIPSE, bounds, null, null, null);
+		int id = grid.add(shape, nextSequence++);
+		// Kept by the shape as its layer does
+		shape.indexId = id;
+		ids.put(shape, id);
+	}
+
+	/**
+	 * Checks that each cell holds the shapes whose painted region intersects it, the cells of the border also holding the shapes outside the
+	 * page, and checks the search of each cell and of the margins around the page.
+	 */
+	private void assertCells() {
+		int columns = (WIDTH + CELL_SIZE - 1) / CELL_SIZE;
+		int rows = (HEIGHT + CELL_SIZE - 1) / CELL_SIZE;
+		for (int row = 0; row < rows; row++) {
+			for (int column = 0; column < columns; column++) {
+				List<Integer> expected = new ArrayList<>();
+				for (Map.Entry<SynopticShape, Integer> entry : ids.entrySet()) {
+					SynopticShape shape = entry.getKey();
+					double margin = shape.getPaintMargin();
+					if (cell(shape.getX() - margin, columns) <= column && cell(shape.getX() + shape.getWidth() + margin, columns) >= column
+							&& cell(shape.getY() - margin, rows) <= row && cell(shape.getY() + shape.getHeight() + margin, rows) >= row) {
+						expected.add(entry.getValue());
+					}
+				}
+				List<Integer> cell = new ArrayList<>();
+				for (int id : grid.getCell(column * CELL_SIZE + CELL_SIZE / 2, row * CELL_SIZE + CELL_SIZE / 2)) {
+					cell.add(id);
+				}
+				Collections.sort(expected);
+				Collections.sort(cell);
+				assertEquals("Shapes of the cell " + column + ", " + row, expected, cell);
+			}
+		}
+		for (int y = -CELL_SIZE; y < HEIGHT + CELL_SIZE; y += CELL_SIZE) {
+			for (int x = -CELL_SIZE; x < WIDTH + CELL_SIZE; x += CELL_SIZE) {
+				assertSearch(x, y, CELL_SIZE, CELL_SIZE);
+			}
+		}
+	}
+
+	private static int cell(double coordinate, int count) {
+		return Math.min(count - 1, Math.max(0, (int) Math.floor(coordinate / CELL_SIZE)));
+	}
+
+	private void assertSearch(double x, double y, double width, double height) {
+		List<SynopticShape> expected = new ArrayList<>();
+		for (SynopticShape shape : ids.keySet()) {
+			double margin = shape.getPaintMargin();
+			if (shape.getX() - margin < x + width && shape.getX() + shape.getWidth() + margin > x
+					&& shape.getY() - margin < y + height && shape.getY() + shape.getHeight() + margin > y) {
+				expected.add(shape);
+			}
+		}
+		List<SynopticShape> found = new ArrayList<>();
+		grid.search(x, y, width, height, found);
+		assertEquals("Shapes in " + new Rectangle2D.Double(x, y, width, height), expected, found);
+	}
+
+	private void assertFind(double x, double y) {
+		SynopticShape expected = null;
+		for (SynopticShape shape : ids.keySet()) {
+			double margin = shape.getPaintMargin();
+			if (shape.getX() - margin <= x && shape.getX() + shape.getWidth() + margin >= x
+					&& shape.getY() - margin <= y && shape.getY() + shape.getHeight() + margin >= y && shape.contains(x, y)) {
+				// The last one in paint order is the topmost
+				expected = shape;
+			}
+		}
+		assertSame("Shape at " + x + ", " + y, expected, grid.find(x, y));
+	}
+}